@@ -0,0 +1,47 @@
+package com.sample.benchmarks;
+
+import com.sample.SimpleApplicationContext;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Creating a child with a few beans on top of a started parent, compared to a flat context of the same beans.
+ * The child beans are the top layer of a synthetic graph, so each of them depends on beans of the parent.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ChildContextBenchmark {
+
+    @Param({"100", "10000"})
+    int parentBeans;
+
+    @Param({"1", "10"})
+    int childBeans;
+
+    private Class[] allClasses;
+    private Class[] childClasses;
+    private SimpleApplicationContext parent;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        allClasses = SyntheticBeans.layeredGraph(parentBeans + childBeans, 5, 3);
+        childClasses = Arrays.copyOfRange(allClasses, parentBeans, allClasses.length);
+        parent = new SimpleApplicationContext(Arrays.copyOfRange(allClasses, 0, parentBeans), new Object[]{});
+    }
+
+    @Benchmark
+    public SimpleApplicationContext child() {
+        return new SimpleApplicationContext(parent, childClasses, new Object[]{});
+    }
+
+    @Benchmark
+    public SimpleApplicationContext flat() {
+        return new SimpleApplicationContext(allClasses, new Object[]{});
+    }
+}
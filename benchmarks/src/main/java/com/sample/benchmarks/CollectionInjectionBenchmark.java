@@ -0,0 +1,36 @@
+package com.sample.benchmarks;
+
+import com.sample.SimpleApplicationContext;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Context construction where many consumers get every implementation of a plugin interface as a List.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CollectionInjectionBenchmark {
+
+    @Param({"10", "100", "500"})
+    int plugins;
+
+    @Param({"1", "50"})
+    int consumers;
+
+    private Class[] classes;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        classes = SyntheticBeans.pluginRegistry(plugins, consumers);
+    }
+
+    @Benchmark
+    public SimpleApplicationContext listInjection() {
+        return new SimpleApplicationContext(classes, new Object[]{});
+    }
+}
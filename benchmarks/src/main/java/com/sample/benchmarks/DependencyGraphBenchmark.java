@@ -0,0 +1,47 @@
+package com.sample.benchmarks;
+
+import com.sample.ContextConfiguration;
+import com.sample.DependencyGraph;
+import com.sample.SimpleApplicationContext;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Analyzing and exporting the dependency graph of a lazy context, which creates no beans, up to the size of the
+ * largest applications.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DependencyGraphBenchmark {
+
+    @Param({"1000", "10000", "50000"})
+    int beans;
+
+    private SimpleApplicationContext context;
+    private DependencyGraph graph;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Class[] classes = SyntheticBeans.layeredGraph(beans, 20, 8);
+        context = new SimpleApplicationContext(classes, new Object[]{}, new ContextConfiguration().setLazyInit(true));
+        graph = context.getDependencyGraph();
+    }
+
+    @Benchmark
+    public DependencyGraph analyze() {
+        return context.getDependencyGraph();
+    }
+
+    @Benchmark
+    public int exportJson() throws IOException {
+        StringBuilder json = new StringBuilder();
+        graph.writeJson(json);
+        return json.length();
+    }
+}
@@ -0,0 +1,100 @@
+package com.sample.benchmarks;
+
+import com.sample.EventBus;
+import com.sample.EventListener;
+import com.sample.SimpleApplicationContext;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Publishing an event to sync listeners, to an async listener through the bounded queue, and to no listener at all.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class EventBusBenchmark {
+
+    public static class Tick {
+    }
+
+    public static class Unobserved {
+    }
+
+    public static class AsyncTick {
+    }
+
+    public static class OneListener {
+        long count;
+
+        @EventListener
+        void onTick(Tick tick) {
+            count++;
+        }
+    }
+
+    public static class TenListeners {
+        long count;
+
+        @EventListener void onTick0(Tick tick) { count++; }
+        @EventListener void onTick1(Tick tick) { count++; }
+        @EventListener void onTick2(Tick tick) { count++; }
+        @EventListener void onTick3(Tick tick) { count++; }
+        @EventListener void onTick4(Tick tick) { count++; }
+        @EventListener void onTick5(Tick tick) { count++; }
+        @EventListener void onTick6(Tick tick) { count++; }
+        @EventListener void onTick7(Tick tick) { count++; }
+        @EventListener void onTick8(Tick tick) { count++; }
+        @EventListener void onTick9(Tick tick) { count++; }
+    }
+
+    public static class AsyncListener {
+        volatile long count;
+
+        @EventListener(async = true)
+        void onTick(AsyncTick tick) {
+            count++;
+        }
+    }
+
+    @Param({"1", "10"})
+    int listeners;
+
+    private SimpleApplicationContext context;
+    private EventBus eventBus;
+    private final Tick tick = new Tick();
+    private final Unobserved unobserved = new Unobserved();
+    private final AsyncTick asyncTick = new AsyncTick();
+
+    @Setup
+    public void setUp() {
+        context = new SimpleApplicationContext(new Class[]{
+                listeners == 1 ? OneListener.class : TenListeners.class,
+                AsyncListener.class
+        }, new Object[]{});
+        eventBus = context.getEventBus();
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public void syncPublish() {
+        eventBus.publish(tick);
+    }
+
+    @Benchmark
+    public void asyncPublish() {
+        eventBus.publish(asyncTick);
+    }
+
+    @Benchmark
+    public void publishWithoutListeners() {
+        eventBus.publish(unobserved);
+    }
+}
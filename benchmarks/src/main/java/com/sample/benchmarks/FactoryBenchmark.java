@@ -0,0 +1,59 @@
+package com.sample.benchmarks;
+
+import com.sample.ApplicationContext;
+import com.sample.BeanFactory;
+import com.sample.Prototype;
+import com.sample.SimpleApplicationContext;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Creation of BeanFactory products: as part of context construction, and per lookup for a prototype product.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FactoryBenchmark {
+
+    public static class Connection {
+    }
+
+    public static class Session {
+    }
+
+    public static class ConnectionFactory implements BeanFactory<Connection> {
+        @Override
+        public Connection createInstance() {
+            return new Connection();
+        }
+    }
+
+    public static class SessionFactory implements BeanFactory<Session> {
+        @Override
+        @Prototype
+        public Session createInstance() {
+            return new Session();
+        }
+    }
+
+    private ApplicationContext context;
+
+    @Setup
+    public void setUp() {
+        context = new SimpleApplicationContext(new Class[]{SessionFactory.class}, new Object[]{});
+    }
+
+    @Benchmark
+    public SimpleApplicationContext singletonProductStartup() {
+        return new SimpleApplicationContext(new Class[]{ConnectionFactory.class}, new Object[]{});
+    }
+
+    @Benchmark
+    public Object prototypeProduct() {
+        return context.getBean(Session.class);
+    }
+}
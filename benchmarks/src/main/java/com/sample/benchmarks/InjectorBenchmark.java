@@ -0,0 +1,159 @@
+package com.sample.benchmarks;
+
+import com.sample.ApplicationContext;
+import com.sample.ContextConfiguration;
+import com.sample.Prototype;
+import com.sample.SimpleApplicationContext;
+import org.openjdk.jmh.annotations.*;
+
+import javax.inject.Inject;
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+
+/**
+ * Creating and wiring a prototype with and without generated injectors, against doing the same by hand, and the
+ * accessors an injector could hold in isolation: reflection, method handles adapted to the fixed shapes BeanInjector
+ * uses and kept in non-final fields, and classes spun by LambdaMetafactory. Fields are written through reflection or
+ * a field handle, as LambdaMetafactory can't target fields.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class InjectorBenchmark {
+
+    public static class Dependency {
+    }
+
+    @Prototype
+    public static class Service {
+        final Dependency first;
+        final Dependency second;
+        @Inject Dependency field;
+        Dependency setter;
+
+        public Service(Dependency first, Dependency second) {
+            this.first = first;
+            this.second = second;
+        }
+
+        @Inject
+        public void setSetter(Dependency setter) {
+            this.setter = setter;
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Contexts {
+        @Param({"false", "true"})
+        boolean generatedInjectors;
+
+        ApplicationContext context;
+
+        @Setup
+        public void setUp() {
+            context = new SimpleApplicationContext(new Class[]{Dependency.class, Service.class}, new Object[]{},
+                    new ContextConfiguration().setGeneratedInjectors(generatedInjectors));
+        }
+    }
+
+    private final Dependency dependency = new Dependency();
+    private Object[] constructorArguments;
+    private Object[] setterArguments;
+    private Constructor constructor;
+    private Method setter;
+    private Service service;
+    private Field field;
+    private MethodHandle fieldHandle;
+    private MethodHandle constructorHandle;
+    private MethodHandle setterHandle;
+    private BiFunction<Object, Object, Object> constructorLambda;
+    private BiConsumer<Object, Object> setterLambda;
+
+    @Setup
+    @SuppressWarnings("unchecked")
+    public void setUp() throws Throwable {
+        constructorArguments = new Object[]{dependency, dependency};
+        setterArguments = new Object[]{dependency};
+        constructor = Service.class.getConstructor(Dependency.class, Dependency.class);
+        setter = Service.class.getMethod("setSetter", Dependency.class);
+        service = new Service(dependency, dependency);
+        field = Service.class.getDeclaredField("field");
+        field.setAccessible(true);
+
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        MethodHandle constructorTarget = lookup.unreflectConstructor(constructor);
+        MethodHandle setterTarget = lookup.unreflect(setter);
+        constructorHandle = constructorTarget.asType(MethodType.genericMethodType(2))
+                .asSpreader(Object[].class, 2).asType(MethodType.methodType(Object.class, Object[].class));
+        setterHandle = setterTarget.asType(MethodType.genericMethodType(2).changeReturnType(void.class))
+                .asSpreader(Object[].class, 1).asType(MethodType.methodType(void.class, Object.class, Object[].class));
+
+        fieldHandle = lookup.unreflectSetter(field).asType(MethodType.methodType(void.class, Object.class, Object.class));
+
+        CallSite constructorSite = LambdaMetafactory.metafactory(lookup, "apply", MethodType.methodType(BiFunction.class),
+                MethodType.genericMethodType(2), constructorTarget, constructorTarget.type());
+        constructorLambda = (BiFunction<Object, Object, Object>) constructorSite.getTarget().invoke();
+        CallSite setterSite = LambdaMetafactory.metafactory(lookup, "accept", MethodType.methodType(BiConsumer.class),
+                MethodType.methodType(void.class, Object.class, Object.class), setterTarget, setterTarget.type());
+        setterLambda = (BiConsumer<Object, Object>) setterSite.getTarget().invoke();
+    }
+
+    @Benchmark
+    public Object prototype(Contexts contexts) {
+        return contexts.context.getBean(Service.class);
+    }
+
+    //The lower bound for the prototype: the same instance wired by hand.
+    @Benchmark
+    public Object plainNew() {
+        Service instance = new Service(dependency, dependency);
+        instance.field = dependency;
+        instance.setSetter(dependency);
+        return instance;
+    }
+
+    @Benchmark
+    public Object reflection() throws Exception {
+        Object instance = constructor.newInstance(constructorArguments);
+        setter.invoke(instance, setterArguments);
+        return instance;
+    }
+
+    @Benchmark
+    public Object methodHandles() throws Throwable {
+        Object instance = (Object) constructorHandle.invokeExact(constructorArguments);
+        setterHandle.invokeExact(instance, setterArguments);
+        return instance;
+    }
+
+    @Benchmark
+    public Object fieldReflection() throws Exception {
+        field.set(service, dependency);
+        return service;
+    }
+
+    @Benchmark
+    public Object fieldMethodHandle() throws Throwable {
+        fieldHandle.invokeExact((Object) service, (Object) dependency);
+        return service;
+    }
+
+    @Benchmark
+    public Object lambdaMetafactory() {
+        Object instance = constructorLambda.apply(constructorArguments[0], constructorArguments[1]);
+        setterLambda.accept(instance, setterArguments[0]);
+        return instance;
+    }
+}
@@ -0,0 +1,59 @@
+package com.sample.benchmarks;
+
+import com.sample.ApplicationContext;
+import com.sample.SimpleApplicationContext;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * getBean throughput for a concrete class and for an interface, on one thread and under contention.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LookupBenchmark {
+
+    public interface Service {
+    }
+
+    public static class Repository {
+    }
+
+    public static class ServiceImpl implements Service {
+        public ServiceImpl(Repository repository) {
+        }
+    }
+
+    private ApplicationContext context;
+
+    @Setup
+    public void setUp() {
+        context = new SimpleApplicationContext(new Class[]{Repository.class, ServiceImpl.class}, new Object[]{});
+    }
+
+    @Benchmark
+    public Object byClass() {
+        return context.getBean(Repository.class);
+    }
+
+    @Benchmark
+    public Object byInterface() {
+        return context.getBean(Service.class);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public Object byClassContended() {
+        return context.getBean(Repository.class);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public Object byInterfaceContended() {
+        return context.getBean(Service.class);
+    }
+}
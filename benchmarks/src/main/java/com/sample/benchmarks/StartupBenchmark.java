@@ -0,0 +1,57 @@
+package com.sample.benchmarks;
+
+import com.sample.ContextConfiguration;
+import com.sample.SimpleApplicationContext;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Context construction over synthetic graphs of different size and shape.
+ * Bean metadata is cached per class, so after the first invocation this measures repeated context creation
+ * over the same classes.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class StartupBenchmark {
+
+    @Param({"10", "100", "1000", "10000"})
+    int beans;
+
+    //depth:fanOut
+    @Param({"2:1", "5:3", "20:8"})
+    String shape;
+
+    private Class[] classes;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        String[] depthAndFanOut = shape.split(":");
+        int depth = Math.min(beans, Integer.parseInt(depthAndFanOut[0]));
+        classes = SyntheticBeans.layeredGraph(beans, depth, Integer.parseInt(depthAndFanOut[1]));
+    }
+
+    @Benchmark
+    public SimpleApplicationContext sequential() {
+        return new SimpleApplicationContext(classes, new Object[]{});
+    }
+
+    @Benchmark
+    public SimpleApplicationContext generatedInjectors() {
+        return new SimpleApplicationContext(classes, new Object[]{}, new ContextConfiguration().setGeneratedInjectors(true));
+    }
+
+    @Benchmark
+    public SimpleApplicationContext parallel() {
+        return new SimpleApplicationContext(classes, new Object[]{}, new ContextConfiguration().setParallelStartup(true));
+    }
+
+    @Benchmark
+    public SimpleApplicationContext lazy() {
+        return new SimpleApplicationContext(classes, new Object[]{}, new ContextConfiguration().setLazyInit(true));
+    }
+}
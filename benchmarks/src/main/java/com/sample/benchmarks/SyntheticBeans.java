@@ -0,0 +1,109 @@
+package com.sample.benchmarks;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Generates, compiles and loads bean classes for benchmarks that need more beans than could be written by hand.
+ * Every graph gets its own package and class loader.
+ */
+final class SyntheticBeans {
+
+    private SyntheticBeans() {
+    }
+
+    /**
+     * A graph of <code>beans</code> classes in <code>depth</code> layers. Every bean above the first layer gets
+     * <code>fanOut</code> beans of the layer below through its constructor.
+     */
+    static Class[] layeredGraph(int beans, int depth, int fanOut) {
+        String packageName = "synthetic.graph" + beans + "x" + depth + "x" + fanOut;
+        int width = Math.max(1, beans / depth);
+        List<String> classNames = new ArrayList<String>();
+        List<String> sources = new ArrayList<String>();
+        for (int i = 0; i < beans; i++) {
+            int layer = i / width;
+            StringBuilder parameters = new StringBuilder();
+            if (layer > 0) {
+                int previousLayerStart = (layer - 1) * width;
+                for (int j = 0; j < fanOut; j++) {
+                    int dependency = previousLayerStart + (i * 7 + j * 13) % width;
+                    if (parameters.indexOf("B" + dependency + " ") >= 0) {
+                        continue;
+                    }
+                    if (parameters.length() > 0) {
+                        parameters.append(", ");
+                    }
+                    parameters.append("B").append(dependency).append(" d").append(j);
+                }
+            }
+            classNames.add("B" + i);
+            sources.add("public class B" + i + " { public B" + i + "(" + parameters + ") {} }");
+        }
+        return compile(packageName, classNames, sources);
+    }
+
+    /**
+     * <code>plugins</code> implementations of a Plugin interface and <code>consumers</code> beans that each get all of
+     * them as a List.
+     */
+    static Class[] pluginRegistry(int plugins, int consumers) {
+        String packageName = "synthetic.plugins" + plugins + "x" + consumers;
+        List<String> classNames = new ArrayList<String>();
+        List<String> sources = new ArrayList<String>();
+        classNames.add("Plugin");
+        sources.add("public interface Plugin {}");
+        for (int i = 0; i < plugins; i++) {
+            classNames.add("P" + i);
+            sources.add("public class P" + i + " implements Plugin {}");
+        }
+        for (int i = 0; i < consumers; i++) {
+            classNames.add("C" + i);
+            sources.add("public class C" + i + " { public C" + i + "(java.util.List<Plugin> plugins) {} }");
+        }
+        Class[] classes = compile(packageName, classNames, sources);
+        Class[] beans = new Class[classes.length - 1];
+        System.arraycopy(classes, 1, beans, 0, beans.length);
+        return beans;
+    }
+
+    private static Class[] compile(String packageName, List<String> classNames, List<String> sources) {
+        try {
+            File sourceDir = Files.createTempDirectory("synthetic-sources").toFile();
+            File classDir = Files.createTempDirectory("synthetic-classes").toFile();
+            List<String> arguments = new ArrayList<String>();
+            arguments.add("-d");
+            arguments.add(classDir.getPath());
+            arguments.add("-classpath");
+            arguments.add(System.getProperty("java.class.path"));
+            for (int i = 0; i < classNames.size(); i++) {
+                File source = new File(sourceDir, classNames.get(i) + ".java");
+                String content = "package " + packageName + ";\n" + sources.get(i) + "\n";
+                Files.write(source.toPath(), content.getBytes(StandardCharsets.UTF_8));
+                arguments.add(source.getPath());
+            }
+            JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+            if (compiler.run(null, null, null, arguments.toArray(new String[]{})) != 0) {
+                throw new IllegalStateException("Unable to compile synthetic beans of " + packageName);
+            }
+            ClassLoader classLoader = new URLClassLoader(new URL[]{classDir.toURI().toURL()}, SyntheticBeans.class.getClassLoader());
+            Class[] classes = new Class[classNames.size()];
+            for (int i = 0; i < classes.length; i++) {
+                classes[i] = classLoader.loadClass(packageName + "." + classNames.get(i));
+            }
+            return classes;
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        } catch (ClassNotFoundException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
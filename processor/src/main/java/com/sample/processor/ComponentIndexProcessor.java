@@ -0,0 +1,113 @@
+package com.sample.processor;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.Filer;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.util.Elements;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Writes the {@link com.sample.ComponentScanner#INDEX} of the compiled classes: the binary names of all classes
+ * annotated with {@link com.sample.Component}. On an incremental compilation the entries of the previous index are
+ * kept, unless the class is compiled again without the annotation.
+ */
+@SupportedAnnotationTypes(ComponentIndexProcessor.COMPONENT)
+public class ComponentIndexProcessor extends AbstractProcessor {
+
+    static final String COMPONENT = "com.sample.Component";
+    //Same as ComponentScanner.INDEX, which is not referenced so the processor does not load the core classes.
+    static final String INDEX = "META-INF/com.sample.components";
+
+    private final Set<String> components = new TreeSet<String>();
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        Elements elements = processingEnv.getElementUtils();
+        if (roundEnv.processingOver()){
+            if (!components.isEmpty()){
+                writeIndex(elements);
+            }
+            return false;
+        }
+        TypeElement annotation = elements.getTypeElement(COMPONENT);
+        if (annotation == null){
+            return false;
+        }
+        for (Element element : roundEnv.getElementsAnnotatedWith(annotation)){
+            if (element.getKind() != ElementKind.CLASS){
+                processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "Only classes can be components", element);
+                continue;
+            }
+            components.add(elements.getBinaryName((TypeElement) element).toString());
+        }
+        return true;
+    }
+
+    private void writeIndex(Elements elements) {
+        Filer filer = processingEnv.getFiler();
+        Set<String> index = new TreeSet<String>(components);
+        try {
+            FileObject previous = filer.getResource(StandardLocation.CLASS_OUTPUT, "", INDEX);
+            BufferedReader reader = new BufferedReader(previous.openReader(true));
+            try {
+                for (String line = reader.readLine(); line != null; line = reader.readLine()){
+                    line = line.trim();
+                    if (!line.isEmpty() && isComponent(elements, line)){
+                        index.add(line);
+                    }
+                }
+            } finally {
+                reader.close();
+            }
+        } catch (IOException e) {
+            //no previous index.
+        }
+        try {
+            FileObject file = filer.createResource(StandardLocation.CLASS_OUTPUT, "", INDEX);
+            PrintWriter writer = new PrintWriter(file.openWriter());
+            try {
+                for (String component : index){
+                    writer.println(component);
+                }
+            } finally {
+                writer.close();
+            }
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "Unable to write "+INDEX+": "+e.getMessage());
+        }
+    }
+
+    /**
+     * Classes of the previous index that are not visible to this compilation are kept, the scanner drops deleted ones.
+     */
+    private boolean isComponent(Elements elements, String binaryName) {
+        TypeElement type = elements.getTypeElement(binaryName.replace('$', '.'));
+        if (type == null || components.contains(binaryName)){
+            return true;
+        }
+        for (AnnotationMirror annotation : type.getAnnotationMirrors()){
+            if (((TypeElement) annotation.getAnnotationType().asElement()).getQualifiedName().contentEquals(COMPONENT)){
+                return true;
+            }
+        }
+        return false;
+    }
+}
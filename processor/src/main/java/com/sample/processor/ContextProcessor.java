@@ -0,0 +1,631 @@
+package com.sample.processor;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.*;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.util.*;
+
+/**
+ * Generates the {@link com.sample.ApplicationContext} of every type annotated with {@link com.sample.GeneratedContext}.
+ * The analysis follows the rules of {@link com.sample.SimpleApplicationContext}: constructor selection, @Inject
+ * fields and setters of the bean class, List injection in {@link com.sample.Order} order, {@link com.sample.BeanFactory}
+ * products and the lifecycle methods of {@link com.sample.PostConstruct} and {@link com.sample.PreDestroy}. Async init methods run inline, and
+ * the beans are destroyed one at a time in reverse creation order. All beans are singletons, so scoped beans fail the
+ * compilation like the other features that need the runtime context, and so do Set, Map and array injection points.
+ * Instead of failing on startup, missing, ambiguous and cyclic dependencies fail the compilation.
+ */
+@SupportedAnnotationTypes(ContextProcessor.GENERATED_CONTEXT)
+public class ContextProcessor extends AbstractProcessor {
+
+    static final String GENERATED_CONTEXT = "com.sample.GeneratedContext";
+    private static final String BEAN_FACTORY = "com.sample.BeanFactory";
+    private static final String INJECT = "javax.inject.Inject";
+    private static final String QUALIFIER = "javax.inject.Qualifier";
+    private static final String SCOPE = "javax.inject.Scope";
+    private static final String SINGLETON = "javax.inject.Singleton";
+    private static final String POST_CONSTRUCT = "com.sample.PostConstruct";
+    private static final String PRE_DESTROY = "com.sample.PreDestroy";
+    private static final String VALUE = "com.sample.Value";
+    private static final String EVENT_LISTENER = "com.sample.EventListener";
+    private static final String ORDER = "com.sample.Order";
+
+    static class ContextException extends Exception {
+        final Element element;
+
+        ContextException(String msg, Element element) {
+            super(msg);
+            this.element = element;
+        }
+    }
+
+    /**
+     * A bean of the generated context. Factory products have a factory and no constructor.
+     */
+    static class Bean {
+        int index;
+        TypeElement type;
+        Bean factory;
+        ExecutableElement constructor;
+        List<Dependency> constructorDependencies = new ArrayList<Dependency>();
+        List<VariableElement> fields = new ArrayList<VariableElement>();
+        List<Dependency> fieldDependencies = new ArrayList<Dependency>();
+        List<ExecutableElement> setters = new ArrayList<ExecutableElement>();
+        List<List<Dependency>> setterDependencies = new ArrayList<List<Dependency>>();
+        List<ExecutableElement> initMethods = new ArrayList<ExecutableElement>();
+        List<ExecutableElement> destroyMethods = new ArrayList<ExecutableElement>();
+        List<TypeElement> allTypes = new ArrayList<TypeElement>();
+    }
+
+    /**
+     * A resolved injection point: either a single bean or all beans of a List, sorted by their @Order.
+     */
+    static class Dependency {
+        Bean bean;
+        List<Bean> beans;
+    }
+
+    private Elements elements;
+    private Types types;
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        elements = processingEnv.getElementUtils();
+        types = processingEnv.getTypeUtils();
+        TypeElement annotation = elements.getTypeElement(GENERATED_CONTEXT);
+        if (annotation == null){
+            return false;
+        }
+        for (Element element : roundEnv.getElementsAnnotatedWith(annotation)){
+            TypeElement contextType = (TypeElement) element;
+            try {
+                List<Bean> beans = analyze(contextType);
+                writeContext(contextType, beans);
+            } catch (ContextException e) {
+                processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, e.getMessage(),
+                        e.element != null ? e.element : contextType);
+            } catch (IOException e) {
+                processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                        "Unable to write generated context: "+e.getMessage(), contextType);
+            }
+        }
+        return true;
+    }
+
+    private List<Bean> analyze(TypeElement contextType) throws ContextException {
+        PackageElement contextPackage = elements.getPackageOf(contextType);
+        List<Bean> beans = new ArrayList<Bean>();
+        for (TypeElement beanType : getBeanTypes(contextType)){
+            Bean bean = new Bean();
+            bean.type = beanType;
+            beans.add(bean);
+        }
+        for (Bean bean : beans.toArray(new Bean[]{})){
+            TypeElement productType = getFactoryProductType(bean.type);
+            if (productType != null){
+                Bean product = new Bean();
+                product.type = productType;
+                product.factory = bean;
+                beans.add(product);
+            }
+        }
+        Map<String, List<Bean>> beansByType = new HashMap<String, List<Bean>>();
+        for (Bean bean : beans){
+            checkAccessible(bean.type, contextPackage, bean.type);
+            collectTypes(bean.allTypes, bean.type);
+            for (TypeElement type : bean.allTypes){
+                String typeName = type.getQualifiedName().toString();
+                List<Bean> beansForType = beansByType.get(typeName);
+                if (beansForType == null){
+                    beansForType = new ArrayList<Bean>();
+                    beansByType.put(typeName, beansForType);
+                }
+                beansForType.add(bean);
+            }
+        }
+        for (Bean bean : beans){
+            //Products are scoped by the createInstance() method of their factory, like in the runtime context.
+            Element scoped = bean.factory == null ? bean.type : findProductMethod(bean.factory.type);
+            AnnotationMirror scope = scoped != null ? findScope(scoped) : null;
+            if (scope != null){
+                throw new ContextException("Scoped beans are not supported by generated contexts: "+bean.type+" is @"+
+                        scope.getAnnotationType().asElement().getSimpleName(), scoped);
+            }
+            if (bean.factory == null){
+                if (bean.type.getKind() != ElementKind.CLASS || bean.type.getModifiers().contains(Modifier.ABSTRACT)){
+                    throw new ContextException("Cannot instantiate bean: "+bean.type+". Beans must be concrete classes", bean.type);
+                }
+                bean.constructor = findConstructorToUse(bean.type);
+                if (bean.constructor != null){
+                    checkAccessible(bean.constructor, contextPackage, bean.type);
+                    for (VariableElement parameter : bean.constructor.getParameters()){
+                        bean.constructorDependencies.add(resolveDependency(parameter.asType(), beansByType, parameter));
+                    }
+                }
+            }
+            for (VariableElement field : ElementFilter.fieldsIn(bean.type.getEnclosedElements())){
+                if (hasAnnotation(field, VALUE)){
+                    throw new ContextException("@Value fields are not supported by generated contexts: "+field+" of "+bean.type, field);
+                }
+                if (hasInject(field)){
+                    checkAccessible(field, contextPackage, field);
+                    if (field.getModifiers().contains(Modifier.FINAL)){
+                        throw new ContextException("@Inject field "+field+" of "+bean.type+" can't be final", field);
+                    }
+                    bean.fields.add(field);
+                    bean.fieldDependencies.add(resolveDependency(field.asType(), beansByType, field));
+                }
+            }
+            for (ExecutableElement method : ElementFilter.methodsIn(bean.type.getEnclosedElements())){
+                if (hasAnnotation(method, EVENT_LISTENER)){
+                    throw new ContextException("@EventListener methods are not supported by generated contexts: "+method+" of "+bean.type, method);
+                }
+                if (hasInject(method)){
+                    checkAccessible(method, contextPackage, method);
+                    List<Dependency> dependencies = new ArrayList<Dependency>();
+                    for (VariableElement parameter : method.getParameters()){
+                        dependencies.add(resolveDependency(parameter.asType(), beansByType, parameter));
+                    }
+                    bean.setters.add(method);
+                    bean.setterDependencies.add(dependencies);
+                }
+                boolean init = hasAnnotation(method, POST_CONSTRUCT);
+                boolean destroy = hasAnnotation(method, PRE_DESTROY);
+                if (init || destroy){
+                    checkAccessible(method, contextPackage, method);
+                    if (!method.getParameters().isEmpty()){
+                        throw new ContextException("Lifecycle method "+method+" of "+bean.type+" can't have parameters", method);
+                    }
+                }
+                if (init){
+                    bean.initMethods.add(method);
+                }
+                if (destroy){
+                    bean.destroyMethods.add(method);
+                }
+            }
+        }
+        return sortByDependencies(beans);
+    }
+
+    private List<TypeElement> getBeanTypes(TypeElement contextType) throws ContextException {
+        List<TypeElement> beanTypes = new ArrayList<TypeElement>();
+        for (AnnotationMirror mirror : contextType.getAnnotationMirrors()){
+            if (!((TypeElement) mirror.getAnnotationType().asElement()).getQualifiedName().contentEquals(GENERATED_CONTEXT)){
+                continue;
+            }
+            for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry : mirror.getElementValues().entrySet()){
+                if (!entry.getKey().getSimpleName().contentEquals("value")){
+                    continue;
+                }
+                for (Object value : (List) entry.getValue().getValue()){
+                    TypeMirror beanType = (TypeMirror) ((AnnotationValue) value).getValue();
+                    if (beanType.getKind() != TypeKind.DECLARED){
+                        throw new ContextException("Not a bean class: "+beanType, contextType);
+                    }
+                    beanTypes.add((TypeElement) types.asElement(beanType));
+                }
+            }
+        }
+        return beanTypes;
+    }
+
+    private TypeElement getFactoryProductType(TypeElement beanType) throws ContextException {
+        TypeElement beanFactory = elements.getTypeElement(BEAN_FACTORY);
+        if (!types.isAssignable(types.erasure(beanType.asType()), types.erasure(beanFactory.asType()))){
+            return null;
+        }
+        Deque<TypeMirror> supertypes = new ArrayDeque<TypeMirror>();
+        supertypes.add(beanType.asType());
+        while (!supertypes.isEmpty()){
+            DeclaredType type = (DeclaredType) supertypes.poll();
+            if (type.asElement().equals(beanFactory)){
+                if (type.getTypeArguments().size() != 1 || type.getTypeArguments().get(0).getKind() != TypeKind.DECLARED){
+                    throw new ContextException("Cannot find the product type of bean factory: "+beanType, beanType);
+                }
+                return (TypeElement) types.asElement(type.getTypeArguments().get(0));
+            }
+            for (TypeMirror supertype : types.directSupertypes(type)){
+                if (supertype.getKind() == TypeKind.DECLARED){
+                    supertypes.add(supertype);
+                }
+            }
+        }
+        throw new ContextException("Cannot find the product type of bean factory: "+beanType, beanType);
+    }
+
+    private static ExecutableElement findProductMethod(TypeElement factoryType) {
+        for (ExecutableElement method : ElementFilter.methodsIn(factoryType.getEnclosedElements())){
+            if (method.getSimpleName().contentEquals("createInstance") && method.getParameters().isEmpty()){
+                return method;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return the annotation of the element that is annotated with @Scope, other than @Singleton, or null.
+     */
+    private AnnotationMirror findScope(Element element) {
+        for (AnnotationMirror mirror : element.getAnnotationMirrors()){
+            TypeElement annotationType = (TypeElement) mirror.getAnnotationType().asElement();
+            if (!annotationType.getQualifiedName().contentEquals(SINGLETON) && hasAnnotation(annotationType, SCOPE)){
+                return mirror;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Same flattening as the runtime context: the type, its interfaces including the super interfaces of interfaces,
+     * and the same for every superclass but Object, each type once.
+     */
+    private void collectTypes(List<TypeElement> allTypes, TypeElement beanType) {
+        if (allTypes.contains(beanType)){
+            return;
+        }
+        allTypes.add(beanType);
+        for (TypeMirror interf : beanType.getInterfaces()){
+            collectTypes(allTypes, (TypeElement) types.asElement(interf));
+        }
+        TypeMirror superclass = beanType.getSuperclass();
+        if (superclass.getKind() == TypeKind.DECLARED){
+            TypeElement superElement = (TypeElement) types.asElement(superclass);
+            if (!superElement.getQualifiedName().contentEquals(Object.class.getName())){
+                collectTypes(allTypes, superElement);
+            }
+        }
+    }
+
+    private ExecutableElement findConstructorToUse(TypeElement beanType) throws ContextException {
+        ExecutableElement constructorToUse = null;
+        boolean hasMoreThanOneConstructorsWithoutInject = false;
+        for (ExecutableElement constructor : ElementFilter.constructorsIn(beanType.getEnclosedElements())){
+            if (!constructor.getModifiers().contains(Modifier.PUBLIC)){
+                continue;
+            }
+            if (constructorToUse == null){
+                constructorToUse = constructor;
+            }else{
+                if (!hasInject(constructorToUse)){
+                    if (hasInject(constructor)){
+                        constructorToUse = constructor;
+                    }else{
+                        hasMoreThanOneConstructorsWithoutInject = true;
+                    }
+                }else if (hasInject(constructor)){
+                    throw new ContextException("Found more than one constructors with @Inject in class:"+beanType+"." +
+                            " Cannot create instance of this bean", constructor);
+                }
+            }
+        }
+        if (constructorToUse != null && !hasInject(constructorToUse) && hasMoreThanOneConstructorsWithoutInject){
+            throw new ContextException("Cannot instantiate bean of type: "+beanType+", because a suitable constructor wasn't found. " +
+                    "There should be one of the following: no constructor at all, only one constructor, only one constructor annotated with @Inject", beanType);
+        }
+        if (constructorToUse == null){
+            for (ExecutableElement constructor : ElementFilter.constructorsIn(beanType.getEnclosedElements())){
+                if (constructor.getParameters().isEmpty()){
+                    return constructor;
+                }
+            }
+            throw new ContextException("Cannot instantiate bean: "+beanType+". The bean has no public or no-arg constructor", beanType);
+        }
+        return constructorToUse;
+    }
+
+    private Dependency resolveDependency(TypeMirror type, Map<String, List<Bean>> beansByType, Element injectionPoint) throws ContextException {
+        for (AnnotationMirror mirror : injectionPoint.getAnnotationMirrors()){
+            for (AnnotationMirror metaAnnotation : mirror.getAnnotationType().asElement().getAnnotationMirrors()){
+                if (((TypeElement) metaAnnotation.getAnnotationType().asElement()).getQualifiedName().contentEquals(QUALIFIER)){
+                    throw new ContextException("Qualifiers are not supported by generated contexts: "+mirror, injectionPoint);
+                }
+            }
+        }
+        if (type.getKind() == TypeKind.ARRAY){
+            throw new ContextException("Array injection is not supported by generated contexts: "+type, injectionPoint);
+        }
+        if (type.getKind() != TypeKind.DECLARED){
+            throw new ContextException("Unable to resolve type: "+type+". No bean definition that has this type", injectionPoint);
+        }
+        DeclaredType declaredType = (DeclaredType) type;
+        TypeElement typeElement = (TypeElement) declaredType.asElement();
+        Dependency dependency = new Dependency();
+        Name typeName = typeElement.getQualifiedName();
+        if (typeName.contentEquals(Set.class.getName()) || typeName.contentEquals(Map.class.getName())){
+            throw new ContextException(typeElement.getSimpleName()+" injection is not supported by generated contexts: "+type, injectionPoint);
+        }
+        if (!declaredType.getTypeArguments().isEmpty()){
+            if (!typeElement.getQualifiedName().contentEquals(List.class.getName())){
+                throw new ContextException("Not supported parametrized type: "+type+". The only type supported is: "+List.class, injectionPoint);
+            }
+            TypeMirror elementType = declaredType.getTypeArguments().get(0);
+            if (elementType.getKind() != TypeKind.DECLARED){
+                throw new ContextException("Not supported parametrized type: "+type+". The only type supported is: "+List.class, injectionPoint);
+            }
+            List<Bean> beansForType = beansByType.get(((TypeElement) types.asElement(elementType)).getQualifiedName().toString());
+            dependency.beans = beansForType != null ? new ArrayList<Bean>(beansForType) : new ArrayList<Bean>();
+            //Stable, so beans of the same order stay in registration order like in the runtime context.
+            Collections.sort(dependency.beans, new Comparator<Bean>() {
+                @Override
+                public int compare(Bean bean1, Bean bean2) {
+                    return Integer.compare(getOrder(bean1), getOrder(bean2));
+                }
+            });
+            return dependency;
+        }
+        List<Bean> beansForType = beansByType.get(typeElement.getQualifiedName().toString());
+        if (beansForType == null){
+            throw new ContextException("Unable to resolve type: "+type+". No bean definition that has this type", injectionPoint);
+        }
+        if (beansForType.size() > 1){
+            throw new ContextException("More than one option for bean of type: "+type, injectionPoint);
+        }
+        dependency.bean = beansForType.get(0);
+        return dependency;
+    }
+
+    /**
+     * @return the @Order of the bean, of the factory for a product, or Integer.MAX_VALUE without one.
+     */
+    private static int getOrder(Bean bean) {
+        TypeElement annotated = bean.factory != null ? bean.factory.type : bean.type;
+        for (AnnotationMirror mirror : annotated.getAnnotationMirrors()){
+            if (((TypeElement) mirror.getAnnotationType().asElement()).getQualifiedName().contentEquals(ORDER)){
+                for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry : mirror.getElementValues().entrySet()){
+                    if (entry.getKey().getSimpleName().contentEquals("value")){
+                        return (Integer) entry.getValue().getValue();
+                    }
+                }
+            }
+        }
+        return Integer.MAX_VALUE;
+    }
+
+    private List<Bean> sortByDependencies(List<Bean> beans) throws ContextException {
+        List<Bean> sorted = new ArrayList<Bean>();
+        Map<Bean, Boolean> visited = new IdentityHashMap<Bean, Boolean>();
+        for (Bean bean : beans){
+            visit(bean, visited, sorted, new ArrayList<Bean>());
+        }
+        for (int i = 0; i < sorted.size(); i++){
+            sorted.get(i).index = i;
+        }
+        return sorted;
+    }
+
+    private void visit(Bean bean, Map<Bean, Boolean> visited, List<Bean> sorted, List<Bean> path) throws ContextException {
+        Boolean done = visited.get(bean);
+        if (done != null){
+            if (!done){
+                StringBuilder cycle = new StringBuilder();
+                for (Bean member : path.subList(path.indexOf(bean), path.size())){
+                    cycle.append(member.type.getQualifiedName()).append(" -> ");
+                }
+                cycle.append(bean.type.getQualifiedName());
+                throw new ContextException("Cyclic dependency found starting with bean: "+bean.type.getQualifiedName()+" ("+cycle+")", bean.type);
+            }
+            return;
+        }
+        visited.put(bean, false);
+        path.add(bean);
+        if (bean.factory != null){
+            visit(bean.factory, visited, sorted, path);
+        }
+        List<Dependency> dependencies = new ArrayList<Dependency>(bean.constructorDependencies);
+        dependencies.addAll(bean.fieldDependencies);
+        for (List<Dependency> setterDependencies : bean.setterDependencies){
+            dependencies.addAll(setterDependencies);
+        }
+        for (Dependency dependency : dependencies){
+            if (dependency.bean != null){
+                visit(dependency.bean, visited, sorted, path);
+            }else{
+                for (Bean member : dependency.beans){
+                    visit(member, visited, sorted, path);
+                }
+            }
+        }
+        path.remove(path.size() - 1);
+        visited.put(bean, true);
+        sorted.add(bean);
+    }
+
+    private boolean hasInject(Element element) {
+        return hasAnnotation(element, INJECT);
+    }
+
+    private boolean hasAnnotation(Element element, String annotationName) {
+        for (AnnotationMirror mirror : element.getAnnotationMirrors()){
+            if (((TypeElement) mirror.getAnnotationType().asElement()).getQualifiedName().contentEquals(annotationName)){
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void checkAccessible(Element element, PackageElement contextPackage, Element reportOn) throws ContextException {
+        if (!isAccessible(element, contextPackage)){
+            throw new ContextException(element+" is not accessible from the generated context in package "+contextPackage+
+                    ". Generated contexts can't use reflection", reportOn);
+        }
+    }
+
+    private boolean isAccessible(Element element, PackageElement contextPackage) {
+        for (Element current = element; current.getKind() != ElementKind.PACKAGE; current = current.getEnclosingElement()){
+            Set<Modifier> modifiers = current.getModifiers();
+            if (modifiers.contains(Modifier.PRIVATE)){
+                return false;
+            }
+            if (!modifiers.contains(Modifier.PUBLIC) && !elements.getPackageOf(current).equals(contextPackage)){
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void writeContext(TypeElement contextType, List<Bean> beans) throws IOException {
+        PackageElement contextPackage = elements.getPackageOf(contextType);
+        String packageName = contextPackage.isUnnamed() ? "" : contextPackage.getQualifiedName().toString();
+        String name = contextType.getAnnotation(com.sample.GeneratedContext.class).name();
+        if (name.isEmpty()){
+            name = contextType.getSimpleName()+"Context";
+        }
+        String qualifiedName = packageName.isEmpty() ? name : packageName+"."+name;
+        JavaFileObject file = processingEnv.getFiler().createSourceFile(qualifiedName, contextType);
+        Writer writer = file.openWriter();
+        PrintWriter out = new PrintWriter(writer);
+        try {
+            if (!packageName.isEmpty()){
+                out.println("package "+packageName+";");
+                out.println();
+            }
+            out.println("/**");
+            out.println(" * Generated by "+ContextProcessor.class.getName()+" from "+contextType.getQualifiedName()+". Do not edit.");
+            out.println(" */");
+            out.println("@SuppressWarnings({\"unchecked\", \"rawtypes\"})");
+            out.println("public final class "+name+" implements com.sample.ApplicationContext {");
+            out.println();
+            out.println("    private static final java.util.Map<Class<?>, Integer> INDEX = new java.util.IdentityHashMap<Class<?>, Integer>();");
+            out.println();
+            out.println("    static {");
+            Map<String, Integer> indexByType = new LinkedHashMap<String, Integer>();
+            Map<String, TypeElement> typesByName = new HashMap<String, TypeElement>();
+            for (Bean bean : beans){
+                for (TypeElement type : bean.allTypes){
+                    String typeName = type.getQualifiedName().toString();
+                    Integer index = indexByType.get(typeName);
+                    indexByType.put(typeName, index == null ? bean.index : -1);
+                    typesByName.put(typeName, type);
+                }
+            }
+            for (Map.Entry<String, Integer> entry : indexByType.entrySet()){
+                if (isAccessible(typesByName.get(entry.getKey()), contextPackage)){
+                    out.println("        INDEX.put("+entry.getKey()+".class, "+entry.getValue()+");");
+                }
+            }
+            out.println("    }");
+            out.println();
+            out.println("    private final Object[] beans = new Object["+beans.size()+"];");
+            out.println("    private boolean closed = false;");
+            out.println();
+            out.println("    public "+name+"() {");
+            for (Bean bean : beans){
+                String variable = "bean"+bean.index;
+                String typeName = typeName(bean.type);
+                if (bean.factory != null){
+                    out.println("        "+typeName+" "+variable+" = ("+typeName+") bean"+bean.factory.index+".createInstance();");
+                }else{
+                    out.println("        "+typeName+" "+variable+" = new "+typeName+"("+arguments(bean.constructorDependencies)+");");
+                }
+                for (int i = 0; i < bean.fields.size(); i++){
+                    out.println("        "+variable+"."+bean.fields.get(i).getSimpleName()+" = "+argument(bean.fieldDependencies.get(i))+";");
+                }
+                for (int i = 0; i < bean.setters.size(); i++){
+                    out.println("        "+variable+"."+bean.setters.get(i).getSimpleName()+"("+arguments(bean.setterDependencies.get(i))+");");
+                }
+                for (ExecutableElement method : bean.initMethods){
+                    if (method.getThrownTypes().isEmpty()){
+                        out.println("        "+variable+"."+method.getSimpleName()+"();");
+                    }else{
+                        out.println("        try {");
+                        out.println("            "+variable+"."+method.getSimpleName()+"();");
+                        out.println("        } catch (Exception e) {");
+                        out.println("            throw new com.sample.SimpleApplicationContext.BeanInstatiationException(e);");
+                        out.println("        }");
+                    }
+                }
+                out.println("        beans["+bean.index+"] = "+variable+";");
+            }
+            out.println("    }");
+            out.println();
+            out.println("    @Override");
+            out.println("    public <T> T getBean(Class<T> type) {");
+            out.println("        Integer index = INDEX.get(type);");
+            out.println("        if (index == null) {");
+            out.println("            return null;");
+            out.println("        }");
+            out.println("        if (index < 0) {");
+            out.println("            throw new com.sample.SimpleApplicationContext.AmbigiousBeanDefException(\"More than one option for bean of type: \" + type.getName());");
+            out.println("        }");
+            out.println("        return type.cast(beans[index]);");
+            out.println("    }");
+            out.println();
+            out.println("    @Override");
+            out.println("    public synchronized void close() {");
+            out.println("        if (closed) {");
+            out.println("            return;");
+            out.println("        }");
+            out.println("        closed = true;");
+            out.println("        java.util.List<Throwable> failures = new java.util.ArrayList<Throwable>();");
+            for (int index = beans.size() - 1; index >= 0; index--){
+                Bean bean = beans.get(index);
+                for (ExecutableElement method : bean.destroyMethods){
+                    out.println("        try {");
+                    out.println("            (("+typeName(bean.type)+") beans["+bean.index+"])."+method.getSimpleName()+"();");
+                    out.println("        } catch (Exception e) {");
+                    out.println("            failures.add(e);");
+                    out.println("        }");
+                }
+            }
+            out.println("        if (!failures.isEmpty()) {");
+            out.println("            com.sample.SimpleApplicationContext.BeanDestructionException exception =");
+            out.println("                    new com.sample.SimpleApplicationContext.BeanDestructionException(\"Failed to destroy \" + failures.size() + \" beans\");");
+            out.println("            for (Throwable failure : failures) {");
+            out.println("                exception.addSuppressed(failure);");
+            out.println("            }");
+            out.println("            throw exception;");
+            out.println("        }");
+            out.println("    }");
+            out.println("}");
+        } finally {
+            out.close();
+        }
+    }
+
+    private String typeName(TypeElement type) {
+        return types.erasure(type.asType()).toString();
+    }
+
+    private String arguments(List<Dependency> dependencies) {
+        StringBuilder arguments = new StringBuilder();
+        for (Dependency dependency : dependencies){
+            if (arguments.length() > 0){
+                arguments.append(", ");
+            }
+            arguments.append(argument(dependency));
+        }
+        return arguments.toString();
+    }
+
+    private String argument(Dependency dependency) {
+        if (dependency.bean != null){
+            return "bean"+dependency.bean.index;
+        }
+        StringBuilder list = new StringBuilder("(java.util.List) new java.util.ArrayList<Object>(java.util.Arrays.<Object>asList(");
+        for (int i = 0; i < dependency.beans.size(); i++){
+            if (i > 0){
+                list.append(", ");
+            }
+            list.append("bean").append(dependency.beans.get(i).index);
+        }
+        return list.append("))").toString();
+    }
+}
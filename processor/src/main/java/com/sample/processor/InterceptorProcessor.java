@@ -0,0 +1,359 @@
+package com.sample.processor;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.*;
+import javax.lang.model.type.PrimitiveType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Generates the subclass through which {@link com.sample.SimpleApplicationContext} intercepts bean methods, for every
+ * class with {@link com.sample.InterceptorBinding} annotations on itself or on its methods. The subclass only
+ * overrides the bound methods. An overridden method without interceptors in the context calls the bean method after
+ * a null check, and an intercepted call creates one invocation that keeps the arguments in typed fields. The invocation
+ * of a generic method has the type parameters of the method, so it calls the bean method with the exact types.
+ */
+@SupportedAnnotationTypes("*")
+public class InterceptorProcessor extends AbstractProcessor {
+
+    static final String INTERCEPTOR_BINDING = "com.sample.InterceptorBinding";
+    //Same as InterceptedType.SUFFIX, which is not referenced so the processor does not load the core classes.
+    static final String SUFFIX = "$$Intercepted";
+    private static final String INTERCEPTOR = "com.sample.MethodInterceptor";
+
+    private Elements elements;
+    private Types types;
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        elements = processingEnv.getElementUtils();
+        types = processingEnv.getTypeUtils();
+        if (elements.getTypeElement(INTERCEPTOR_BINDING) == null){
+            return false;
+        }
+        for (TypeElement type : ElementFilter.typesIn(roundEnv.getRootElements())){
+            visit(type);
+        }
+        return false;
+    }
+
+    private void visit(TypeElement type) {
+        for (TypeElement nested : ElementFilter.typesIn(type.getEnclosedElements())){
+            visit(nested);
+        }
+        if (type.getKind() != ElementKind.CLASS){
+            return;
+        }
+        boolean typeBound = hasBinding(type);
+        List<ExecutableElement> methods = new ArrayList<ExecutableElement>();
+        for (ExecutableElement method : ElementFilter.methodsIn(type.getEnclosedElements())){
+            boolean bound = hasBinding(method);
+            if (!bound && !typeBound){
+                continue;
+            }
+            Set<Modifier> modifiers = method.getModifiers();
+            if (modifiers.contains(Modifier.STATIC) || modifiers.contains(Modifier.PRIVATE) || modifiers.contains(Modifier.FINAL)){
+                if (bound){
+                    error("Static, private and final methods can't be intercepted", method);
+                }
+                continue;
+            }
+            methods.add(method);
+        }
+        if (methods.isEmpty()){
+            return;
+        }
+        Set<Modifier> modifiers = type.getModifiers();
+        if (modifiers.contains(Modifier.FINAL) || modifiers.contains(Modifier.PRIVATE) || modifiers.contains(Modifier.ABSTRACT)
+                || !type.getTypeParameters().isEmpty()
+                || (type.getNestingKind() != NestingKind.TOP_LEVEL && !modifiers.contains(Modifier.STATIC))){
+            error("Only non-private, non-final, non-generic and concrete top level or static nested classes can be intercepted", type);
+            return;
+        }
+        try {
+            write(type, methods);
+        } catch (IOException e) {
+            error("Unable to write intercepted subclass: "+e.getMessage(), type);
+        }
+    }
+
+    private boolean hasBinding(Element element) {
+        for (AnnotationMirror mirror : element.getAnnotationMirrors()){
+            for (AnnotationMirror meta : mirror.getAnnotationType().asElement().getAnnotationMirrors()){
+                if (((TypeElement) meta.getAnnotationType().asElement()).getQualifiedName().contentEquals(INTERCEPTOR_BINDING)){
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private void error(String message, Element element) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+    }
+
+    private void write(TypeElement type, List<ExecutableElement> methods) throws IOException {
+        PackageElement typePackage = elements.getPackageOf(type);
+        String packageName = typePackage.isUnnamed() ? "" : typePackage.getQualifiedName().toString();
+        String binaryName = elements.getBinaryName(type).toString();
+        String name = (packageName.isEmpty() ? binaryName : binaryName.substring(packageName.length() + 1)) + SUFFIX;
+        String typeName = type.getQualifiedName().toString();
+        JavaFileObject file = processingEnv.getFiler().createSourceFile(packageName.isEmpty() ? name : packageName+"."+name, type);
+        PrintWriter out = new PrintWriter(file.openWriter());
+        try {
+            if (!packageName.isEmpty()){
+                out.println("package "+packageName+";");
+                out.println();
+            }
+            out.println("/**");
+            out.println(" * Generated by "+InterceptorProcessor.class.getName()+" from "+typeName+". Do not edit.");
+            out.println(" */");
+            out.println("@SuppressWarnings({\"unchecked\", \"rawtypes\"})");
+            out.println("public final class "+name+" extends "+typeName+" {");
+            out.println();
+            out.println("    public static final java.lang.reflect.Method[] METHODS = {");
+            for (ExecutableElement method : methods){
+                StringBuilder parameterTypes = new StringBuilder();
+                for (VariableElement parameter : method.getParameters()){
+                    parameterTypes.append(", ").append(types.erasure(parameter.asType())).append(".class");
+                }
+                out.println("            com.sample.Invocation.method("+typeName+".class, \""+method.getSimpleName()+"\""+parameterTypes+"),");
+            }
+            out.println("    };");
+            out.println();
+            for (int i = 0; i < methods.size(); i++){
+                out.println("    private final "+INTERCEPTOR+"[] chain"+i+";");
+            }
+            for (ExecutableElement constructor : ElementFilter.constructorsIn(type.getEnclosedElements())){
+                if (constructor.getModifiers().contains(Modifier.PRIVATE)){
+                    continue;
+                }
+                out.println();
+                out.println("    public "+name+"("+INTERCEPTOR+"[][] chains"+parameters(constructor, true)+")"+throwsClause(constructor)+" {");
+                out.println("        super("+arguments(constructor, "")+");");
+                for (int i = 0; i < methods.size(); i++){
+                    out.println("        this.chain"+i+" = chains["+i+"];");
+                }
+                out.println("    }");
+            }
+            for (int i = 0; i < methods.size(); i++){
+                writeMethod(out, name, methods.get(i), i);
+            }
+            out.println("}");
+        } finally {
+            out.close();
+        }
+    }
+
+    private void writeMethod(PrintWriter out, String name, ExecutableElement method, int index) {
+        TypeMirror returnType = method.getReturnType();
+        boolean isVoid = returnType.getKind() == TypeKind.VOID;
+        String methodName = method.getSimpleName().toString();
+        String arguments = arguments(method, "");
+        String typeParameters = typeParameters(method);
+        String typeArguments = typeArguments(method);
+        out.println();
+        out.println("    @Override");
+        out.println("    "+access(method)+typeParameters+returnType+" "+methodName+"("+parameters(method, false)+")"+throwsClause(method)+" {");
+        out.println("        "+INTERCEPTOR+"[] chain = chain"+index+";");
+        out.println("        if (chain == null) {");
+        out.println("            "+(isVoid ? "" : "return ")+"super."+methodName+"("+arguments+");");
+        if (isVoid){
+            out.println("            return;");
+        }
+        out.println("        }");
+        out.println("        try {");
+        String call = "new Invocation"+index+typeArguments+"(chain, this"+(arguments.isEmpty() ? "" : ", "+arguments)+").proceed()";
+        if (isVoid){
+            out.println("            "+call+";");
+        }else{
+            out.println("            return ("+boxed(returnType)+") "+call+";");
+        }
+        out.println("        } catch (RuntimeException e) {");
+        out.println("            throw e;");
+        out.println("        } catch (Error e) {");
+        out.println("            throw e;");
+        boolean throwsAll = false;
+        for (TypeMirror thrown : checkedExceptions(method)){
+            throwsAll |= thrown.toString().equals(Throwable.class.getName());
+            out.println("        } catch ("+thrown+" e) {");
+            out.println("            throw e;");
+        }
+        if (!throwsAll){
+            out.println("        } catch (Throwable e) {");
+            out.println("            throw new java.lang.reflect.UndeclaredThrowableException(e);");
+        }
+        out.println("        }");
+        out.println("    }");
+        out.println();
+        out.println("    private "+typeParameters+returnType+" super"+index+"("+parameters(method, false)+")"+throwsClause(method)+" {");
+        out.println("        "+(isVoid ? "" : "return ")+"super."+methodName+"("+arguments+");");
+        out.println("    }");
+        out.println();
+        List<? extends VariableElement> parameters = method.getParameters();
+        out.println("    private static final class Invocation"+index+typeParameters.trim()+" extends com.sample.Invocation {");
+        out.println("        private final "+name+" target;");
+        for (int i = 0; i < parameters.size(); i++){
+            out.println("        private final "+parameters.get(i).asType()+" a"+i+";");
+        }
+        out.println();
+        out.println("        Invocation"+index+"("+INTERCEPTOR+"[] chain, "+name+" target"+parameters(method, true)+") {");
+        out.println("            super(chain, METHODS["+index+"]);");
+        out.println("            this.target = target;");
+        for (int i = 0; i < parameters.size(); i++){
+            out.println("            this.a"+i+" = a"+i+";");
+        }
+        out.println("        }");
+        out.println();
+        out.println("        @Override");
+        out.println("        public Object getTarget() {");
+        out.println("            return target;");
+        out.println("        }");
+        out.println();
+        out.println("        @Override");
+        out.println("        public int getArgumentCount() {");
+        out.println("            return "+parameters.size()+";");
+        out.println("        }");
+        out.println();
+        out.println("        @Override");
+        out.println("        public Object getArgument(int index) {");
+        for (int i = 0; i < parameters.size(); i++){
+            out.println("            if (index == "+i+") {");
+            out.println("                return a"+i+";");
+            out.println("            }");
+        }
+        out.println("            throw new IndexOutOfBoundsException(String.valueOf(index));");
+        out.println("        }");
+        out.println();
+        out.println("        @Override");
+        out.println("        protected Object invokeTarget() throws Throwable {");
+        if (isVoid){
+            out.println("            target."+typeArguments+"super"+index+"("+arguments(method, "")+");");
+            out.println("            return null;");
+        }else{
+            out.println("            return target."+typeArguments+"super"+index+"("+arguments(method, "")+");");
+        }
+        out.println("        }");
+        out.println("    }");
+    }
+
+    /**
+     * @return the type parameters of the method with their bounds, like <code>&lt;T extends Comparable&lt;T&gt;&gt; </code>,
+     * or an empty string if it has none.
+     */
+    private static String typeParameters(ExecutableElement method) {
+        if (method.getTypeParameters().isEmpty()){
+            return "";
+        }
+        StringBuilder parameters = new StringBuilder("<");
+        for (TypeParameterElement parameter : method.getTypeParameters()){
+            parameters.append(parameters.length() > 1 ? ", " : "").append(parameter.getSimpleName());
+            String separator = " extends ";
+            for (TypeMirror bound : parameter.getBounds()){
+                if (!bound.toString().equals(Object.class.getName())){
+                    parameters.append(separator).append(bound);
+                    separator = " & ";
+                }
+            }
+        }
+        return parameters.append("> ").toString();
+    }
+
+    /**
+     * @return the type parameters of the method as type arguments, like <code>&lt;T&gt;</code>, or an empty string.
+     */
+    private static String typeArguments(ExecutableElement method) {
+        if (method.getTypeParameters().isEmpty()){
+            return "";
+        }
+        StringBuilder arguments = new StringBuilder("<");
+        for (TypeParameterElement parameter : method.getTypeParameters()){
+            arguments.append(arguments.length() > 1 ? ", " : "").append(parameter.getSimpleName());
+        }
+        return arguments.append(">").toString();
+    }
+
+    private static String access(ExecutableElement method) {
+        Set<Modifier> modifiers = method.getModifiers();
+        if (modifiers.contains(Modifier.PUBLIC)){
+            return "public ";
+        }
+        return modifiers.contains(Modifier.PROTECTED) ? "protected " : "";
+    }
+
+    /**
+     * @return the parameters of the method as <code>type aN</code>, with a leading comma if <code>leadingComma</code>.
+     */
+    private static String parameters(ExecutableElement method, boolean leadingComma) {
+        StringBuilder parameters = new StringBuilder();
+        List<? extends VariableElement> elements = method.getParameters();
+        for (int i = 0; i < elements.size(); i++){
+            parameters.append(i > 0 || leadingComma ? ", " : "").append(elements.get(i).asType()).append(" a").append(i);
+        }
+        return parameters.toString();
+    }
+
+    private static String arguments(ExecutableElement method, String prefix) {
+        StringBuilder arguments = new StringBuilder();
+        for (int i = 0; i < method.getParameters().size(); i++){
+            arguments.append(i > 0 ? ", " : "").append(prefix).append("a").append(i);
+        }
+        return arguments.toString();
+    }
+
+    private static String throwsClause(ExecutableElement method) {
+        StringBuilder clause = new StringBuilder();
+        for (TypeMirror thrown : method.getThrownTypes()){
+            clause.append(clause.length() == 0 ? " throws " : ", ").append(thrown);
+        }
+        return clause.toString();
+    }
+
+    /**
+     * @return the thrown types that need a catch clause of their own: checked exceptions that are not subtypes of
+     * another thrown type, so the clauses can't hide each other.
+     */
+    private List<TypeMirror> checkedExceptions(ExecutableElement method) {
+        TypeMirror runtimeException = elements.getTypeElement(RuntimeException.class.getName()).asType();
+        TypeMirror error = elements.getTypeElement(Error.class.getName()).asType();
+        List<TypeMirror> result = new ArrayList<TypeMirror>();
+        for (TypeMirror thrown : method.getThrownTypes()){
+            if (types.isSubtype(thrown, runtimeException) || types.isSubtype(thrown, error)){
+                continue;
+            }
+            boolean covered = false;
+            for (TypeMirror other : method.getThrownTypes()){
+                covered |= other != thrown && !types.isSameType(other, thrown) && types.isSubtype(thrown, other);
+            }
+            if (!covered){
+                result.add(thrown);
+            }
+        }
+        return result;
+    }
+
+    private String boxed(TypeMirror type) {
+        if (type.getKind().isPrimitive()){
+            return types.boxedClass((PrimitiveType) type).getQualifiedName().toString();
+        }
+        return type.toString();
+    }
+}
@@ -0,0 +1,152 @@
+import com.sample.ApplicationContext;
+import com.sample.ComponentScanner;
+import com.sample.SimpleApplicationContext;
+import com.sample.processor.ComponentIndexProcessor;
+import org.junit.Assert;
+import org.junit.Test;
+
+import javax.tools.*;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.stream.Stream;
+
+public class ComponentIndexProcessorTest {
+
+    private static final String REPO = "package app.components;\n" +
+            "@com.sample.Component\n" +
+            "public class Repo {}\n";
+    private static final String SERVICE = "package app.components;\n" +
+            "@com.sample.Component\n" +
+            "public class Service {\n" +
+            "    public final Repo repo;\n" +
+            "    public Service(Repo repo) { this.repo = repo; }\n" +
+            "    @com.sample.Component public static class Nested {}\n" +
+            "}\n";
+    private static final String PLAIN = "package app.components.sub;\n" +
+            "public class Plain {}\n";
+    private static final String SUB = "package app.components.sub;\n" +
+            "@com.sample.Component\n" +
+            "public class SubComponent {}\n";
+
+    @Test
+    public void writesIndex() throws Exception {
+        File output = compile();
+        List<String> index = Files.readAllLines(new File(output, ComponentScanner.INDEX).toPath());
+        Assert.assertEquals(Arrays.asList("app.components.Repo", "app.components.Service", "app.components.Service$Nested",
+                "app.components.sub.SubComponent"), index);
+    }
+
+    @Test
+    public void scansDirectoryWithIndex() throws Exception {
+        File output = compile();
+        assertComponents(output);
+        //The index is trusted: a class that is not listed is not found.
+        Files.write(new File(output, ComponentScanner.INDEX).toPath(), "app.components.Repo\n".getBytes("UTF-8"));
+        URLClassLoader classLoader = new URLClassLoader(new URL[]{output.toURI().toURL()}, getClass().getClassLoader());
+        Class[] components = ComponentScanner.scan(classLoader, "app.components");
+        Assert.assertEquals(1, components.length);
+        Assert.assertEquals("app.components.Repo", components[0].getName());
+    }
+
+    @Test
+    public void scansDirectoryWithoutIndex() throws Exception {
+        File output = compile();
+        Assert.assertTrue(new File(output, ComponentScanner.INDEX).delete());
+        assertComponents(output);
+    }
+
+    @Test
+    public void scansDirectoryWithStaleIndex() throws Exception {
+        File output = compile();
+        Files.write(new File(output, ComponentScanner.INDEX).toPath(), "app.components.Deleted\n".getBytes("UTF-8"));
+        assertComponents(output);
+    }
+
+    @Test
+    public void scansJar() throws Exception {
+        File output = compile();
+        assertComponents(jar(output));
+        Assert.assertTrue(new File(output, ComponentScanner.INDEX).delete());
+        assertComponents(jar(output));
+    }
+
+    private void assertComponents(File classpathRoot) throws Exception {
+        URLClassLoader classLoader = new URLClassLoader(new URL[]{classpathRoot.toURI().toURL()}, getClass().getClassLoader());
+        Class[] components = ComponentScanner.scan(classLoader, "app.components");
+        Assert.assertEquals(4, components.length);
+        Assert.assertEquals("app.components.Repo", components[0].getName());
+        Assert.assertEquals("app.components.Service", components[1].getName());
+        Assert.assertEquals("app.components.Service$Nested", components[2].getName());
+        Assert.assertEquals("app.components.sub.SubComponent", components[3].getName());
+        Assert.assertEquals(1, ComponentScanner.scan(classLoader, "app.components.sub").length);
+
+        ApplicationContext ctx = new SimpleApplicationContext(components, new Object[]{});
+        Object service = ctx.getBean(components[1]);
+        Assert.assertSame(ctx.getBean(components[0]), components[1].getField("repo").get(service));
+    }
+
+    private File compile() throws IOException {
+        File sources = Files.createTempDirectory("sources").toFile();
+        File output = Files.createTempDirectory("classes").toFile();
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<JavaFileObject>();
+        StandardJavaFileManager fileManager = compiler.getStandardFileManager(diagnostics, null, null);
+        try {
+            JavaCompiler.CompilationTask task = compiler.getTask(null, fileManager, diagnostics,
+                    Arrays.asList("-d", output.getPath(), "-classpath", System.getProperty("java.class.path")),
+                    null, fileManager.getJavaFileObjects(write(sources, "Repo.java", REPO),
+                            write(sources, "Service.java", SERVICE), write(sources, "Plain.java", PLAIN),
+                            write(sources, "SubComponent.java", SUB)));
+            task.setProcessors(Arrays.asList(new ComponentIndexProcessor()));
+            if (!task.call()){
+                throw new AssertionError(diagnostics.getDiagnostics().toString());
+            }
+        } finally {
+            fileManager.close();
+        }
+        return output;
+    }
+
+    private static File jar(File classes) throws IOException {
+        File jar = File.createTempFile("components", ".jar");
+        JarOutputStream out = new JarOutputStream(new FileOutputStream(jar));
+        Stream<Path> files = Files.walk(classes.toPath());
+        try {
+            Iterator<Path> iterator = files.iterator();
+            while (iterator.hasNext()){
+                Path file = iterator.next();
+                String name = classes.toPath().relativize(file).toString().replace(File.separatorChar, '/');
+                if (name.isEmpty()){
+                    continue;
+                }
+                if (Files.isDirectory(file)){
+                    out.putNextEntry(new JarEntry(name+"/"));
+                }else{
+                    out.putNextEntry(new JarEntry(name));
+                    out.write(Files.readAllBytes(file));
+                }
+                out.closeEntry();
+            }
+        } finally {
+            files.close();
+            out.close();
+        }
+        return jar;
+    }
+
+    private static File write(File directory, String name, String content) throws IOException {
+        File file = new File(directory, name);
+        Files.write(file.toPath(), content.getBytes("UTF-8"));
+        return file;
+    }
+}
@@ -0,0 +1,416 @@
+import com.sample.ApplicationContext;
+import com.sample.CacheStatistics;
+import com.sample.SimpleApplicationContext;
+import com.sample.ContextConfiguration;
+import com.sample.Invocation;
+import com.sample.MethodInterceptor;
+import com.sample.processor.ContextProcessor;
+import com.sample.processor.InterceptorProcessor;
+import org.junit.Assert;
+import org.junit.Test;
+
+import javax.annotation.processing.Processor;
+import javax.tools.*;
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.lang.annotation.Annotation;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+public class ContextProcessorTest {
+
+    private static final String BEANS = "package app;\n" +
+            "import com.sample.BeanFactory;\n" +
+            "import javax.inject.Inject;\n" +
+            "import java.util.List;\n" +
+            "public class Beans {\n" +
+            "    public static final List<String> events = new java.util.ArrayList<String>();\n" +
+            "    public interface Store {}\n" +
+            "    public static class Repo implements Store {\n" +
+            "        @com.sample.PostConstruct void start() { events.add(\"start repo\"); }\n" +
+            "        @com.sample.PreDestroy void stop() throws Exception { events.add(\"stop repo\"); }\n" +
+            "    }\n" +
+            "    @com.sample.Order(1) public static class Cache implements Store {}\n" +
+            "    public static class Client {\n" +
+            "        public final Repo repo;\n" +
+            "        Client(Repo repo) { this.repo = repo; }\n" +
+            "    }\n" +
+            "    public static class ClientFactory implements BeanFactory<Client> {\n" +
+            "        private final Repo repo;\n" +
+            "        public ClientFactory(Repo repo) { this.repo = repo; }\n" +
+            "        public Client createInstance() { return new Client(repo); }\n" +
+            "    }\n" +
+            "    public static class Service {\n" +
+            "        public final Repo repo;\n" +
+            "        @Inject List<Store> stores;\n" +
+            "        public Client client;\n" +
+            "        public Service(String ignored) { this.repo = null; }\n" +
+            "        @Inject public Service(Repo repo) { this.repo = repo; }\n" +
+            "        @Inject void setClient(Client client) { this.client = client; }\n" +
+            "        @com.sample.PreDestroy void stop() { events.add(\"stop service\"); }\n" +
+            "    }\n" +
+            "    public static class Loop1 { public Loop1(Loop2 loop2) {} }\n" +
+            "    public static class Loop2 { @Inject Loop1 loop1; }\n" +
+            "    public static class NeedsStore { public NeedsStore(Store store) {} }\n" +
+            "    public static class NeedsStoreSet { @Inject java.util.Set<Store> stores; }\n" +
+            "    public static class NeedsStoreMap { public NeedsStoreMap(java.util.Map<String, Store> stores) {} }\n" +
+            "    public static class NeedsStoreArray { @Inject void setStores(Store[] stores) {} }\n" +
+            "    public interface Base {}\n" +
+            "    public interface Sub extends Base {}\n" +
+            "    public static class Impl implements Sub {}\n" +
+            "    public static class BaseUser {\n" +
+            "        public final Base base;\n" +
+            "        public BaseUser(Base base) { this.base = base; }\n" +
+            "    }\n" +
+            "    public interface Tag {}\n" +
+            "    public static class Parent implements Tag {}\n" +
+            "    public static class Child extends Parent implements Tag {}\n" +
+            "    public interface Labeled extends Tag, Base {}\n" +
+            "    public static class LabeledChild extends Child implements Labeled, Sub {}\n" +
+            "    public static class TagUser {\n" +
+            "        public final Tag tag;\n" +
+            "        public TagUser(Tag tag) { this.tag = tag; }\n" +
+            "    }\n" +
+            "    public static class NeedsNamedRepo { public NeedsNamedRepo(@javax.inject.Named(\"main\") Repo repo) {} }\n" +
+            "    @com.sample.ThreadScoped public static class Counter {}\n" +
+            "    @javax.inject.Scope @java.lang.annotation.Retention(java.lang.annotation.RetentionPolicy.RUNTIME)\n" +
+            "    public @interface TenantScoped {}\n" +
+            "    @TenantScoped public static class TenantCache {}\n" +
+            "    @javax.inject.Singleton public static class Registry {}\n" +
+            "    public static class Session {}\n" +
+            "    public static class SessionFactory implements BeanFactory<Session> {\n" +
+            "        @com.sample.Prototype public Session createInstance() { return new Session(); }\n" +
+            "    }\n" +
+            "}\n";
+
+    @Test
+    public void generatesContext() throws Exception {
+        File output = compile("package app;\n" +
+                "@com.sample.GeneratedContext({Beans.Repo.class, Beans.Cache.class, Beans.Service.class, Beans.ClientFactory.class})\n" +
+                "interface AppWiring {}\n");
+        URLClassLoader classLoader = new URLClassLoader(new URL[]{output.toURI().toURL()}, getClass().getClassLoader());
+        ApplicationContext ctx = (ApplicationContext) classLoader.loadClass("app.AppWiringContext").newInstance();
+
+        Class<?> repoType = classLoader.loadClass("app.Beans$Repo");
+        Class<?> serviceType = classLoader.loadClass("app.Beans$Service");
+        Class<?> clientType = classLoader.loadClass("app.Beans$Client");
+        Object repo = ctx.getBean(repoType);
+        Object service = ctx.getBean(serviceType);
+        Assert.assertNotNull(repo);
+        Assert.assertSame(repo, serviceType.getField("repo").get(service));
+        List stores = (List) field(serviceType, "stores").get(service);
+        //Cache is declared after Repo, but has an @Order
+        Assert.assertEquals(Arrays.asList(ctx.getBean(classLoader.loadClass("app.Beans$Cache")), repo), stores);
+        Object client = serviceType.getField("client").get(service);
+        Assert.assertSame(ctx.getBean(clientType), client);
+        Assert.assertSame(repo, clientType.getField("repo").get(client));
+        Assert.assertNull(ctx.getBean(String.class));
+        try {
+            ctx.getBean(classLoader.loadClass("app.Beans$Store"));
+            Assert.fail();
+        } catch (SimpleApplicationContext.AmbigiousBeanDefException e) {
+            //expected
+        }
+
+        List events = (List) classLoader.loadClass("app.Beans").getField("events").get(null);
+        Assert.assertEquals(Arrays.asList("start repo"), events);
+        ctx.close();
+        ctx.close();
+        Assert.assertEquals(Arrays.asList("start repo", "stop service", "stop repo"), events);
+    }
+
+    @Test
+    public void generatesInterceptedSubclasses() throws Exception {
+        File output = compile(new InterceptorProcessor(), "Calculator.java", "package app;\n" +
+                "import java.lang.annotation.*;\n" +
+                "public class Calculator {\n" +
+                "    @com.sample.InterceptorBinding @Retention(RetentionPolicy.RUNTIME)\n" +
+                "    public @interface Traced {}\n" +
+                "    public final Beans.Repo repo;\n" +
+                "    public Calculator(Beans.Repo repo) { this.repo = repo; }\n" +
+                "    @Traced public int add(int a, int b) { return a + b; }\n" +
+                "    @Traced public void fail(String message) throws java.io.IOException { throw new java.io.IOException(message); }\n" +
+                "    @Traced public <T extends Comparable<? super T>> T max(java.util.List<? extends T> items) {\n" +
+                "        return java.util.Collections.max(items);\n" +
+                "    }\n" +
+                "    public <T> T first(java.util.List<T> items) { return items.get(0); }\n" +
+                "    public String name() { return \"calc\"; }\n" +
+                "}\n");
+        URLClassLoader classLoader = new URLClassLoader(new URL[]{output.toURI().toURL()}, getClass().getClassLoader());
+        Class<?> calculatorType = classLoader.loadClass("app.Calculator");
+        Class<?> intercepted = classLoader.loadClass("app.Calculator$$Intercepted");
+        Assert.assertEquals(3, ((Object[]) intercepted.getField("METHODS").get(null)).length);
+        try {
+            intercepted.getDeclaredMethod("name");
+            Assert.fail();
+        } catch (NoSuchMethodException e) {
+            //expected
+        }
+
+        final List<String> calls = new ArrayList<String>();
+        ContextConfiguration configuration = new ContextConfiguration()
+                .addInterceptor((Class<? extends Annotation>) classLoader.loadClass("app.Calculator$Traced"), new MethodInterceptor() {
+                    @Override
+                    public Object invoke(Invocation invocation) throws Throwable {
+                        calls.add(invocation.getMethod().getName()+Arrays.asList(invocation.getArguments()));
+                        Object result = invocation.proceed();
+                        return result instanceof Integer ? (Integer) result * 10 : result;
+                    }
+                });
+        ApplicationContext ctx = new SimpleApplicationContext(new Class[]{calculatorType,
+                classLoader.loadClass("app.Beans$Repo")}, new Object[]{}, configuration);
+        Object calculator = ctx.getBean(calculatorType);
+        Assert.assertSame(intercepted, calculator.getClass());
+        Assert.assertSame(ctx.getBean(classLoader.loadClass("app.Beans$Repo")), calculatorType.getField("repo").get(calculator));
+        Assert.assertEquals(50, calculatorType.getMethod("add", int.class, int.class).invoke(calculator, 2, 3));
+        Assert.assertEquals("calc", calculatorType.getMethod("name").invoke(calculator));
+        try {
+            calculatorType.getMethod("fail", String.class).invoke(calculator, "broken");
+            Assert.fail();
+        } catch (java.lang.reflect.InvocationTargetException e) {
+            Assert.assertEquals(IOException.class, e.getCause().getClass());
+        }
+        Assert.assertEquals(90, calculatorType.getMethod("max", List.class).invoke(calculator, Arrays.asList(3, 9, 4)));
+        Assert.assertEquals(3, calculatorType.getMethod("first", List.class).invoke(calculator, Arrays.asList(3, 9, 4)));
+        Assert.assertEquals(Arrays.asList("add[2, 3]", "fail[broken]", "max[[3, 9, 4]]"), calls);
+
+        //without interceptors the context creates the bean class itself
+        ApplicationContext plain = new SimpleApplicationContext(new Class[]{calculatorType,
+                classLoader.loadClass("app.Beans$Repo")}, new Object[]{});
+        Assert.assertSame(calculatorType, plain.getBean(calculatorType).getClass());
+    }
+
+    @Test
+    public void cachesResults() throws Exception {
+        File output = compile(new InterceptorProcessor(), "Prices.java", "package app;\n" +
+                "@com.sample.Cacheable(maximumSize = 2)\n" +
+                "public class Prices {\n" +
+                "    public int lookups;\n" +
+                "    public Integer price(String item) { lookups++; return item.equals(\"free\") ? null : item.length(); }\n" +
+                "    public int total(String... items) { lookups++; return items.length; }\n" +
+                "    public <T extends CharSequence> int length(T text) { lookups++; return text.length(); }\n" +
+                "    @com.sample.Cacheable(expireAfterWriteMillis = 1)\n" +
+                "    public long now() { lookups++; return System.nanoTime(); }\n" +
+                "}\n");
+        URLClassLoader classLoader = new URLClassLoader(new URL[]{output.toURI().toURL()}, getClass().getClassLoader());
+        Class<?> pricesType = classLoader.loadClass("app.Prices");
+        final AtomicLong nanos = new AtomicLong();
+        SimpleApplicationContext ctx = new SimpleApplicationContext(new Class[]{pricesType}, new Object[]{},
+                new ContextConfiguration().setCacheTicker(new LongSupplier() {
+                    @Override
+                    public long getAsLong() {
+                        return nanos.get();
+                    }
+                }));
+        Object prices = ctx.getBean(pricesType);
+        java.lang.reflect.Method price = pricesType.getMethod("price", String.class);
+        java.lang.reflect.Method total = pricesType.getMethod("total", String[].class);
+        java.lang.reflect.Field lookups = pricesType.getField("lookups");
+
+        Assert.assertEquals(5, price.invoke(prices, "apple"));
+        Assert.assertEquals(5, price.invoke(prices, "apple"));
+        Assert.assertNull(price.invoke(prices, "free"));
+        Assert.assertNull(price.invoke(prices, "free"));
+        Assert.assertEquals(2, lookups.get(prices));
+        //the third item evicts the least recently used one
+        price.invoke(prices, "pear");
+        price.invoke(prices, "apple");
+        Assert.assertEquals(4, lookups.get(prices));
+        Assert.assertEquals(2, total.invoke(prices, (Object) new String[]{"a", "b"}));
+        Assert.assertEquals(2, total.invoke(prices, (Object) new String[]{"a", "b"}));
+        Assert.assertEquals(5, lookups.get(prices));
+
+        //generic methods of cacheable classes are cached too
+        Assert.assertEquals(3, pricesType.getMethod("length", CharSequence.class).invoke(prices, "abc"));
+        Assert.assertEquals(3, pricesType.getMethod("length", CharSequence.class).invoke(prices, "abc"));
+        Assert.assertEquals(6, lookups.get(prices));
+
+        CacheStatistics statistics = ctx.getCacheStatistics().get(price);
+        Assert.assertEquals(2, statistics.getHitCount());
+        Assert.assertEquals(4, statistics.getMissCount());
+        Assert.assertEquals(2, statistics.getEvictionCount());
+        Assert.assertEquals(2, statistics.getSize());
+
+        java.lang.reflect.Method now = pricesType.getMethod("now");
+        Object first = now.invoke(prices);
+        Assert.assertEquals(first, now.invoke(prices));
+        nanos.addAndGet(java.util.concurrent.TimeUnit.MILLISECONDS.toNanos(1));
+        Assert.assertNotEquals(first, now.invoke(prices));
+        Assert.assertEquals(1, ctx.getCacheStatistics().get(now).getEvictionCount());
+
+        //limits of the context override the annotations
+        SimpleApplicationContext limited = new SimpleApplicationContext(new Class[]{pricesType}, new Object[]{},
+                new ContextConfiguration().setCacheLimits(pricesType, 1, 0, java.util.concurrent.TimeUnit.SECONDS));
+        Object limitedPrices = limited.getBean(pricesType);
+        price.invoke(limitedPrices, "apple");
+        price.invoke(limitedPrices, "pear");
+        price.invoke(limitedPrices, "apple");
+        Assert.assertEquals(3, lookups.get(limitedPrices));
+        Assert.assertEquals(1, limited.getCacheStatistics().get(price).getSize());
+    }
+
+    @Test
+    public void indexesSuperInterfacesOnce() throws Exception {
+        File output = compile("package app;\n" +
+                "@com.sample.GeneratedContext({Beans.Impl.class, Beans.BaseUser.class, Beans.Child.class, Beans.TagUser.class})\n" +
+                "interface AppWiring {}\n");
+        URLClassLoader classLoader = new URLClassLoader(new URL[]{output.toURI().toURL()}, getClass().getClassLoader());
+        ApplicationContext ctx = (ApplicationContext) classLoader.loadClass("app.AppWiringContext").newInstance();
+
+        //Base is only a super interface of the interface of Impl
+        Object impl = ctx.getBean(classLoader.loadClass("app.Beans$Impl"));
+        Assert.assertSame(impl, ctx.getBean(classLoader.loadClass("app.Beans$Base")));
+        Class<?> baseUserType = classLoader.loadClass("app.Beans$BaseUser");
+        Assert.assertSame(impl, baseUserType.getField("base").get(ctx.getBean(baseUserType)));
+        //Child implements Tag itself and through Parent
+        Object child = ctx.getBean(classLoader.loadClass("app.Beans$Child"));
+        Assert.assertSame(child, ctx.getBean(classLoader.loadClass("app.Beans$Tag")));
+        Class<?> tagUserType = classLoader.loadClass("app.Beans$TagUser");
+        Assert.assertSame(child, tagUserType.getField("tag").get(ctx.getBean(tagUserType)));
+    }
+
+    @Test
+    public void indexesLikeRuntimeContext() throws Exception {
+        File output = compile("package app;\n" +
+                "@com.sample.GeneratedContext({Beans.Impl.class, Beans.LabeledChild.class, Beans.Repo.class, Beans.Cache.class})\n" +
+                "interface AppWiring {}\n");
+        URLClassLoader classLoader = new URLClassLoader(new URL[]{output.toURI().toURL()}, getClass().getClassLoader());
+        ApplicationContext generated = (ApplicationContext) classLoader.loadClass("app.AppWiringContext").newInstance();
+        String[] beanNames = {"Impl", "LabeledChild", "Repo", "Cache"};
+        Class[] beanTypes = new Class[beanNames.length];
+        for (int i = 0; i < beanNames.length; i++){
+            beanTypes[i] = classLoader.loadClass("app.Beans$"+beanNames[i]);
+        }
+        ApplicationContext runtime = new SimpleApplicationContext(beanTypes, new Object[]{});
+        for (String typeName : new String[]{"Base", "Sub", "Impl", "Tag", "Labeled", "Parent", "Child", "LabeledChild",
+                "Store", "Repo", "Cache"}){
+            Class<?> type = classLoader.loadClass("app.Beans$"+typeName);
+            Assert.assertEquals(typeName, lookup(runtime, type), lookup(generated, type));
+        }
+    }
+
+    /**
+     * @return the class of the bean of the type, or "ambiguous".
+     */
+    private static String lookup(ApplicationContext ctx, Class<?> type) {
+        try {
+            return ctx.getBean(type).getClass().getName();
+        } catch (SimpleApplicationContext.AmbigiousBeanDefException e) {
+            return "ambiguous";
+        }
+    }
+
+    @Test
+    public void reportsCyclicDependencies() throws Exception {
+        assertCompilationError("Cyclic dependency found starting with bean", "package app;\n" +
+                "@com.sample.GeneratedContext({Beans.Loop1.class, Beans.Loop2.class})\n" +
+                "interface AppWiring {}\n");
+    }
+
+    @Test
+    public void reportsAmbigiousDependencies() throws Exception {
+        assertCompilationError("More than one option for bean of type", "package app;\n" +
+                "@com.sample.GeneratedContext({Beans.Repo.class, Beans.Cache.class, Beans.NeedsStore.class})\n" +
+                "interface AppWiring {}\n");
+    }
+
+    @Test
+    public void reportsUndefinedDependencies() throws Exception {
+        assertCompilationError("No bean definition that has this type", "package app;\n" +
+                "@com.sample.GeneratedContext({Beans.NeedsStore.class})\n" +
+                "interface AppWiring {}\n");
+    }
+
+    @Test
+    public void reportsQualifiers() throws Exception {
+        assertCompilationError("Qualifiers are not supported by generated contexts", "package app;\n" +
+                "@com.sample.GeneratedContext({Beans.Repo.class, Beans.NeedsNamedRepo.class})\n" +
+                "interface AppWiring {}\n");
+    }
+
+    @Test
+    public void reportsScopedBeans() throws Exception {
+        assertCompilationError("Scoped beans are not supported by generated contexts: app.Beans.Counter is @ThreadScoped",
+                "package app;\n" +
+                "@com.sample.GeneratedContext({Beans.Repo.class, Beans.Counter.class})\n" +
+                "interface AppWiring {}\n");
+        assertCompilationError("app.Beans.TenantCache is @TenantScoped", "package app;\n" +
+                "@com.sample.GeneratedContext({Beans.TenantCache.class})\n" +
+                "interface AppWiring {}\n");
+        assertCompilationError("app.Beans.Session is @Prototype", "package app;\n" +
+                "@com.sample.GeneratedContext({Beans.SessionFactory.class})\n" +
+                "interface AppWiring {}\n");
+        //@Singleton is the scope of all generated beans
+        compile("package app;\n" +
+                "@com.sample.GeneratedContext({Beans.Registry.class})\n" +
+                "interface AppWiring {}\n");
+    }
+
+    @Test
+    public void reportsUnsupportedCollections() throws Exception {
+        assertCompilationError("Set injection is not supported by generated contexts: java.util.Set<app.Beans.Store>",
+                "package app;\n" +
+                "@com.sample.GeneratedContext({Beans.Repo.class, Beans.NeedsStoreSet.class})\n" +
+                "interface AppWiring {}\n");
+        assertCompilationError("Map injection is not supported by generated contexts", "package app;\n" +
+                "@com.sample.GeneratedContext({Beans.Repo.class, Beans.NeedsStoreMap.class})\n" +
+                "interface AppWiring {}\n");
+        assertCompilationError("Array injection is not supported by generated contexts: app.Beans.Store[]", "package app;\n" +
+                "@com.sample.GeneratedContext({Beans.Repo.class, Beans.NeedsStoreArray.class})\n" +
+                "interface AppWiring {}\n");
+    }
+
+    private static java.lang.reflect.Field field(Class<?> type, String name) throws NoSuchFieldException {
+        java.lang.reflect.Field field = type.getDeclaredField(name);
+        field.setAccessible(true);
+        return field;
+    }
+
+    private void assertCompilationError(String expectedMessage, String wiring) throws IOException {
+        try {
+            compile(wiring);
+            Assert.fail("Compilation should fail");
+        } catch (AssertionError e) {
+            Assert.assertTrue(e.getMessage(), e.getMessage().contains(expectedMessage));
+        }
+    }
+
+    private File compile(String wiring) throws IOException {
+        return compile(new ContextProcessor(), "AppWiring.java", wiring);
+    }
+
+    private File compile(Processor processor, String fileName, String source) throws IOException {
+        File sources = Files.createTempDirectory("sources").toFile();
+        File output = Files.createTempDirectory("classes").toFile();
+        File beans = write(sources, "Beans.java", BEANS);
+        File context = write(sources, fileName, source);
+
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<JavaFileObject>();
+        StandardJavaFileManager fileManager = compiler.getStandardFileManager(diagnostics, null, null);
+        try {
+            JavaCompiler.CompilationTask task = compiler.getTask(null, fileManager, diagnostics,
+                    Arrays.asList("-d", output.getPath(), "-classpath", System.getProperty("java.class.path")),
+                    null, fileManager.getJavaFileObjects(beans, context));
+            task.setProcessors(Arrays.asList(processor));
+            if (!task.call()){
+                throw new AssertionError(diagnostics.getDiagnostics().toString());
+            }
+        } finally {
+            fileManager.close();
+        }
+        return output;
+    }
+
+    private static File write(File directory, String name, String content) throws IOException {
+        File file = new File(directory, name);
+        Files.write(file.toPath(), content.getBytes("UTF-8"));
+        return file;
+    }
+}
@@ -1,8 +1,17 @@
 package com.sample;
 
+import java.io.Closeable;
+
 /**
  * Created by yotamm on 20/02/16.
  */
-public interface ApplicationContext {
+public interface ApplicationContext extends Closeable {
     <T> T getBean(Class<T> type);
+
+    /**
+     * Calls the {@link PreDestroy} methods of the singletons the context created, each after those of the beans
+     * that depend on it. Closing a context again does nothing.
+     */
+    @Override
+    void close();
 }
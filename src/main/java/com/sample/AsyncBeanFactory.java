@@ -0,0 +1,25 @@
+package com.sample;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * A {@link BeanFactory} whose product takes long to create, for example because it opens connections or reads files.
+ * The context starts all eager products of async factories before it creates any other bean, and only waits for
+ * a product when a bean needs it, within the startup timeout of {@link ContextConfiguration#setStartupTimeout}.
+ * Scope annotations of the product go on {@link #createInstanceAsync()}.
+ */
+public interface AsyncBeanFactory<T> extends BeanFactory<T> {
+
+    /**
+     * @return a future of the product. The work should run on an executor of the factory, not on the calling thread.
+     */
+    CompletableFuture<T> createInstanceAsync();
+
+    /**
+     * Blocks until the product is created. Used for scoped products, which are created on every lookup.
+     */
+    @Override
+    default T createInstance() {
+        return createInstanceAsync().join();
+    }
+}
@@ -0,0 +1,206 @@
+package com.sample;
+
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Member;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Construction and injection code of a single bean type, built once from its {@link BeanMetadata} and shared
+ * by all contexts. Public constructors with up to two parameters and public setters with one parameter are bound
+ * to functional interfaces by {@link LambdaMetafactory}, whose spun classes the JIT inlines like ordinary calls.
+ * Everything else, and every @Inject field, is unreflected into a method handle adapted to a fixed shape. Either
+ * way creating and wiring an instance does no access checks and no reflective invocation.
+ * <p>
+ * Only beans whose classes are public and visible from the class loader of this class can be bound, as the spun
+ * classes live next to this class. Primitive parameters would need boxing adaptations and fall back to handles too.
+ */
+final class BeanInjector {
+
+    private static final MethodType CONSTRUCTOR_TYPE = MethodType.methodType(Object.class, Object[].class);
+    private static final MethodType FIELD_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+    private static final MethodType SETTER_TYPE = MethodType.methodType(void.class, Object.class, Object[].class);
+
+    private final MethodHandle constructor;
+    //At most one of them is bound, in which case the constructor handle isn't used.
+    private final Supplier<Object> constructor0;
+    private final Function<Object, Object> constructor1;
+    private final BiFunction<Object, Object, Object> constructor2;
+    //Singletons are never constructed, so a type without a usable constructor is only an error once we try to.
+    private final RuntimeException constructorError;
+    private final MethodHandle[] fieldSetters;
+    private final MethodHandle[] setters;
+    //The bound setters, null where the handle has to be used.
+    private final BiConsumer[] boundSetters;
+
+    BeanInjector(BeanMetadata metadata) {
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        MethodHandle constructorHandle = null;
+        Object boundConstructor = null;
+        RuntimeException error = null;
+        try {
+            Constructor constructorToUse = metadata.getConstructor();
+            MethodHandle target;
+            if (constructorToUse != null){
+                target = lookup.unreflectConstructor(constructorToUse);
+            }else{
+                constructorToUse = metadata.beanType.getDeclaredConstructor();
+                target = lookup.findConstructor(metadata.beanType, MethodType.methodType(void.class));
+            }
+            int arguments = target.type().parameterCount();
+            if (arguments <= 2){
+                Class[] functions = {Supplier.class, Function.class, BiFunction.class};
+                boundConstructor = bind(lookup, constructorToUse, target, functions[arguments],
+                        arguments == 0 ? "get" : "apply", MethodType.genericMethodType(arguments));
+            }
+            constructorHandle = spread(target, Object.class, 0).asType(CONSTRUCTOR_TYPE);
+        } catch (ReflectiveOperationException e) {
+            error = new SimpleApplicationContext.BeanInstatiationException(e);
+        } catch (RuntimeException e) {
+            error = e;
+        }
+        this.constructor = constructorHandle;
+        this.constructor0 = boundConstructor instanceof Supplier ? (Supplier<Object>) boundConstructor : null;
+        this.constructor1 = boundConstructor instanceof Function ? (Function<Object, Object>) boundConstructor : null;
+        this.constructor2 = boundConstructor instanceof BiFunction ? (BiFunction<Object, Object, Object>) boundConstructor : null;
+        this.constructorError = error;
+
+        try {
+            this.fieldSetters = new MethodHandle[metadata.injectFields.length];
+            for (int i = 0; i < fieldSetters.length; i++){
+                fieldSetters[i] = lookup.unreflectSetter(metadata.injectFields[i]).asType(FIELD_TYPE);
+            }
+
+            this.setters = new MethodHandle[metadata.injectSetters.length];
+            this.boundSetters = new BiConsumer[setters.length];
+            for (int i = 0; i < setters.length; i++){
+                Method setter = metadata.injectSetters[i];
+                MethodHandle target = lookup.unreflect(setter);
+                if (setter.getParameterTypes().length == 1 && !Modifier.isStatic(setter.getModifiers())){
+                    boundSetters[i] = (BiConsumer) bind(lookup, setter, target, BiConsumer.class, "accept",
+                            MethodType.methodType(void.class, Object.class, Object.class));
+                }
+                setters[i] = spread(target, void.class, 1).asType(SETTER_TYPE);
+            }
+        } catch (IllegalAccessException e) {
+            throw new SimpleApplicationContext.BeanInstatiationException(e);
+        }
+    }
+
+    /**
+     * Binds a public constructor or method to a functional interface.
+     * @param erasedType the type of the interface method.
+     * @return the instance of the interface, or null if the member can't be bound.
+     */
+    private static Object bind(MethodHandles.Lookup lookup, Member member, MethodHandle target, Class functionalInterface,
+                               String name, MethodType erasedType) {
+        if (!Modifier.isPublic(member.getModifiers()) || !isVisible(member.getDeclaringClass())){
+            return null;
+        }
+        for (Class parameterType : target.type().parameterArray()){
+            if (!isVisible(parameterType)){
+                return null;
+            }
+        }
+        MethodType instantiatedType = erasedType.returnType() == void.class ?
+                target.type().changeReturnType(void.class) : target.type();
+        try {
+            return LambdaMetafactory.metafactory(lookup, name, MethodType.methodType(functionalInterface), erasedType,
+                    target, instantiatedType).getTarget().invoke();
+        } catch (Throwable throwable) {
+            //Whatever the metafactory rejects still works through the handle.
+            return null;
+        }
+    }
+
+    /**
+     * @return true if a spun class can refer to the type: it is public and found by our class loader.
+     */
+    private static boolean isVisible(Class type) {
+        while (type.isArray()){
+            type = type.getComponentType();
+        }
+        if (type.isPrimitive() || !Modifier.isPublic(type.getModifiers())){
+            return false;
+        }
+        try {
+            return Class.forName(type.getName(), false, BeanInjector.class.getClassLoader()) == type;
+        } catch (ClassNotFoundException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Erases all parameters to Object and collects the ones after the first <code>leading</code> into a single Object[].
+     */
+    private static MethodHandle spread(MethodHandle handle, Class returnType, int leading) {
+        int arguments = handle.type().parameterCount();
+        MethodType erased = MethodType.genericMethodType(arguments).changeReturnType(returnType);
+        return handle.asType(erased).asSpreader(Object[].class, arguments - leading);
+    }
+
+    Object newInstance(Object[] parameters) {
+        if (constructorError != null){
+            throw constructorError;
+        }
+        try {
+            if (constructor0 != null){
+                return constructor0.get();
+            }
+            if (constructor1 != null){
+                return constructor1.apply(parameters[0]);
+            }
+            if (constructor2 != null){
+                return constructor2.apply(parameters[0], parameters[1]);
+            }
+            return (Object) constructor.invokeExact(parameters);
+        } catch (Throwable throwable) {
+            throw new SimpleApplicationContext.BeanInstatiationException(throwable);
+        }
+    }
+
+    void injectField(int index, Object instance, Object value) {
+        try {
+            fieldSetters[index].invokeExact(instance, value);
+        } catch (Throwable throwable) {
+            throw new SimpleApplicationContext.BeanInstatiationException(throwable);
+        }
+    }
+
+    /**
+     * Calls a setter with a single parameter.
+     */
+    void invokeSetter(int index, Object instance, Object parameter) {
+        BiConsumer boundSetter = boundSetters[index];
+        if (boundSetter == null){
+            invokeSetter(index, instance, new Object[]{parameter});
+            return;
+        }
+        try {
+            boundSetter.accept(instance, parameter);
+        } catch (Throwable throwable) {
+            throw new SimpleApplicationContext.BeanInstatiationException(throwable);
+        }
+    }
+
+    void invokeSetter(int index, Object instance, Object[] parameters) {
+        try {
+            BiConsumer boundSetter = boundSetters[index];
+            if (boundSetter != null){
+                boundSetter.accept(instance, parameters[0]);
+                return;
+            }
+            setters[index].invokeExact(instance, parameters);
+        } catch (Throwable throwable) {
+            throw new SimpleApplicationContext.BeanInstatiationException(throwable);
+        }
+    }
+}
@@ -0,0 +1,696 @@
+package com.sample;
+
+import com.sample.SimpleApplicationContext.MissingSuitableConstructorException;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Provider;
+import javax.inject.Qualifier;
+import javax.inject.Singleton;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.annotation.Annotation;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.*;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.CRC32;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Everything a context needs to know about a bean type that can be found by reflection: its flattened type
+ * hierarchy, the constructor to use, the @Inject fields and setters with their generic types and lookup keys.
+ * The metadata of a type is scanned once per process and shared by all contexts. It is kept in a
+ * {@link ClassValue}, so it does not keep the bean class or its class loader from being unloaded.
+ */
+public final class BeanMetadata {
+
+    private static final LongAdder requests = new LongAdder();
+    private static final AtomicLong misses = new AtomicLong();
+
+    private static final ClassValue<BeanMetadata> CACHE = new ClassValue<BeanMetadata>() {
+        @Override
+        protected BeanMetadata computeValue(Class<?> type) {
+            misses.incrementAndGet();
+            return scan(type);
+        }
+    };
+
+    final Class beanType;
+    final Class[] allTypes;
+    //The keys of the parameterized types among allTypes whose type arguments are known, see GenericTypes.key(Type).
+    private final String[] genericTypeKeys;
+    //The type created by the bean, if it is a BeanFactory.
+    final Class factoryProductType;
+    //The keys of the parameterized types of the product, as given by the type argument of the BeanFactory.
+    private final String[] productTypeKeys;
+    //Scope annotations of the bean and, for a BeanFactory, of its createInstance() method. Null for singletons.
+    final Class<? extends Annotation> scopeAnnotation;
+    final Class<? extends Annotation> productScopeAnnotation;
+    //@Named value of the bean and of the product of a BeanFactory, otherwise the class name.
+    final String name;
+    final String productName;
+    //Qualifier of the bean and of the product of a BeanFactory, see qualifierOf(Annotation[]). Null if unqualified.
+    final String qualifier;
+    final String productQualifier;
+    //Annotated with @Primary, the type itself or createInstance() for the product.
+    final boolean primary;
+    final boolean productPrimary;
+    final Field[] injectFields;
+    final Type[] fieldTypes;
+    //The key of every injection point, see key(Class, String). Null for types that are no beans.
+    final String[] fieldKeys;
+    final Method[] injectSetters;
+    //@Value fields, see PropertyBinder.
+    final Field[] valueFields;
+    final Type[][] setterParameterTypes;
+    final String[][] setterKeys;
+    //@PostConstruct methods, the async ones apart, and @PreDestroy methods, all made accessible.
+    final Method[] initMethods;
+    final Method[] asyncInitMethods;
+    final Method[] destroyMethods;
+    //@EventListener methods, made accessible.
+    final Method[] listenerMethods;
+    //Has @Cacheable on the type or on a declared method.
+    final boolean cacheable;
+    private final Constructor constructor;
+    private final Type[] constructorParameterTypes;
+    private final String[] constructorKeys;
+    //The keys of the bean without a qualifier: the names of all its types and the generic type keys.
+    private final String[] typeKeys;
+    //Singletons are never constructed, so a type without a suitable constructor is only an error once we try to.
+    private final RuntimeException constructorError;
+    private volatile BeanInjector injector;
+    private volatile InterceptedType interceptedType;
+    private volatile MethodHandle[] listenerHandles;
+
+    private static final MethodType LISTENER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+    private static final byte NO_CONSTRUCTOR = 0;
+    private static final byte CONSTRUCTOR = 1;
+    private static final byte CONSTRUCTOR_ERROR = 2;
+    private static final Class[] PRIMITIVES = {boolean.class, byte.class, char.class, short.class, int.class, long.class,
+            float.class, double.class};
+
+    static BeanMetadata forType(Class type){
+        requests.increment();
+        return CACHE.get(type);
+    }
+
+    /**
+     * @return number of metadata lookups that were served from the cache, across all contexts.
+     */
+    public static long getCacheHits(){
+        return requests.sum() - misses.get();
+    }
+
+    /**
+     * @return number of metadata lookups that had to scan the bean type, across all contexts.
+     */
+    public static long getCacheMisses(){
+        return misses.get();
+    }
+
+    private BeanMetadata(Class<?> type, Class[] allTypes, String[] genericTypeKeys, Class factoryProductType,
+                         String[] productTypeKeys, Class<? extends Annotation> scopeAnnotation,
+                         Class<? extends Annotation> productScopeAnnotation, Constructor constructor,
+                         RuntimeException constructorError, Field[] injectFields, Field[] valueFields,
+                         Method[] injectSetters, Method[] lifecycleMethods, Method[] listenerMethods, boolean cacheableMethods) {
+        this.beanType = type;
+        this.allTypes = allTypes;
+        this.genericTypeKeys = genericTypeKeys;
+        this.factoryProductType = factoryProductType;
+        this.productTypeKeys = productTypeKeys;
+        this.scopeAnnotation = scopeAnnotation;
+        this.productScopeAnnotation = productScopeAnnotation;
+        this.qualifier = qualifierOf(type.getAnnotations());
+        this.name = getName(type, type.getAnnotation(Named.class));
+        this.primary = type.isAnnotationPresent(Primary.class);
+        this.cacheable = cacheableMethods || type.isAnnotationPresent(Cacheable.class);
+        if (factoryProductType != null){
+            Method productMethod = getProductMethod(type);
+            this.productQualifier = qualifierOf(productMethod.getAnnotations());
+            this.productName = getName(factoryProductType, productMethod.getAnnotation(Named.class));
+            this.productPrimary = productMethod.isAnnotationPresent(Primary.class);
+        }else{
+            this.productQualifier = null;
+            this.productName = null;
+            this.productPrimary = false;
+        }
+        this.typeKeys = new String[allTypes.length + genericTypeKeys.length];
+        for (int i = 0; i < allTypes.length; i++){
+            typeKeys[i] = allTypes[i].getName();
+        }
+        System.arraycopy(genericTypeKeys, 0, typeKeys, allTypes.length, genericTypeKeys.length);
+        if (constructor != null){
+            constructor.setAccessible(true);
+            this.constructorParameterTypes = constructor.getGenericParameterTypes();
+            this.constructorKeys = getKeys(constructorParameterTypes, constructor.getParameterAnnotations());
+        }else{
+            this.constructorParameterTypes = new Type[0];
+            this.constructorKeys = new String[0];
+        }
+        this.constructor = constructor;
+        this.constructorError = constructorError;
+        this.injectFields = injectFields;
+        this.fieldTypes = new Type[injectFields.length];
+        this.fieldKeys = new String[injectFields.length];
+        for (int i = 0; i < injectFields.length; i++){
+            injectFields[i].setAccessible(true);
+            fieldTypes[i] = injectFields[i].getGenericType();
+            fieldKeys[i] = getKey(fieldTypes[i], injectFields[i].getAnnotations());
+        }
+        this.valueFields = valueFields;
+        this.injectSetters = injectSetters;
+        this.setterParameterTypes = new Type[injectSetters.length][];
+        this.setterKeys = new String[injectSetters.length][];
+        for (int i = 0; i < injectSetters.length; i++){
+            injectSetters[i].setAccessible(true);
+            setterParameterTypes[i] = injectSetters[i].getGenericParameterTypes();
+            setterKeys[i] = getKeys(setterParameterTypes[i], injectSetters[i].getParameterAnnotations());
+        }
+        List<Method> initMethods = new ArrayList<Method>();
+        List<Method> asyncInitMethods = new ArrayList<Method>();
+        List<Method> destroyMethods = new ArrayList<Method>();
+        for (Method method : lifecycleMethods){
+            method.setAccessible(true);
+            PostConstruct postConstruct = method.getAnnotation(PostConstruct.class);
+            if (postConstruct != null){
+                (postConstruct.async() ? asyncInitMethods : initMethods).add(method);
+            }
+            if (method.isAnnotationPresent(PreDestroy.class)){
+                destroyMethods.add(method);
+            }
+        }
+        this.initMethods = initMethods.toArray(new Method[]{});
+        this.asyncInitMethods = asyncInitMethods.toArray(new Method[]{});
+        this.destroyMethods = destroyMethods.toArray(new Method[]{});
+        for (Method method : listenerMethods){
+            method.setAccessible(true);
+        }
+        this.listenerMethods = listenerMethods;
+    }
+
+    private static BeanMetadata scan(Class<?> type) {
+        List<Class> types = new ArrayList<Class>();
+        List<Type> genericTypes = new ArrayList<Type>();
+        GenericTypes.collect(type, types, genericTypes);
+        Class factoryProductType = null;
+        String[] productTypeKeys = new String[0];
+        Class<? extends Annotation> productScopeAnnotation = null;
+        if (BeanFactory.class.isAssignableFrom(type)){
+            Type productType = getProductType(type, genericTypes.get(types.indexOf(BeanFactory.class)));
+            factoryProductType = GenericTypes.rawType(productType);
+            List<Class> productTypes = new ArrayList<Class>();
+            List<Type> productGenericTypes = new ArrayList<Type>();
+            GenericTypes.collect(productType, productTypes, productGenericTypes);
+            productTypeKeys = getGenericTypeKeys(productGenericTypes);
+            productScopeAnnotation = findScopeAnnotation(getProductMethod(type));
+        }
+
+        Constructor constructorToUse = null;
+        RuntimeException error = null;
+        try {
+            constructorToUse = findConstructorToUse(type);
+        } catch (RuntimeException e) {
+            error = e;
+        }
+
+        List<Field> fields = new ArrayList<Field>();
+        List<Field> valueFields = new ArrayList<Field>();
+        for (Field field : type.getDeclaredFields()){
+            if (field.isAnnotationPresent(Value.class)){
+                valueFields.add(field);
+            }else if (field.getAnnotation(Inject.class) != null){
+                fields.add(field);
+            }
+        }
+        List<Method> setters = new ArrayList<Method>();
+        List<Method> lifecycleMethods = new ArrayList<Method>();
+        List<Method> listenerMethods = new ArrayList<Method>();
+        boolean cacheableMethods = false;
+        for (Method method : type.getDeclaredMethods()){
+            if (method.getAnnotation(Inject.class) != null){
+                setters.add(method);
+            }
+            if (method.isAnnotationPresent(PostConstruct.class) || method.isAnnotationPresent(PreDestroy.class)){
+                lifecycleMethods.add(method);
+            }
+            if (method.isAnnotationPresent(EventListener.class)){
+                listenerMethods.add(method);
+            }
+            cacheableMethods |= method.isAnnotationPresent(Cacheable.class);
+        }
+        return new BeanMetadata(type, types.toArray(new Class[]{}), getGenericTypeKeys(genericTypes), factoryProductType,
+                productTypeKeys, findScopeAnnotation(type),
+                productScopeAnnotation, constructorToUse, error, fields.toArray(new Field[]{}),
+                valueFields.toArray(new Field[]{}), setters.toArray(new Method[]{}),
+                lifecycleMethods.toArray(new Method[]{}), listenerMethods.toArray(new Method[]{}), cacheableMethods);
+    }
+
+    /**
+     * Records the result of the scan, so {@link #read(DataInput, Class)} can restore it with a few direct lookups
+     * of the recorded members.
+     */
+    void write(DataOutput out) throws IOException {
+        writeClasses(out, allTypes);
+        writeStrings(out, genericTypeKeys);
+        writeClassName(out, factoryProductType);
+        writeStrings(out, productTypeKeys);
+        writeClassName(out, scopeAnnotation);
+        writeClassName(out, productScopeAnnotation);
+        if (constructorError != null){
+            out.writeByte(CONSTRUCTOR_ERROR);
+            out.writeUTF(constructorError.getMessage());
+        }else if (constructor != null){
+            out.writeByte(CONSTRUCTOR);
+            writeClasses(out, constructor.getParameterTypes());
+        }else{
+            out.writeByte(NO_CONSTRUCTOR);
+        }
+        out.writeInt(injectFields.length);
+        for (Field field : injectFields){
+            out.writeUTF(field.getName());
+        }
+        out.writeInt(valueFields.length);
+        for (Field field : valueFields){
+            out.writeUTF(field.getName());
+        }
+        out.writeInt(injectSetters.length);
+        for (Method setter : injectSetters){
+            out.writeUTF(setter.getName());
+            writeClasses(out, setter.getParameterTypes());
+        }
+        out.writeInt(initMethods.length + asyncInitMethods.length + destroyMethods.length);
+        for (Method[] methods : new Method[][]{initMethods, asyncInitMethods, destroyMethods}){
+            for (Method method : methods){
+                out.writeUTF(method.getName());
+            }
+        }
+        out.writeInt(listenerMethods.length);
+        for (Method method : listenerMethods){
+            out.writeUTF(method.getName());
+            writeClasses(out, method.getParameterTypes());
+        }
+        out.writeBoolean(cacheable);
+    }
+
+    static BeanMetadata read(DataInput in, Class<?> type) throws IOException, ReflectiveOperationException {
+        ClassLoader classLoader = type.getClassLoader();
+        Class[] allTypes = readClasses(in, classLoader);
+        String[] genericTypeKeys = readStrings(in);
+        Class factoryProductType = readClass(in, classLoader);
+        String[] productTypeKeys = readStrings(in);
+        Class<? extends Annotation> scopeAnnotation = readClass(in, classLoader);
+        Class<? extends Annotation> productScopeAnnotation = readClass(in, classLoader);
+        Constructor constructor = null;
+        RuntimeException constructorError = null;
+        byte constructorKind = in.readByte();
+        if (constructorKind == CONSTRUCTOR_ERROR){
+            constructorError = new MissingSuitableConstructorException(in.readUTF());
+        }else if (constructorKind == CONSTRUCTOR){
+            constructor = type.getConstructor(readClasses(in, classLoader));
+        }
+        Field[] injectFields = new Field[in.readInt()];
+        for (int i = 0; i < injectFields.length; i++){
+            injectFields[i] = type.getDeclaredField(in.readUTF());
+        }
+        Field[] valueFields = new Field[in.readInt()];
+        for (int i = 0; i < valueFields.length; i++){
+            valueFields[i] = type.getDeclaredField(in.readUTF());
+        }
+        Method[] injectSetters = new Method[in.readInt()];
+        for (int i = 0; i < injectSetters.length; i++){
+            injectSetters[i] = type.getDeclaredMethod(in.readUTF(), readClasses(in, classLoader));
+        }
+        //A method with both annotations is recorded twice.
+        Set<Method> lifecycleMethods = new LinkedHashSet<Method>();
+        for (int i = in.readInt(); i > 0; i--){
+            lifecycleMethods.add(type.getDeclaredMethod(in.readUTF()));
+        }
+        Method[] listenerMethods = new Method[in.readInt()];
+        for (int i = 0; i < listenerMethods.length; i++){
+            listenerMethods[i] = type.getDeclaredMethod(in.readUTF(), readClasses(in, classLoader));
+        }
+        return new BeanMetadata(type, allTypes, genericTypeKeys, factoryProductType, productTypeKeys, scopeAnnotation,
+                productScopeAnnotation, constructor,
+                constructorError, injectFields, valueFields, injectSetters, lifecycleMethods.toArray(new Method[]{}),
+                listenerMethods, in.readBoolean());
+    }
+
+    /**
+     * @return checksum of the class files of the bean type and of its recorded super types. A snapshot of the
+     * metadata is only valid while none of them changed.
+     */
+    long fingerprint() throws IOException {
+        CRC32 crc = new CRC32();
+        byte[] buffer = new byte[8192];
+        for (Class type : allTypes){
+            crc.update(type.getName().getBytes(StandardCharsets.UTF_8));
+            InputStream in = type.getResourceAsStream("/"+type.getName().replace('.', '/')+".class");
+            if (in == null){
+                continue;
+            }
+            try {
+                for (int read = in.read(buffer); read >= 0; read = in.read(buffer)){
+                    crc.update(buffer, 0, read);
+                }
+            } finally {
+                in.close();
+            }
+        }
+        return crc.getValue();
+    }
+
+    private static void writeClassName(DataOutput out, Class type) throws IOException {
+        out.writeUTF(type != null ? type.getName() : "");
+    }
+
+    private static void writeStrings(DataOutput out, String[] strings) throws IOException {
+        out.writeInt(strings.length);
+        for (String string : strings){
+            out.writeUTF(string);
+        }
+    }
+
+    private static String[] readStrings(DataInput in) throws IOException {
+        String[] strings = new String[in.readInt()];
+        for (int i = 0; i < strings.length; i++){
+            strings[i] = in.readUTF().intern();
+        }
+        return strings;
+    }
+
+    private static void writeClasses(DataOutput out, Class[] types) throws IOException {
+        out.writeInt(types.length);
+        for (Class type : types){
+            writeClassName(out, type);
+        }
+    }
+
+    private static Class readClass(DataInput in, ClassLoader classLoader) throws ClassNotFoundException, IOException {
+        String name = in.readUTF();
+        if (name.isEmpty()){
+            return null;
+        }
+        for (Class primitive : PRIMITIVES){
+            if (primitive.getName().equals(name)){
+                return primitive;
+            }
+        }
+        return Class.forName(name, false, classLoader);
+    }
+
+    private static Class[] readClasses(DataInput in, ClassLoader classLoader) throws ClassNotFoundException, IOException {
+        Class[] types = new Class[in.readInt()];
+        for (int i = 0; i < types.length; i++){
+            types[i] = readClass(in, classLoader);
+        }
+        return types;
+    }
+
+    private static String[] getGenericTypeKeys(List<Type> types) {
+        List<String> keys = new ArrayList<String>();
+        for (Type type : types){
+            String key = type instanceof ParameterizedType ? GenericTypes.key(type) : null;
+            if (key != null && !keys.contains(key) && !key.equals(GenericTypes.rawType(type).getName())){
+                keys.add(key);
+            }
+        }
+        return keys.toArray(new String[]{});
+    }
+
+    /**
+     * @param factoryType the BeanFactory type of the factory class, with its type argument resolved if it has one.
+     */
+    private static Type getProductType(Class type, Type factoryType) {
+        Type productType = factoryType instanceof ParameterizedType ?
+                ((ParameterizedType) factoryType).getActualTypeArguments()[0] : null;
+        if (!(productType instanceof Class) && !(productType instanceof ParameterizedType)){
+            throw new IllegalStateException("Unable to find the product type of factory: "+type.getName()+
+                    ". The type argument of BeanFactory has to be a class or a parameterized type");
+        }
+        return productType;
+    }
+
+    private static Method getProductMethod(Class type) {
+        try {
+            return AsyncBeanFactory.class.isAssignableFrom(type) ?
+                    type.getMethod("createInstanceAsync") : type.getMethod("createInstance");
+        } catch (NoSuchMethodException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String getName(Class type, Named named) {
+        return named != null ? named.value() : type.getName();
+    }
+
+    /**
+     * @return the key the context looks up the beans of a type with, followed by the qualifier if there is one.
+     * Keys with a qualifier are interned, so equal keys of different injection points are one instance.
+     */
+    static String key(Class type, String qualifier) {
+        return qualifier != null ? (type.getName() + qualifier).intern() : type.getName();
+    }
+
+    /**
+     * @return the qualifier of beans and injection points annotated with <code>@Named(name)</code>.
+     */
+    static String named(String name) {
+        return "@" + Named.class.getName() + "(" + name + ")";
+    }
+
+    /**
+     * @return the first annotation that is annotated with {@link Qualifier}, as its type name and member values.
+     */
+    private static String qualifierOf(Annotation[] annotations) {
+        for (Annotation annotation : annotations){
+            Class<? extends Annotation> annotationType = annotation.annotationType();
+            if (annotationType == Named.class){
+                return named(((Named) annotation).value());
+            }
+            if (!annotationType.isAnnotationPresent(Qualifier.class)){
+                continue;
+            }
+            Method[] members = annotationType.getDeclaredMethods();
+            Arrays.sort(members, new Comparator<Method>() {
+                @Override
+                public int compare(Method member1, Method member2) {
+                    return member1.getName().compareTo(member2.getName());
+                }
+            });
+            StringBuilder qualifier = new StringBuilder("@").append(annotationType.getName());
+            for (int i = 0; i < members.length; i++){
+                Object value;
+                try {
+                    members[i].setAccessible(true);
+                    value = members[i].invoke(annotation);
+                } catch (ReflectiveOperationException e) {
+                    throw new IllegalStateException(e);
+                }
+                qualifier.append(i == 0 ? "(" : ",").append(members[i].getName()).append('=')
+                        .append(value.getClass().isArray() ? Arrays.deepToString(new Object[]{value}) : String.valueOf(value));
+            }
+            return qualifier.append(members.length > 0 ? ")" : "").toString();
+        }
+        return null;
+    }
+
+    private static String[] getKeys(Type[] types, Annotation[][] annotations) {
+        String[] keys = new String[types.length];
+        for (int i = 0; i < types.length; i++){
+            //The generic types of some constructors leave out synthetic parameters, which come first.
+            int index = i + annotations.length - types.length;
+            keys[i] = getKey(types[i], index >= 0 ? annotations[index] : new Annotation[0]);
+        }
+        return keys;
+    }
+
+    /**
+     * @return the key of a bean, collection or provider injection point. The qualifier applies to the bean,
+     * the elements of the collection or the provided bean.
+     * @throws IllegalStateException if the bean type has a bounded wildcard, like <code>List&lt;? extends T&gt;</code>.
+     */
+    private static String getKey(Type type, Annotation[] annotations) {
+        Type beanType = getElementType(type);
+        if (beanType == null && type instanceof ParameterizedType && ((ParameterizedType) type).getRawType() == Provider.class){
+            beanType = ((ParameterizedType) type).getActualTypeArguments()[0];
+        }else if (beanType == null){
+            beanType = type;
+        }
+        if (GenericTypes.hasBoundedWildcard(beanType)){
+            throw new IllegalStateException("Not supported injection point type: "+type.getTypeName()+
+                    ". Beans are only found by their exact types, wildcards with bounds can't be resolved");
+        }
+        String typeKey = GenericTypes.key(beanType);
+        String qualifier = qualifierOf(annotations);
+        return typeKey != null && qualifier != null ? (typeKey + qualifier).intern() : typeKey;
+    }
+
+    /**
+     * @return the element type of a List, Set, Map&lt;String, T&gt; or array type, or null for any other type.
+     */
+    static Type getElementType(Type type) {
+        if (type instanceof Class){
+            return ((Class) type).isArray() ? ((Class) type).getComponentType() : null;
+        }
+        if (!(type instanceof ParameterizedType)){
+            return null;
+        }
+        ParameterizedType parameterizedType = (ParameterizedType) type;
+        Type rawType = parameterizedType.getRawType();
+        if (rawType == List.class || rawType == Set.class){
+            return parameterizedType.getActualTypeArguments()[0];
+        }
+        if (rawType == Map.class && parameterizedType.getActualTypeArguments()[0] == String.class){
+            return parameterizedType.getActualTypeArguments()[1];
+        }
+        return null;
+    }
+
+    /**
+     * @return the keys a bean of this type is looked up with: the names of all its types, the keys of its
+     * parameterized types and, with a qualifier, all of them with the qualifier.
+     * @param factory the metadata of the factory if the bean is a product, which adds the parameterized types of
+     * its type argument.
+     */
+    String[] getKeys(String qualifier, BeanMetadata factory) {
+        String[] unqualified = typeKeys;
+        if (factory != null && factory.productTypeKeys.length > 0){
+            Set<String> keys = new LinkedHashSet<String>(Arrays.asList(typeKeys));
+            keys.addAll(Arrays.asList(factory.productTypeKeys));
+            unqualified = keys.toArray(new String[]{});
+        }
+        if (qualifier == null){
+            return unqualified;
+        }
+        String[] keys = Arrays.copyOf(unqualified, unqualified.length * 2);
+        for (int i = 0; i < unqualified.length; i++){
+            keys[unqualified.length + i] = (unqualified[i] + qualifier).intern();
+        }
+        return keys;
+    }
+
+    private static Class<? extends Annotation> findScopeAnnotation(AnnotatedElement element) {
+        for (Annotation annotation : element.getAnnotations()){
+            Class<? extends Annotation> annotationType = annotation.annotationType();
+            if (annotationType != Singleton.class && annotationType.isAnnotationPresent(javax.inject.Scope.class)){
+                return annotationType;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return the constructor to instantiate the bean with, or null if the bean type should be created through
+     * its implicit no-arg constructor.
+     */
+    Constructor getConstructor() {
+        if (constructorError != null){
+            throw constructorError;
+        }
+        return constructor;
+    }
+
+    Type[] getConstructorParameterTypes() {
+        if (constructorError != null){
+            throw constructorError;
+        }
+        return constructorParameterTypes;
+    }
+
+    String[] getConstructorKeys() {
+        if (constructorError != null){
+            throw constructorError;
+        }
+        return constructorKeys;
+    }
+
+    BeanInjector getInjector() {
+        BeanInjector result = injector;
+        if (result == null){
+            result = new BeanInjector(this);
+            injector = result;
+        }
+        return result;
+    }
+
+    /**
+     * @return handles of the @EventListener methods, in the same order, adapted to <code>(Object, Object)void</code>.
+     */
+    MethodHandle[] getListenerHandles() {
+        MethodHandle[] result = listenerHandles;
+        if (result == null){
+            result = new MethodHandle[listenerMethods.length];
+            for (int i = 0; i < result.length; i++){
+                Method method = listenerMethods[i];
+                if (method.getParameterTypes().length != 1 || method.getParameterTypes()[0].isPrimitive()
+                        || Modifier.isStatic(method.getModifiers())){
+                    throw new SimpleApplicationContext.BeanInstatiationException(new IllegalStateException(
+                            "@EventListener method "+method+" has to be an instance method with a single event parameter"));
+                }
+                try {
+                    result[i] = MethodHandles.lookup().unreflect(method).asType(LISTENER_TYPE);
+                } catch (IllegalAccessException e) {
+                    throw new SimpleApplicationContext.BeanInstatiationException(e);
+                }
+            }
+            listenerHandles = result;
+        }
+        return result;
+    }
+
+    InterceptedType getInterceptedType() {
+        InterceptedType result = interceptedType;
+        if (result == null){
+            result = new InterceptedType(this);
+            interceptedType = result;
+        }
+        return result;
+    }
+
+    private static Constructor findConstructorToUse(Class beanType) {
+        Constructor constructorToUse = null;
+        boolean hasConstructors = false;
+        boolean hasMoreThanOneConstructorsWithoutInject = false;
+        for (Constructor constructor : beanType.getConstructors()){
+            if (constructorToUse == null){
+                constructorToUse = constructor;
+            }else{
+                if (constructorToUse.getAnnotation(Inject.class) == null){
+                    if (constructor.getAnnotation(Inject.class) != null){
+                        constructorToUse = constructor;
+                    }else {
+                        hasMoreThanOneConstructorsWithoutInject = true;
+                    }
+                }else{
+                    if (constructor.getAnnotation(Inject.class) != null){
+                        throw new MissingSuitableConstructorException("Found more than one constructors with @Inject in class:"+beanType+"." +
+                                " Cannot create instance of this bean");
+                    }
+                }
+            }
+        }
+        if (constructorToUse == null && hasConstructors){
+            throw new MissingSuitableConstructorException("Cannot instantiate bean: "+beanType+". The bean must have either no constructor, or single constructor, or single constructor annotated with @Inject");
+        }
+        if (constructorToUse != null && constructorToUse.getAnnotation(Inject.class) == null){
+            if (hasMoreThanOneConstructorsWithoutInject){
+                throw new MissingSuitableConstructorException("Cannot instantiate bean of type: "+beanType+", because a suitable constructor wasn't found. " +
+                        "There should be one of the following: no constructor at all, only one constructor, only one constructor annotated with @Inject");
+            }
+        }
+        return constructorToUse;
+    }
+}
@@ -0,0 +1,86 @@
+package com.sample;
+
+/**
+ * Startup timings of a single bean. All durations are in nanoseconds.
+ */
+public class BeanTiming {
+
+    private final Class beanType;
+    private final Class[] dependencies;
+    private final long resolveNanos;
+    private final long instantiateNanos;
+    private final long injectNanos;
+    private final long reflectionNanos;
+    private final int depth;
+
+    public BeanTiming(Class beanType, Class[] dependencies, long resolveNanos, long instantiateNanos, long injectNanos,
+                      long reflectionNanos, int depth) {
+        this.beanType = beanType;
+        this.dependencies = dependencies;
+        this.resolveNanos = resolveNanos;
+        this.instantiateNanos = instantiateNanos;
+        this.injectNanos = injectNanos;
+        this.reflectionNanos = reflectionNanos;
+        this.depth = depth;
+    }
+
+    public Class getBeanType() {
+        return beanType;
+    }
+
+    /**
+     * @return the bean types this bean depends on.
+     */
+    public Class[] getDependencies() {
+        return dependencies;
+    }
+
+    /**
+     * @return time from the start of the bean's resolution until it was injected, including dependencies that were
+     * resolved on the way.
+     */
+    public long getResolveNanos() {
+        return resolveNanos;
+    }
+
+    /**
+     * @return time spent in the constructor, or in the createInstance() of the bean's factory.
+     */
+    public long getInstantiateNanos() {
+        return instantiateNanos;
+    }
+
+    /**
+     * @return time spent writing @Inject fields and calling @Inject setters, not counting the resolution of their values.
+     */
+    public long getInjectNanos() {
+        return injectNanos;
+    }
+
+    /**
+     * @return time spent scanning the bean type. Zero for types whose metadata was cached by an earlier context.
+     */
+    public long getReflectionNanos() {
+        return reflectionNanos;
+    }
+
+    /**
+     * @return the time the bean itself took: instantiation plus injection.
+     */
+    public long getSelfNanos() {
+        return instantiateNanos + injectNanos;
+    }
+
+    /**
+     * @return length of the longest dependency chain below the bean. Zero for beans without dependencies.
+     */
+    public int getDepth() {
+        return depth;
+    }
+
+    @Override
+    public String toString() {
+        return beanType.getName()+" (self: "+getSelfNanos()/1000+"us, resolve: "+resolveNanos/1000+"us, reflection: "+
+                reflectionNanos/1000+"us, depth: "+depth+")";
+    }
+}
@@ -0,0 +1,54 @@
+package com.sample;
+
+/**
+ * Counters of a {@link Cacheable} method, taken at one point in time.
+ */
+public class CacheStatistics {
+
+    private final long hitCount;
+    private final long missCount;
+    private final long evictionCount;
+    private final int size;
+
+    public CacheStatistics(long hitCount, long missCount, long evictionCount, int size) {
+        this.hitCount = hitCount;
+        this.missCount = missCount;
+        this.evictionCount = evictionCount;
+        this.size = size;
+    }
+
+    public long getHitCount() {
+        return hitCount;
+    }
+
+    /**
+     * @return calls that found no result, or an expired one, and called the method.
+     */
+    public long getMissCount() {
+        return missCount;
+    }
+
+    /**
+     * @return results that were removed because the cache was full or because they expired.
+     */
+    public long getEvictionCount() {
+        return evictionCount;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * @return share of the calls that were served from the cache, 1 if there were none.
+     */
+    public double getHitRate() {
+        long calls = hitCount + missCount;
+        return calls == 0 ? 1 : (double) hitCount / calls;
+    }
+
+    @Override
+    public String toString() {
+        return "CacheStatistics{hits="+hitCount+", misses="+missCount+", evictions="+evictionCount+", size="+size+"}";
+    }
+}
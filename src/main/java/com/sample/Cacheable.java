@@ -0,0 +1,28 @@
+package com.sample;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Caches the results of a method by its arguments, or of all interceptable methods of a bean class. Every method
+ * of a bean gets its own bounded cache, which evicts the least recently used results when it is full, and results
+ * older than <code>expireAfterWriteMillis</code> if it is positive. Only singletons can be cacheable, so results
+ * never pass from one instance to another, and a singleton that is registered again starts with empty caches. Arguments
+ * are compared with equals(), arrays by their content. Null results are cached, exceptions are not, and void
+ * methods are never cached. Two calls that miss the same key at the same time both call the method.
+ * <p>
+ * The bean class needs an intercepted subclass like any {@link InterceptorBinding}, but no interceptor has to be
+ * added to the context. An annotation on the method overrides the one on the class, and
+ * {@link ContextConfiguration#setCacheLimits(Class, int, long, java.util.concurrent.TimeUnit)} overrides both for
+ * a bean class. See {@link SimpleApplicationContext#getCacheStatistics()}.
+ */
+@InterceptorBinding
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.METHOD, ElementType.TYPE})
+public @interface Cacheable {
+    int maximumSize() default 1000;
+
+    long expireAfterWriteMillis() default 0;
+}
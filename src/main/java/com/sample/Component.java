@@ -0,0 +1,17 @@
+package com.sample;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a bean class to be found by {@link ComponentScanner}.
+ * With the processor of the <code>tiny-dependency-injection-processor</code> module on the annotation processor
+ * path, the annotated classes are also listed in the {@link ComponentScanner#INDEX} of the compiled classes, so
+ * scanning does not have to load every class of a package.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface Component {
+}
@@ -0,0 +1,270 @@
+package com.sample;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.JarURLConnection;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+/**
+ * Finds the {@link Component} classes of packages and their sub packages, to be passed to {@link SimpleApplicationContext}.
+ * <p>
+ * Every classpath root, a directory or a jar, is read from its {@link #INDEX} when it has one, without loading any
+ * class that is not a component. A root without an index, or a directory whose index lists a class file that no
+ * longer exists, is scanned instead: its class files are listed with NIO and loaded and checked in parallel.
+ * Classes that are compiled into a directory without the processor are not added to its index, so such builds
+ * should delete the index.
+ */
+public final class ComponentScanner {
+
+    /**
+     * Resource that lists the binary names of the components of a classpath root, one per line.
+     * Written by the annotation processor of the <code>tiny-dependency-injection-processor</code> module.
+     */
+    public static final String INDEX = "META-INF/com.sample.components";
+
+    private static final String CLASS_SUFFIX = ".class";
+    //Class names that are loaded and checked by a single task during a scan.
+    private static final int CLASSES_PER_TASK = 64;
+
+    private ComponentScanner() {
+    }
+
+    public static Class[] scan(String... packages) {
+        ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+        return scan(classLoader != null ? classLoader : ComponentScanner.class.getClassLoader(), packages);
+    }
+
+    /**
+     * @return the components found in the given packages, ordered by name.
+     */
+    public static Class[] scan(ClassLoader classLoader, String... packages) {
+        Set<String> componentNames = new TreeSet<String>();
+        List<String> candidateNames = new ArrayList<String>();
+        List<Callable<List<String>>> listings = new ArrayList<Callable<List<String>>>();
+        for (String packageName : packages){
+            String packagePath = packageName.replace('.', '/');
+            for (final URL packageUrl : getResources(classLoader, packagePath)){
+                List<String> indexed = readIndex(packageUrl, packagePath);
+                if (indexed != null){
+                    addInPackage(componentNames, indexed, packageName);
+                    continue;
+                }
+                final String scannedPackage = packageName;
+                listings.add(new Callable<List<String>>() {
+                    @Override
+                    public List<String> call() throws IOException {
+                        return listClasses(packageUrl, scannedPackage);
+                    }
+                });
+            }
+        }
+        for (List<String> listed : invokeAll(listings)){
+            candidateNames.addAll(listed);
+        }
+        componentNames.addAll(findComponents(classLoader, candidateNames));
+        Class[] components = new Class[componentNames.size()];
+        int i = 0;
+        for (String componentName : componentNames){
+            components[i++] = loadClass(classLoader, componentName);
+        }
+        return components;
+    }
+
+    private static List<URL> getResources(ClassLoader classLoader, String path) {
+        try {
+            return Collections.list(classLoader.getResources(path));
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to find the classpath roots of: "+path, e);
+        }
+    }
+
+    private static void addInPackage(Set<String> componentNames, List<String> classNames, String packageName) {
+        for (String className : classNames){
+            if (className.startsWith(packageName+".")){
+                componentNames.add(className);
+            }
+        }
+    }
+
+    /**
+     * @return the index of the classpath root of the given package, or null when the root has no index or the index
+     * is stale. The index of a jar is built with the jar, the index of a directory is checked against its class files.
+     * Class file times can't tell a stale index, javac writes the class files after the processor wrote the index.
+     */
+    private static List<String> readIndex(URL packageUrl, String packagePath) {
+        try {
+            if ("jar".equals(packageUrl.getProtocol())){
+                URLConnection connection = packageUrl.openConnection();
+                connection.setUseCaches(false);
+                URL jarUrl = ((JarURLConnection) connection).getJarFileURL();
+                return readLines(new URL("jar:"+jarUrl+"!/"+INDEX));
+            }
+            if ("file".equals(packageUrl.getProtocol())){
+                File packageDir = new File(packageUrl.toURI());
+                File root = packageDir;
+                for (int i = packagePath.split("/").length; i > 0; i--){
+                    root = root.getParentFile();
+                }
+                File index = new File(root, INDEX);
+                if (!index.isFile()){
+                    return null;
+                }
+                List<String> classNames = readLines(index.toURI().toURL());
+                for (String className : classNames){
+                    if (!new File(root, className.replace('.', '/')+CLASS_SUFFIX).isFile()){
+                        return null; //a listed component was deleted.
+                    }
+                }
+                return classNames;
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to read the component index of: "+packageUrl, e);
+        } catch (URISyntaxException e) {
+            throw new RuntimeException("Failed to read the component index of: "+packageUrl, e);
+        }
+        return null;
+    }
+
+    private static List<String> readLines(URL url) throws IOException {
+        InputStream in;
+        try {
+            URLConnection connection = url.openConnection();
+            connection.setUseCaches(false);
+            in = connection.getInputStream();
+        } catch (IOException e) {
+            return null; //no index in this root.
+        }
+        List<String> lines = new ArrayList<String>();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        try {
+            for (String line = reader.readLine(); line != null; line = reader.readLine()){
+                line = line.trim();
+                if (!line.isEmpty() && !line.startsWith("#")){
+                    lines.add(line);
+                }
+            }
+        } finally {
+            reader.close();
+        }
+        return lines;
+    }
+
+    /**
+     * @return the names of all classes in the given package and its sub packages, read from the directory or
+     * jar of the package URL.
+     */
+    private static List<String> listClasses(URL packageUrl, String packageName) throws IOException {
+        try {
+            if ("jar".equals(packageUrl.getProtocol())){
+                URLConnection connection = packageUrl.openConnection();
+                connection.setUseCaches(false);
+                Path jarFile = Paths.get(((JarURLConnection) connection).getJarFileURL().toURI());
+                //A file system of its own, so concurrent scans of the same jar don't close each other's.
+                FileSystem jar = FileSystems.newFileSystem(jarFile, (ClassLoader) null);
+                try {
+                    return listClasses(jar.getPath("/"+packageName.replace('.', '/')), packageName);
+                } finally {
+                    jar.close();
+                }
+            }
+            return listClasses(Paths.get(packageUrl.toURI()), packageName);
+        } catch (URISyntaxException e) {
+            throw new IOException(e);
+        }
+    }
+
+    private static List<String> listClasses(Path packageDir, String packageName) throws IOException {
+        List<String> classNames = new ArrayList<String>();
+        Stream<Path> files = Files.walk(packageDir);
+        try {
+            Iterator<Path> iterator = files.iterator();
+            while (iterator.hasNext()){
+                Path file = iterator.next();
+                String relative = packageDir.relativize(file).toString();
+                if (relative.endsWith(CLASS_SUFFIX) && !relative.endsWith("package-info.class")){
+                    String className = relative.substring(0, relative.length() - CLASS_SUFFIX.length())
+                            .replace(file.getFileSystem().getSeparator(), ".");
+                    classNames.add(packageName.isEmpty() ? className : packageName+"."+className);
+                }
+            }
+        } finally {
+            files.close();
+        }
+        return classNames;
+    }
+
+    private static List<String> findComponents(final ClassLoader classLoader, List<String> classNames) {
+        List<Callable<List<String>>> checks = new ArrayList<Callable<List<String>>>();
+        for (int start = 0; start < classNames.size(); start += CLASSES_PER_TASK){
+            final List<String> batch = classNames.subList(start, Math.min(start + CLASSES_PER_TASK, classNames.size()));
+            checks.add(new Callable<List<String>>() {
+                @Override
+                public List<String> call() {
+                    List<String> components = new ArrayList<String>();
+                    for (String className : batch){
+                        Class type;
+                        try {
+                            type = Class.forName(className, false, classLoader);
+                        } catch (ClassNotFoundException e) {
+                            continue;
+                        } catch (LinkageError e) {
+                            continue; //classes that can't be linked on this classpath are never components.
+                        }
+                        if (type.isAnnotationPresent(Component.class)){
+                            components.add(className);
+                        }
+                    }
+                    return components;
+                }
+            });
+        }
+        List<String> components = new ArrayList<String>();
+        for (List<String> found : invokeAll(checks)){
+            components.addAll(found);
+        }
+        return components;
+    }
+
+    private static <T> List<T> invokeAll(List<Callable<T>> tasks) {
+        if (tasks.isEmpty()){
+            return Collections.emptyList();
+        }
+        List<T> results = new ArrayList<T>();
+        try {
+            for (Future<T> future : ForkJoinPool.commonPool().invokeAll(tasks)){
+                results.add(future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Failed to scan the classpath", e.getCause());
+        }
+        return results;
+    }
+
+    private static Class loadClass(ClassLoader classLoader, String className) {
+        try {
+            return Class.forName(className, false, classLoader);
+        } catch (ClassNotFoundException e) {
+            throw new SimpleApplicationContext.UndefinedBeanException("Component listed in "+INDEX+" not found: "+className);
+        }
+    }
+}
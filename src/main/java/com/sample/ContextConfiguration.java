@@ -0,0 +1,271 @@
+package com.sample;
+
+import java.io.File;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Optional settings of a {@link SimpleApplicationContext}.
+ * The defaults give the plain reflective behaviour of {@link SimpleApplicationContext#SimpleApplicationContext(Class[], Object[])}.
+ */
+public class ContextConfiguration {
+
+    private boolean generatedInjectors = false;
+    private boolean parallelStartup = false;
+    private boolean lazyInit = false;
+    private ExecutorService startupExecutor = ForkJoinPool.commonPool();
+    private StartupListener startupListener = null;
+    private File snapshotFile = null;
+    private long startupTimeoutNanos = 0;
+    private long shutdownTimeoutNanos = 0;
+    private final Map<Class<? extends Annotation>, Scope> scopes = new HashMap<Class<? extends Annotation>, Scope>();
+    private final List<MethodMatcher> interceptorMatchers = new ArrayList<MethodMatcher>();
+    private final List<MethodInterceptor> interceptors = new ArrayList<MethodInterceptor>();
+    //Bean class to {maximum size, expiry in nanoseconds} of its caches.
+    private final Map<Class, long[]> cacheLimits = new HashMap<Class, long[]>();
+    private LongSupplier cacheTicker = null;
+    private final List<File> propertiesFiles = new ArrayList<File>();
+    private int asyncEventQueueCapacity = 1024;
+    private int asyncEventThreads = 1;
+
+    public ContextConfiguration() {
+        scopes.put(Prototype.class, Scopes.PROTOTYPE);
+        scopes.put(ThreadScoped.class, Scopes.THREAD);
+        scopes.put(RequestScoped.class, new RequestScope());
+    }
+
+    /**
+     * When enabled, beans are constructed and injected through accessors that are generated once per bean type
+     * and shared by all contexts, instead of scanning and invoking the bean type reflectively for every bean.
+     */
+    public ContextConfiguration setGeneratedInjectors(boolean generatedInjectors) {
+        this.generatedInjectors = generatedInjectors;
+        return this;
+    }
+
+    public boolean isGeneratedInjectors() {
+        return generatedInjectors;
+    }
+
+    /**
+     * When enabled, the context analyzes the whole dependency graph up front and then creates all beans that
+     * do not depend on each other concurrently, one graph level at a time.
+     * Errors are reported the same way as in sequential startup.
+     * Injected {@link javax.inject.Provider}s don't order the beans. A provider that is called during startup waits
+     * for its bean if another thread is creating it.
+     */
+    public ContextConfiguration setParallelStartup(boolean parallelStartup) {
+        this.parallelStartup = parallelStartup;
+        return this;
+    }
+
+    public boolean isParallelStartup() {
+        return parallelStartup;
+    }
+
+    /**
+     * When enabled, the context only indexes the bean definitions on startup, and a bean together with its
+     * dependencies is created on the first {@link ApplicationContext#getBean(Class)} call that needs it.
+     * Single beans can override this mode with {@link Lazy}.
+     */
+    public ContextConfiguration setLazyInit(boolean lazyInit) {
+        this.lazyInit = lazyInit;
+        return this;
+    }
+
+    public boolean isLazyInit() {
+        return lazyInit;
+    }
+
+    /**
+     * The executor that creates beans during parallel startup, runs async {@link PostConstruct} methods and destroys
+     * beans when the context is closed. Defaults to the common {@link ForkJoinPool}.
+     */
+    public ContextConfiguration setStartupExecutor(ExecutorService startupExecutor) {
+        this.startupExecutor = startupExecutor;
+        return this;
+    }
+
+    public ExecutorService getStartupExecutor() {
+        return startupExecutor;
+    }
+
+    /**
+     * Receives the timings of every singleton bean the context creates. Startup only reads the clock while a listener
+     * is set. {@link StartupReport} collects the timings and lists the slowest beans and the critical path.
+     */
+    public ContextConfiguration setStartupListener(StartupListener startupListener) {
+        this.startupListener = startupListener;
+        return this;
+    }
+
+    public StartupListener getStartupListener() {
+        return startupListener;
+    }
+
+    /**
+     * A file that keeps the analyzed bean graph between starts. When the file matches the beans of the context, the
+     * context is built from it and creates the eager beans in the recorded order, without scanning the bean types.
+     * Otherwise the beans are analyzed as usual and the file is written once the context started.
+     */
+    public ContextConfiguration setSnapshotFile(File snapshotFile) {
+        this.snapshotFile = snapshotFile;
+        return this;
+    }
+
+    public File getSnapshotFile() {
+        return snapshotFile;
+    }
+
+    /**
+     * The time the constructor of the context may take to wait for the products of {@link AsyncBeanFactory}s and
+     * for async {@link PostConstruct} methods. When it passes, startup fails with a
+     * {@link SimpleApplicationContext.StartupTimeoutException} that lists the beans that are not done, and their
+     * futures are cancelled. Zero, the default, waits without a limit.
+     */
+    public ContextConfiguration setStartupTimeout(long timeout, TimeUnit unit) {
+        this.startupTimeoutNanos = unit.toNanos(timeout);
+        return this;
+    }
+
+    public long getStartupTimeoutNanos() {
+        return startupTimeoutNanos;
+    }
+
+    /**
+     * The time {@link ApplicationContext#close()} waits for the {@link PreDestroy} methods. When it passes, close fails
+     * with a {@link SimpleApplicationContext.BeanDestructionException} that lists the beans that are not destroyed,
+     * and leaves them to the executor. Zero, the default, waits without a limit.
+     */
+    public ContextConfiguration setShutdownTimeout(long timeout, TimeUnit unit) {
+        this.shutdownTimeoutNanos = unit.toNanos(timeout);
+        return this;
+    }
+
+    public long getShutdownTimeoutNanos() {
+        return shutdownTimeoutNanos;
+    }
+
+    /**
+     * Intercepts the methods annotated with the given {@link InterceptorBinding}, and all interceptable methods of bean
+     * classes annotated with it.
+     * @see #addInterceptor(MethodMatcher, MethodInterceptor)
+     */
+    public ContextConfiguration addInterceptor(final Class<? extends Annotation> binding, MethodInterceptor interceptor) {
+        return addInterceptor(new MethodMatcher() {
+            @Override
+            public boolean matches(Method method) {
+                return method.isAnnotationPresent(binding) || method.getDeclaringClass().isAnnotationPresent(binding);
+            }
+        }, interceptor);
+    }
+
+    /**
+     * Intercepts the interceptable methods that the matcher accepts, in the beans the context creates from their
+     * classes. Only the methods that have an {@link InterceptorBinding} can be intercepted, and factory products
+     * and singletons given as instances are never intercepted. The interceptors of a method are called in the order
+     * they were added, and methods without interceptors are called directly.
+     */
+    public ContextConfiguration addInterceptor(MethodMatcher matcher, MethodInterceptor interceptor) {
+        interceptorMatchers.add(matcher);
+        interceptors.add(interceptor);
+        return this;
+    }
+
+    /**
+     * Sets the limits of all {@link Cacheable} methods of a bean class, instead of the ones of their annotations.
+     * @param expireAfterWrite 0 if results don't expire.
+     */
+    public ContextConfiguration setCacheLimits(Class beanType, int maximumSize, long expireAfterWrite, TimeUnit unit) {
+        if (maximumSize < 1){
+            throw new IllegalArgumentException("Maximum cache size must be positive: "+maximumSize);
+        }
+        cacheLimits.put(beanType, new long[]{maximumSize, unit.toNanos(expireAfterWrite)});
+        return this;
+    }
+
+    /**
+     * Sets the time source of the expiry of {@link Cacheable} results, in nanoseconds like System.nanoTime(), which
+     * is the default. Mostly for tests that move the time by hand.
+     */
+    public ContextConfiguration setCacheTicker(LongSupplier cacheTicker) {
+        this.cacheTicker = cacheTicker;
+        return this;
+    }
+
+    public LongSupplier getCacheTicker() {
+        return cacheTicker;
+    }
+
+    /**
+     * Adds a properties file for {@link Value} fields. Files added later override the properties of earlier ones,
+     * and system properties and environment variables override all files.
+     */
+    public ContextConfiguration addPropertiesFile(File propertiesFile) {
+        propertiesFiles.add(propertiesFile);
+        return this;
+    }
+
+    public List<File> getPropertiesFiles() {
+        return propertiesFiles;
+    }
+
+    /**
+     * Sizes the delivery of async {@link EventListener}s: the events wait in a queue of the given capacity for the
+     * given number of event threads, which start with the first async event. Publishers block while the queue is
+     * full. The defaults are a queue of 1024 events and a single thread, which keeps the order of the events.
+     */
+    public ContextConfiguration setAsyncEvents(int queueCapacity, int threads) {
+        if (queueCapacity < 1 || threads < 1){
+            throw new IllegalArgumentException("Queue capacity and threads must be positive: "+queueCapacity+", "+threads);
+        }
+        this.asyncEventQueueCapacity = queueCapacity;
+        this.asyncEventThreads = threads;
+        return this;
+    }
+
+    public int getAsyncEventQueueCapacity() {
+        return asyncEventQueueCapacity;
+    }
+
+    public int getAsyncEventThreads() {
+        return asyncEventThreads;
+    }
+
+    long[] getCacheLimits(Class beanType) {
+        return cacheLimits.get(beanType);
+    }
+
+    List<MethodMatcher> getInterceptorMatchers() {
+        return interceptorMatchers;
+    }
+
+    List<MethodInterceptor> getInterceptors() {
+        return interceptors;
+    }
+
+    /**
+     * Binds a scope annotation, itself annotated with {@link javax.inject.Scope}, to its implementation.
+     * {@link Prototype}, {@link ThreadScoped} and {@link RequestScoped} are bound by default.
+     */
+    public ContextConfiguration registerScope(Class<? extends Annotation> scopeAnnotation, Scope scope) {
+        scopes.put(scopeAnnotation, scope);
+        return this;
+    }
+
+    /**
+     * @return the scope bound to the given annotation, or null. Use <code>getScope(RequestScoped.class)</code> to get the
+     * {@link RequestScope} that starts and ends requests.
+     */
+    public Scope getScope(Class<? extends Annotation> scopeAnnotation) {
+        return scopes.get(scopeAnnotation);
+    }
+}
@@ -0,0 +1,483 @@
+package com.sample;
+
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * The beans of a context and their dependencies, as analyzed by {@link SimpleApplicationContext#getDependencyGraph()}.
+ * Beans are numbered from 0 to <code>size() - 1</code>. A dependency is an injection point that has to be resolved
+ * before the bean is created, a provider dependency is an injected {@link javax.inject.Provider}, which doesn't order
+ * the beans. Dependencies on beans of a parent context are left out.
+ * <p>
+ * All analyses are computed once, without recursion, in time linear in the number of beans and dependencies.
+ * <code>toString()</code> prints a summary, {@link #writeDot(Appendable)} and {@link #writeJson(Appendable)} export
+ * the whole graph.
+ */
+public final class DependencyGraph {
+
+    private final String[] names;
+    private final Class[] beanTypes;
+    private final boolean[] created;
+    private final int[][] dependencies;
+    private final int[][] providerDependencies;
+    private final int[][] dependents;
+    private final int[] depths;
+    private final boolean[] inCycle;
+    private final List<int[]> cycles = new ArrayList<int[]>();
+    private final int[] criticalChain;
+
+    DependencyGraph(String[] names, Class[] beanTypes, boolean[] created, int[][] dependencies, int[][] providerDependencies) {
+        this.names = names;
+        this.beanTypes = beanTypes;
+        this.created = created;
+        this.dependencies = dependencies;
+        this.providerDependencies = providerDependencies;
+        this.dependents = invert(names.length, dependencies, providerDependencies);
+        this.depths = new int[names.length];
+        this.inCycle = new boolean[names.length];
+        analyzeComponents();
+        this.criticalChain = findCriticalChain();
+    }
+
+    private static int[][] invert(int size, int[][] dependencies, int[][] providerDependencies) {
+        int[] counts = new int[size];
+        for (int bean = 0; bean < size; bean++){
+            for (int dependency : dependencies[bean]){
+                counts[dependency]++;
+            }
+            for (int dependency : providerDependencies[bean]){
+                counts[dependency]++;
+            }
+        }
+        int[][] dependents = new int[size][];
+        for (int bean = 0; bean < size; bean++){
+            dependents[bean] = new int[counts[bean]];
+            counts[bean] = 0;
+        }
+        for (int bean = 0; bean < size; bean++){
+            for (int dependency : dependencies[bean]){
+                dependents[dependency][counts[dependency]++] = bean;
+            }
+            for (int dependency : providerDependencies[bean]){
+                dependents[dependency][counts[dependency]++] = bean;
+            }
+        }
+        return dependents;
+    }
+
+    /**
+     * Tarjan's algorithm with an explicit stack. Components are completed after all components they depend on,
+     * so the depth of a bean is computed when its component is completed.
+     */
+    private void analyzeComponents() {
+        int size = names.length;
+        int[] index = new int[size];
+        int[] low = new int[size];
+        int[] next = new int[size];
+        boolean[] onStack = new boolean[size];
+        int[] stack = new int[size];
+        int[] path = new int[size];
+        Arrays.fill(index, -1);
+        int counter = 0;
+        int stackSize = 0;
+        for (int root = 0; root < size; root++){
+            if (index[root] >= 0){
+                continue;
+            }
+            int pathSize = 0;
+            path[pathSize++] = root;
+            index[root] = low[root] = counter++;
+            stack[stackSize++] = root;
+            onStack[root] = true;
+            while (pathSize > 0){
+                int bean = path[pathSize - 1];
+                if (next[bean] < dependencies[bean].length){
+                    int dependency = dependencies[bean][next[bean]++];
+                    if (index[dependency] < 0){
+                        index[dependency] = low[dependency] = counter++;
+                        stack[stackSize++] = dependency;
+                        onStack[dependency] = true;
+                        path[pathSize++] = dependency;
+                    }else if (onStack[dependency]){
+                        low[bean] = Math.min(low[bean], index[dependency]);
+                    }
+                    continue;
+                }
+                pathSize--;
+                if (pathSize > 0){
+                    int caller = path[pathSize - 1];
+                    low[caller] = Math.min(low[caller], low[bean]);
+                }
+                if (low[bean] != index[bean]){
+                    continue;
+                }
+                int start = stackSize;
+                do {
+                    onStack[stack[--start]] = false;
+                } while (stack[start] != bean);
+                int[] component = Arrays.copyOfRange(stack, start, stackSize);
+                stackSize = start;
+                completeComponent(component);
+            }
+        }
+    }
+
+    private void completeComponent(int[] component) {
+        int bean = component[0];
+        if (component.length > 1 || contains(dependencies[bean], bean)){
+            for (int member : component){
+                inCycle[member] = true;
+                depths[member] = -1;
+            }
+            cycles.add(findCycle(component));
+            return;
+        }
+        int depth = 0;
+        for (int dependency : dependencies[bean]){
+            if (depths[dependency] < 0){
+                depth = -1;
+                break;
+            }
+            depth = Math.max(depth, depths[dependency] + 1);
+        }
+        depths[bean] = depth;
+    }
+
+    /**
+     * @return the shortest path from the first bean of a cyclic component back to itself, found breadth first.
+     */
+    private int[] findCycle(int[] component) {
+        Map<Integer, Integer> previous = new HashMap<Integer, Integer>();
+        Set<Integer> members = new HashSet<Integer>();
+        for (int member : component){
+            members.add(member);
+        }
+        int start = component[0];
+        Deque<Integer> queue = new ArrayDeque<Integer>();
+        queue.add(start);
+        while (!queue.isEmpty()){
+            int bean = queue.poll();
+            for (int dependency : dependencies[bean]){
+                if (dependency == start){
+                    LinkedList<Integer> cycle = new LinkedList<Integer>();
+                    cycle.add(start);
+                    for (Integer current = bean; current != null; current = previous.get(current)){
+                        cycle.addFirst(current);
+                    }
+                    int[] result = new int[cycle.size()];
+                    for (int i = 0; i < result.length; i++){
+                        result[i] = cycle.get(i);
+                    }
+                    return result;
+                }
+                if (members.contains(dependency) && !previous.containsKey(dependency)){
+                    previous.put(dependency, bean);
+                    queue.add(dependency);
+                }
+            }
+        }
+        throw new IllegalStateException("No cycle in component of bean: "+names[start]);
+    }
+
+    private int[] findCriticalChain() {
+        int top = -1;
+        for (int bean = 0; bean < depths.length; bean++){
+            if (depths[bean] >= 0 && (top < 0 || depths[bean] > depths[top])){
+                top = bean;
+            }
+        }
+        if (top < 0){
+            return new int[0];
+        }
+        int[] chain = new int[depths[top] + 1];
+        int bean = top;
+        for (int i = chain.length - 1; i >= 0; i--){
+            chain[i] = bean;
+            for (int dependency : dependencies[bean]){
+                if (depths[dependency] == depths[bean] - 1){
+                    bean = dependency;
+                    break;
+                }
+            }
+        }
+        return chain;
+    }
+
+    private static boolean contains(int[] values, int value) {
+        for (int current : values){
+            if (current == value){
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public int size() {
+        return names.length;
+    }
+
+    /**
+     * @return the index of the bean with the given name, or -1.
+     */
+    public int indexOf(String name) {
+        for (int bean = 0; bean < names.length; bean++){
+            if (names[bean].equals(name)){
+                return bean;
+            }
+        }
+        return -1;
+    }
+
+    public String getName(int bean) {
+        return names[bean];
+    }
+
+    public Class getBeanType(int bean) {
+        return beanTypes[bean];
+    }
+
+    /**
+     * @return true if the context has created the bean, false for scoped beans and lazy beans nobody requested yet.
+     */
+    public boolean isCreated(int bean) {
+        return created[bean];
+    }
+
+    public int[] getDependencies(int bean) {
+        return dependencies[bean].clone();
+    }
+
+    public int[] getProviderDependencies(int bean) {
+        return providerDependencies[bean].clone();
+    }
+
+    /**
+     * @return the beans that depend on the bean, also through providers.
+     */
+    public int[] getDependents(int bean) {
+        return dependents[bean].clone();
+    }
+
+    public int getFanIn(int bean) {
+        return dependents[bean].length;
+    }
+
+    public int getFanOut(int bean) {
+        return dependencies[bean].length + providerDependencies[bean].length;
+    }
+
+    /**
+     * @return length of the longest dependency chain below the bean, or -1 if the bean is on a cycle or depends on one.
+     */
+    public int getDepth(int bean) {
+        return depths[bean];
+    }
+
+    public boolean isInCycle(int bean) {
+        return inCycle[bean];
+    }
+
+    /**
+     * @return one cycle of every group of beans that depend on each other, as the bean names from a bean back to itself.
+     */
+    public List<List<String>> getCycles() {
+        List<List<String>> result = new ArrayList<List<String>>();
+        for (int[] cycle : cycles){
+            result.add(toNames(cycle));
+        }
+        return result;
+    }
+
+    /**
+     * @return the longest dependency chain, from the bean that has to be created first to the bean that waits for all
+     * others. Startup creates these beans one after the other, however many threads it uses.
+     */
+    public List<String> getCriticalChain() {
+        return toNames(criticalChain);
+    }
+
+    /**
+     * @return the beans nothing depends on that the context never created: definitions that are neither injected
+     * nor looked up.
+     */
+    public List<String> getUnusedBeans() {
+        List<String> unused = new ArrayList<String>();
+        for (int bean = 0; bean < names.length; bean++){
+            if (dependents[bean].length == 0 && !created[bean]){
+                unused.add(names[bean]);
+            }
+        }
+        return unused;
+    }
+
+    /**
+     * @return the <code>count</code> beans with the most dependents, highest first.
+     */
+    public List<String> getHighestFanIn(int count) {
+        return highest(count, true);
+    }
+
+    /**
+     * @return the <code>count</code> beans with the most dependencies, highest first.
+     */
+    public List<String> getHighestFanOut(int count) {
+        return highest(count, false);
+    }
+
+    private List<String> highest(int count, final boolean fanIn) {
+        Integer[] beans = new Integer[names.length];
+        for (int bean = 0; bean < beans.length; bean++){
+            beans[bean] = bean;
+        }
+        Arrays.sort(beans, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer bean1, Integer bean2) {
+                return fanIn ? Integer.compare(getFanIn(bean2), getFanIn(bean1)) : Integer.compare(getFanOut(bean2), getFanOut(bean1));
+            }
+        });
+        List<String> result = new ArrayList<String>();
+        for (int i = 0; i < Math.min(count, beans.length); i++){
+            result.add(names[beans[i]]);
+        }
+        return result;
+    }
+
+    private List<String> toNames(int[] beans) {
+        List<String> result = new ArrayList<String>(beans.length);
+        for (int bean : beans){
+            result.add(names[bean]);
+        }
+        return result;
+    }
+
+    /**
+     * Writes the graph in the DOT language of Graphviz. Edges point from a bean to its dependencies, provider
+     * dependencies are dashed and beans on cycles are red.
+     */
+    public void writeDot(Appendable out) throws IOException {
+        out.append("digraph beans {\n");
+        for (int bean = 0; bean < names.length; bean++){
+            out.append("  n").append(String.valueOf(bean)).append(" [label=\"");
+            escape(out, names[bean]);
+            out.append(inCycle[bean] ? "\", color=red];\n" : "\"];\n");
+        }
+        for (int bean = 0; bean < names.length; bean++){
+            for (int dependency : dependencies[bean]){
+                out.append("  n").append(String.valueOf(bean)).append(" -> n").append(String.valueOf(dependency)).append(";\n");
+            }
+            for (int dependency : providerDependencies[bean]){
+                out.append("  n").append(String.valueOf(bean)).append(" -> n").append(String.valueOf(dependency))
+                        .append(" [style=dashed];\n");
+            }
+        }
+        out.append("}\n");
+    }
+
+    /**
+     * Writes the graph as a JSON object with the beans, which refer to their dependencies by index, and the results
+     * of the analysis.
+     */
+    public void writeJson(Appendable out) throws IOException {
+        out.append("{\"beans\":[");
+        for (int bean = 0; bean < names.length; bean++){
+            out.append(bean == 0 ? "\n" : ",\n").append("{\"name\":\"");
+            escape(out, names[bean]);
+            out.append("\",\"type\":\"");
+            escape(out, beanTypes[bean].getName());
+            out.append("\",\"created\":").append(String.valueOf(created[bean]));
+            out.append(",\"dependencies\":");
+            writeIndices(out, dependencies[bean]);
+            out.append(",\"providers\":");
+            writeIndices(out, providerDependencies[bean]);
+            out.append(",\"fanIn\":").append(String.valueOf(getFanIn(bean)));
+            out.append(",\"fanOut\":").append(String.valueOf(getFanOut(bean)));
+            out.append(",\"depth\":").append(String.valueOf(depths[bean])).append('}');
+        }
+        out.append("],\n\"cycles\":[");
+        for (int i = 0; i < cycles.size(); i++){
+            out.append(i == 0 ? "" : ",");
+            writeNames(out, cycles.get(i));
+        }
+        out.append("],\n\"criticalChain\":");
+        writeNames(out, criticalChain);
+        out.append(",\n\"unused\":[");
+        boolean first = true;
+        for (String name : getUnusedBeans()){
+            out.append(first ? "\"" : ",\"");
+            escape(out, name);
+            out.append('"');
+            first = false;
+        }
+        out.append("]}\n");
+    }
+
+    private static void writeIndices(Appendable out, int[] beans) throws IOException {
+        out.append('[');
+        for (int i = 0; i < beans.length; i++){
+            out.append(i == 0 ? "" : ",").append(String.valueOf(beans[i]));
+        }
+        out.append(']');
+    }
+
+    private void writeNames(Appendable out, int[] beans) throws IOException {
+        out.append('[');
+        for (int i = 0; i < beans.length; i++){
+            out.append(i == 0 ? "\"" : ",\"");
+            escape(out, names[beans[i]]);
+            out.append('"');
+        }
+        out.append(']');
+    }
+
+    //The escapes of JSON strings, which DOT strings accept as well.
+    private static void escape(Appendable out, String value) throws IOException {
+        for (int i = 0; i < value.length(); i++){
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\'){
+                out.append('\\').append(c);
+            }else if (c < 0x20){
+                out.append(String.format("\\u%04x", (int) c));
+            }else{
+                out.append(c);
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        int edges = 0;
+        for (int bean = 0; bean < names.length; bean++){
+            edges += getFanOut(bean);
+        }
+        StringBuilder report = new StringBuilder();
+        report.append("Dependency graph of ").append(names.length).append(" beans, ").append(edges).append(" dependencies\n");
+        report.append("Cycles: ").append(cycles.size()).append('\n');
+        for (List<String> cycle : getCycles()){
+            report.append("  ").append(join(cycle)).append('\n');
+        }
+        report.append("Critical chain of ").append(criticalChain.length).append(" beans:\n  ")
+                .append(join(getCriticalChain())).append('\n');
+        report.append("Highest fan-in:\n");
+        for (String name : getHighestFanIn(10)){
+            report.append("  ").append(name).append(" (").append(getFanIn(indexOf(name))).append(")\n");
+        }
+        report.append("Highest fan-out:\n");
+        for (String name : getHighestFanOut(10)){
+            report.append("  ").append(name).append(" (").append(getFanOut(indexOf(name))).append(")\n");
+        }
+        List<String> unused = getUnusedBeans();
+        report.append("Unused beans: ").append(unused.size()).append('\n');
+        for (String name : unused.subList(0, Math.min(10, unused.size()))){
+            report.append("  ").append(name).append('\n');
+        }
+        return report.toString();
+    }
+
+    private static String join(List<String> names) {
+        StringBuilder joined = new StringBuilder();
+        for (String name : names){
+            joined.append(joined.length() > 0 ? " -> " : "").append(name);
+        }
+        return joined.toString();
+    }
+}
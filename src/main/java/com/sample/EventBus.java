@@ -0,0 +1,334 @@
+package com.sample;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Delivers events to the {@link EventListener} methods of the singletons of a context and its children. The listeners
+ * of an event class are collected on its first event into an array of sync and an array of async listeners, so
+ * publishing is a map lookup and a loop over method handles, without locks or reflection. Registering or removing
+ * listeners drops the arrays, to be collected again.
+ * <p>
+ * Get it from {@link SimpleApplicationContext#getEventBus()}, or inject it into a bean.
+ */
+public final class EventBus {
+
+    private static final Listener[] NO_LISTENERS = new Listener[0];
+    //The most deliveries an event thread takes from the queue at once.
+    private static final int BATCH_SIZE = 64;
+    //How often idle event threads check for the shutdown.
+    private static final long POLL_MILLIS = 100;
+
+    private final Object lock = new Object();
+    //Guarded by the lock: all listeners in registration order, and the instances they belong to.
+    private final List<Listener> listeners = new ArrayList<Listener>();
+    private final Map<Object, Boolean> targets = new IdentityHashMap<Object, Boolean>();
+    //The listeners of every event class published since the listeners last changed. Written under the lock.
+    private volatile ConcurrentHashMap<Class, Dispatch> dispatches = new ConcurrentHashMap<Class, Dispatch>();
+    private final BlockingQueue<Delivery> queue;
+    private final int threadCount;
+    //Started with the first async event.
+    private volatile Thread[] threads = null;
+    private volatile boolean shutdown = false;
+
+    EventBus(ContextConfiguration configuration) {
+        this.queue = new ArrayBlockingQueue<Delivery>(configuration.getAsyncEventQueueCapacity());
+        this.threadCount = configuration.getAsyncEventThreads();
+    }
+
+    /**
+     * Calls the sync listeners of the event on the calling thread, in the order their beans were created, and queues
+     * the event for the async listeners. Blocks while the queue is full, unless called by an async listener, which
+     * delivers the event itself instead. After the context is closed, async listeners are called on the calling thread.
+     * @throws SimpleApplicationContext.EventDeliveryException if a sync listener failed, with the failures as suppressed
+     * exceptions, after all sync listeners were called. Failures of async listeners go to the uncaught exception
+     * handler of the thread that called them.
+     */
+    public void publish(Object event) {
+        if (event == null){
+            throw new NullPointerException("Event is null");
+        }
+        Dispatch dispatch = dispatches.get(event.getClass());
+        if (dispatch == null){
+            dispatch = dispatch(event.getClass());
+        }
+        if (dispatch.async.length > 0){
+            enqueue(new Delivery(event, dispatch.async));
+        }
+        if (dispatch.sync.length > 0){
+            SimpleApplicationContext.EventDeliveryException failure = deliver(event, dispatch.sync);
+            if (failure != null){
+                throw failure;
+            }
+        }
+    }
+
+    private Dispatch dispatch(Class eventType) {
+        synchronized (lock){
+            Dispatch dispatch = dispatches.get(eventType);
+            if (dispatch == null){
+                List<Listener> sync = new ArrayList<Listener>();
+                List<Listener> async = new ArrayList<Listener>();
+                for (Listener listener : listeners){
+                    if (listener.eventType.isAssignableFrom(eventType)){
+                        (listener.async ? async : sync).add(listener);
+                    }
+                }
+                dispatch = new Dispatch(sync.toArray(NO_LISTENERS), async.toArray(NO_LISTENERS));
+                dispatches.put(eventType, dispatch);
+            }
+            return dispatch;
+        }
+    }
+
+    /**
+     * @return null if all listeners succeeded.
+     */
+    private static SimpleApplicationContext.EventDeliveryException deliver(Object event, Listener[] listeners) {
+        List<String> failedListeners = null;
+        List<Throwable> failures = null;
+        for (Listener listener : listeners){
+            try {
+                listener.handle.invokeExact(listener.target, event);
+            } catch (Throwable throwable) {
+                if (failures == null){
+                    failedListeners = new ArrayList<String>();
+                    failures = new ArrayList<Throwable>();
+                }
+                failedListeners.add(listener.name);
+                failures.add(throwable);
+            }
+        }
+        if (failures == null){
+            return null;
+        }
+        SimpleApplicationContext.EventDeliveryException exception = new SimpleApplicationContext.EventDeliveryException(
+                "Failed to deliver "+event.getClass().getName()+" to: "+failedListeners);
+        for (Throwable failure : failures){
+            exception.addSuppressed(failure);
+        }
+        return exception;
+    }
+
+    private void enqueue(Delivery delivery) {
+        if (threads == null && !shutdown){
+            startThreads();
+        }
+        if (!shutdown && queue.offer(delivery)){
+            recheckShutdown(delivery);
+            return;
+        }
+        if (shutdown || isEventThread()){
+            //An event thread waiting for the queue to make room would wait for itself.
+            delivery.run();
+            return;
+        }
+        try {
+            queue.put(delivery);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            delivery.run();
+            return;
+        }
+        recheckShutdown(delivery);
+    }
+
+    //The event threads may have seen the shutdown and the queue empty before the delivery was queued.
+    private void recheckShutdown(Delivery delivery) {
+        if (shutdown && queue.remove(delivery)){
+            delivery.run();
+        }
+    }
+
+    private boolean isEventThread() {
+        Thread current = Thread.currentThread();
+        return current instanceof EventThread && ((EventThread) current).bus == this;
+    }
+
+    private void startThreads() {
+        synchronized (lock){
+            if (threads != null || shutdown){
+                return;
+            }
+            Thread[] started = new Thread[threadCount];
+            for (int i = 0; i < started.length; i++){
+                started[i] = new EventThread(this, i);
+                started[i].start();
+            }
+            threads = started;
+        }
+    }
+
+    //Takes the deliveries in batches, so a busy thread passes the lock of the queue once per batch.
+    private void deliverQueued() {
+        List<Delivery> batch = new ArrayList<Delivery>(BATCH_SIZE);
+        while (true){
+            Delivery first;
+            try {
+                first = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                first = null;
+            }
+            if (first == null){
+                if (shutdown && queue.isEmpty()){
+                    return;
+                }
+                continue;
+            }
+            batch.add(first);
+            queue.drainTo(batch, BATCH_SIZE - 1);
+            for (Delivery delivery : batch){
+                delivery.run();
+            }
+            batch.clear();
+        }
+    }
+
+    /**
+     * Registers the {@link EventListener} methods of a created singleton. An instance is registered once.
+     */
+    void register(Object target, BeanMetadata metadata) {
+        MethodHandle[] handles = metadata.getListenerHandles();
+        synchronized (lock){
+            if (targets.put(target, Boolean.TRUE) != null){
+                return;
+            }
+            for (int i = 0; i < handles.length; i++){
+                Method method = metadata.listenerMethods[i];
+                listeners.add(new Listener(target, handles[i], method.getParameterTypes()[0],
+                        method.getAnnotation(EventListener.class).async(),
+                        method.getDeclaringClass().getName()+"."+method.getName()));
+            }
+            dispatches = new ConcurrentHashMap<Class, Dispatch>();
+        }
+    }
+
+    /**
+     * Removes the listeners of destroyed singletons.
+     */
+    void unregister(Collection<Object> removedTargets) {
+        synchronized (lock){
+            boolean changed = false;
+            for (Object target : removedTargets){
+                changed |= targets.remove(target) != null;
+            }
+            if (!changed){
+                return;
+            }
+            for (Iterator<Listener> iterator = listeners.iterator(); iterator.hasNext(); ){
+                if (!targets.containsKey(iterator.next().target)){
+                    iterator.remove();
+                }
+            }
+            dispatches = new ConcurrentHashMap<Class, Dispatch>();
+        }
+    }
+
+    /**
+     * Stops the event threads once they delivered the queued events, waiting for them up to the given timeout, or
+     * without a limit if it is 0. Later events are delivered by their publishers.
+     */
+    void shutdown(long timeoutNanos) {
+        Thread[] started;
+        synchronized (lock){
+            shutdown = true;
+            started = threads;
+        }
+        if (started == null){
+            return;
+        }
+        long deadline = System.nanoTime() + timeoutNanos;
+        try {
+            for (Thread thread : started){
+                if (thread == Thread.currentThread()){
+                    continue;
+                }
+                if (timeoutNanos == 0){
+                    thread.join();
+                }else{
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0){
+                        return;
+                    }
+                    TimeUnit.NANOSECONDS.timedJoin(thread, remaining);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static final class Listener {
+        final Object target;
+        //(Object target, Object event)void
+        final MethodHandle handle;
+        final Class eventType;
+        final boolean async;
+        final String name;
+
+        Listener(Object target, MethodHandle handle, Class eventType, boolean async, String name) {
+            this.target = target;
+            this.handle = handle;
+            this.eventType = eventType;
+            this.async = async;
+            this.name = name;
+        }
+    }
+
+    private static final class Dispatch {
+        final Listener[] sync;
+        final Listener[] async;
+
+        Dispatch(Listener[] sync, Listener[] async) {
+            this.sync = sync;
+            this.async = async;
+        }
+    }
+
+    /**
+     * An event queued for its async listeners.
+     */
+    private static final class Delivery implements Runnable {
+        final Object event;
+        final Listener[] listeners;
+
+        Delivery(Object event, Listener[] listeners) {
+            this.event = event;
+            this.listeners = listeners;
+        }
+
+        @Override
+        public void run() {
+            SimpleApplicationContext.EventDeliveryException failure = deliver(event, listeners);
+            if (failure != null){
+                Thread thread = Thread.currentThread();
+                thread.getUncaughtExceptionHandler().uncaughtException(thread, failure);
+            }
+        }
+    }
+
+    private static final class EventThread extends Thread {
+        final EventBus bus;
+
+        EventThread(EventBus bus, int index) {
+            super("EventBus-"+index);
+            this.bus = bus;
+            setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            bus.deliverQueued();
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.sample;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a method of a singleton bean that receives the events published on the {@link EventBus} of its context.
+ * The method has a single parameter, and gets the events that are instances of its type. A bean listens from the
+ * moment it is created until it is destroyed, so lazy beans miss the events published before they are needed, and
+ * scoped beans never listen.
+ * <p>
+ * With <code>async</code>, the event is delivered on the event threads of the context instead of the publishing
+ * thread, see {@link ContextConfiguration#setAsyncEvents(int, int)}.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface EventListener {
+    boolean async() default false;
+}
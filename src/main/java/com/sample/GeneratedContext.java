@@ -0,0 +1,32 @@
+package com.sample;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Declares a context that is wired at compile time instead of by {@link SimpleApplicationContext} at runtime.
+ * With the processor of the <code>tiny-dependency-injection-processor</code> module on the annotation processor
+ * path, every annotated type gets a generated {@link ApplicationContext} implementation next to it, that creates
+ * and injects the listed beans with plain Java code and no reflection.
+ * Missing, ambiguous and cyclic dependencies are reported as compilation errors.
+ * <p>
+ * The generated class can only use constructors, fields and setters that are visible from the package of the
+ * annotated type. Beans are always created eagerly, and singletons instances can't be passed in.
+ */
+@Retention(RetentionPolicy.CLASS)
+@Target(ElementType.TYPE)
+public @interface GeneratedContext {
+
+    /**
+     * The bean classes of the context, as they would be passed to {@link SimpleApplicationContext}.
+     * {@link BeanFactory} implementations add their product as well.
+     */
+    Class<?>[] value();
+
+    /**
+     * Simple name of the generated class. Defaults to the name of the annotated type with a <code>Context</code> suffix.
+     */
+    String name() default "";
+}
@@ -0,0 +1,202 @@
+package com.sample;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.GenericArrayType;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.lang.reflect.TypeVariable;
+import java.lang.reflect.WildcardType;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Resolution of the generic type hierarchy of bean classes, and the lookup keys of parameterized types. The key of
+ * a parameterized type is its canonical name with the names of its type arguments, like
+ * <code>com.app.Repository&lt;com.app.User&gt;</code>, so injection points and beans of the same parameterized
+ * type meet in the same hash lookup as raw classes do.
+ */
+final class GenericTypes {
+
+    private GenericTypes() {
+    }
+
+    /**
+     * Adds the type, its super classes and all their interfaces, including the super interfaces of interfaces, each
+     * once. The type arguments of every super type are resolved against the type arguments of its subtype.
+     * @param classes the raw classes, in the order they are found, without Object.
+     * @param types the resolved type of every class: the class itself or a parameterized type.
+     */
+    static void collect(Type type, List<Class> classes, List<Type> types) {
+        Class rawType = rawType(type);
+        if (classes.contains(rawType)){
+            return;
+        }
+        classes.add(rawType);
+        types.add(type);
+        Map<TypeVariable, Type> arguments = Collections.emptyMap();
+        if (type instanceof ParameterizedType){
+            arguments = new HashMap<TypeVariable, Type>();
+            TypeVariable[] variables = rawType.getTypeParameters();
+            Type[] actualArguments = ((ParameterizedType) type).getActualTypeArguments();
+            for (int i = 0; i < variables.length; i++){
+                arguments.put(variables[i], actualArguments[i]);
+            }
+        }
+        for (Type interfaceType : rawType.getGenericInterfaces()){
+            collect(resolve(interfaceType, arguments), classes, types);
+        }
+        Type superclass = rawType.getGenericSuperclass();
+        if (superclass != null && superclass != Object.class){
+            collect(resolve(superclass, arguments), classes, types);
+        }
+    }
+
+    /**
+     * @return the type with the given type variables replaced. Other type variables are kept.
+     */
+    static Type resolve(Type type, Map<TypeVariable, Type> arguments) {
+        if (type instanceof TypeVariable){
+            Type argument = arguments.get(type);
+            return argument != null ? argument : type;
+        }
+        if (type instanceof GenericArrayType){
+            Type componentType = resolve(((GenericArrayType) type).getGenericComponentType(), arguments);
+            return componentType instanceof Class ? Array.newInstance((Class) componentType, 0).getClass() : type;
+        }
+        if (!(type instanceof ParameterizedType) || arguments.isEmpty()){
+            return type;
+        }
+        ParameterizedType parameterizedType = (ParameterizedType) type;
+        Type[] actualArguments = parameterizedType.getActualTypeArguments();
+        Type[] resolved = new Type[actualArguments.length];
+        boolean changed = false;
+        for (int i = 0; i < actualArguments.length; i++){
+            resolved[i] = resolve(actualArguments[i], arguments);
+            changed |= resolved[i] != actualArguments[i];
+        }
+        return changed ? new Parameterized((Class) parameterizedType.getRawType(), resolved) : type;
+    }
+
+    static Class rawType(Type type) {
+        return type instanceof ParameterizedType ? (Class) ((ParameterizedType) type).getRawType() : (Class) type;
+    }
+
+    /**
+     * @return the lookup key of a class or parameterized type, or null if it has type variables. Parameterized
+     * types with only unbounded wildcards, like <code>Repository&lt;?&gt;</code>, have the key of their raw class.
+     * Keys of parameterized types are interned. Injection points with bounded wildcards are rejected before their
+     * keys are looked up, see {@link #hasBoundedWildcard(Type)}.
+     */
+    static String key(Type type) {
+        if (type instanceof Class){
+            return ((Class) type).getName();
+        }
+        if (!(type instanceof ParameterizedType)){
+            return null;
+        }
+        Type[] arguments = ((ParameterizedType) type).getActualTypeArguments();
+        StringBuilder key = new StringBuilder(rawType(type).getName()).append('<');
+        boolean unbounded = true;
+        for (int i = 0; i < arguments.length; i++){
+            String argument = argumentKey(arguments[i]);
+            if (argument == null){
+                return null;
+            }
+            unbounded &= argument.equals("?");
+            key.append(i > 0 ? "," : "").append(argument);
+        }
+        return unbounded ? rawType(type).getName() : key.append('>').toString().intern();
+    }
+
+    /**
+     * @return true if the type is a wildcard with a bound, or a parameterized type with such a wildcard as a type
+     * argument, like <code>List&lt;? extends Handler&gt;</code>. Beans only have the keys of their exact types, so
+     * no bean matches the key of such a type.
+     */
+    static boolean hasBoundedWildcard(Type type) {
+        if (type instanceof WildcardType){
+            WildcardType wildcardType = (WildcardType) type;
+            return wildcardType.getLowerBounds().length > 0 || wildcardType.getUpperBounds()[0] != Object.class;
+        }
+        if (type instanceof ParameterizedType){
+            for (Type argument : ((ParameterizedType) type).getActualTypeArguments()){
+                if (argument instanceof WildcardType && hasBoundedWildcard(argument)){
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static String argumentKey(Type type) {
+        if (!(type instanceof WildcardType)){
+            return key(type);
+        }
+        WildcardType wildcardType = (WildcardType) type;
+        if (wildcardType.getLowerBounds().length > 0){
+            String bound = key(wildcardType.getLowerBounds()[0]);
+            return bound != null ? "? super "+bound : null;
+        }
+        Type upperBound = wildcardType.getUpperBounds()[0];
+        if (upperBound == Object.class){
+            return "?";
+        }
+        String bound = key(upperBound);
+        return bound != null ? "? extends "+bound : null;
+    }
+
+    /**
+     * A parameterized type whose arguments were resolved from the type arguments of a subtype.
+     */
+    private static final class Parameterized implements ParameterizedType {
+        private final Class rawType;
+        private final Type[] arguments;
+
+        Parameterized(Class rawType, Type[] arguments) {
+            this.rawType = rawType;
+            this.arguments = arguments;
+        }
+
+        @Override
+        public Type[] getActualTypeArguments() {
+            return arguments.clone();
+        }
+
+        @Override
+        public Type getRawType() {
+            return rawType;
+        }
+
+        @Override
+        public Type getOwnerType() {
+            return null;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof ParameterizedType)){
+                return false;
+            }
+            ParameterizedType other = (ParameterizedType) o;
+            return rawType.equals(other.getRawType()) && other.getOwnerType() == null
+                    && Arrays.equals(arguments, other.getActualTypeArguments());
+        }
+
+        @Override
+        public int hashCode() {
+            return Arrays.hashCode(arguments) ^ rawType.hashCode();
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder name = new StringBuilder(rawType.getName()).append('<');
+            for (int i = 0; i < arguments.length; i++){
+                name.append(i > 0 ? ", " : "").append(arguments[i].getTypeName());
+            }
+            return name.append('>').toString();
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package com.sample;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.zip.CRC32;
+
+/**
+ * The analyzed bean graph of a {@link SimpleApplicationContext} in a compact binary file, see
+ * {@link ContextConfiguration#setSnapshotFile(File)}: the bean definitions with their metadata and the order the
+ * eager beans were created in. The lookup keys of the beans come with their metadata, so indexing them is cheap.
+ * A snapshot is only read back for the same bean classes and singleton types, while the class files of every
+ * bean and its super types have the recorded checksums, and while the file itself is intact.
+ */
+final class GraphSnapshot {
+
+    private static final int MAGIC = 0x41444953;
+    private static final int VERSION = 7;
+
+    static final byte CLASS = 0;
+    static final byte INSTANCE = 1;
+    static final byte PRODUCT = 2;
+
+    static class BeanRecord {
+        final Class beanType;
+        final byte kind;
+        //Index of the factory bean of a product, otherwise -1.
+        final int factory;
+        final BeanMetadata metadata;
+
+        BeanRecord(Class beanType, byte kind, int factory, BeanMetadata metadata) {
+            this.beanType = beanType;
+            this.kind = kind;
+            this.factory = factory;
+            this.metadata = metadata;
+        }
+    }
+
+    final BeanRecord[] beans;
+    final int[] creationOrder;
+
+    private GraphSnapshot(BeanRecord[] beans, int[] creationOrder) {
+        this.beans = beans;
+        this.creationOrder = creationOrder;
+    }
+
+    static long inputFingerprint(Class[] classes, Object[] singletones) {
+        CRC32 crc = new CRC32();
+        for (Class beanClass : classes){
+            crc.update(beanClass.getName().getBytes(StandardCharsets.UTF_8));
+            crc.update(',');
+        }
+        crc.update('|');
+        for (Object singleton : singletones){
+            crc.update(singleton.getClass().getName().getBytes(StandardCharsets.UTF_8));
+            crc.update(',');
+        }
+        return crc.getValue();
+    }
+
+    /**
+     * Writes to a temporary file that replaces the snapshot at once, so a concurrent start never reads half a file.
+     */
+    static void write(File file, long inputFingerprint, BeanRecord[] beans, int[] creationOrder) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeLong(inputFingerprint);
+        out.writeInt(beans.length);
+        for (BeanRecord bean : beans){
+            out.writeUTF(bean.beanType.getName());
+            out.writeByte(bean.kind);
+            out.writeInt(bean.factory);
+            out.writeLong(bean.metadata.fingerprint());
+            bean.metadata.write(out);
+        }
+        out.writeInt(creationOrder.length);
+        for (int beanIndex : creationOrder){
+            out.writeInt(beanIndex);
+        }
+        CRC32 crc = new CRC32();
+        crc.update(bytes.toByteArray());
+        out.writeLong(crc.getValue());
+        out.close();
+
+        File parent = file.getAbsoluteFile().getParentFile();
+        File temp = File.createTempFile(file.getName(), ".tmp", parent);
+        try {
+            Files.write(temp.toPath(), bytes.toByteArray());
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            temp.delete();
+        }
+    }
+
+    /**
+     * @return the snapshot in the file, or null if there is none or it does not match the given beans anymore.
+     */
+    static GraphSnapshot read(File file, Class[] classes, Object[] singletones) {
+        if (!file.isFile()){
+            return null;
+        }
+        try {
+            byte[] bytes = Files.readAllBytes(file.toPath());
+            if (bytes.length < 8){
+                return null;
+            }
+            CRC32 crc = new CRC32();
+            crc.update(bytes, 0, bytes.length - 8);
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+            in.skipBytes(bytes.length - 8);
+            if (in.readLong() != crc.getValue()){
+                return null;
+            }
+            in = new DataInputStream(new ByteArrayInputStream(bytes, 0, bytes.length - 8));
+            if (in.readInt() != MAGIC || in.readInt() != VERSION || in.readLong() != inputFingerprint(classes, singletones)){
+                return null;
+            }
+            Map<String, Class> inputTypes = new HashMap<String, Class>();
+            for (Class beanClass : classes){
+                inputTypes.put(beanClass.getName(), beanClass);
+            }
+            for (Object singleton : singletones){
+                inputTypes.put(singleton.getClass().getName(), singleton.getClass());
+            }
+
+            BeanRecord[] beans = new BeanRecord[in.readInt()];
+            for (int i = 0; i < beans.length; i++){
+                String name = in.readUTF();
+                byte kind = in.readByte();
+                int factory = in.readInt();
+                long fingerprint = in.readLong();
+                Class beanType = kind == PRODUCT ?
+                        Class.forName(name, false, beans[factory].beanType.getClassLoader()) : inputTypes.get(name);
+                if (beanType == null){
+                    return null;
+                }
+                BeanMetadata metadata = BeanMetadata.read(in, beanType);
+                if (metadata.fingerprint() != fingerprint){
+                    return null;
+                }
+                beans[i] = new BeanRecord(beanType, kind, factory, metadata);
+            }
+            int[] creationOrder = new int[in.readInt()];
+            for (int i = 0; i < creationOrder.length; i++){
+                creationOrder[i] = in.readInt();
+            }
+            return new GraphSnapshot(beans, creationOrder);
+        } catch (IOException e) {
+            return null;
+        } catch (ReflectiveOperationException e) {
+            return null; //a recorded member is gone, the classes changed.
+        } catch (RuntimeException e) {
+            return null; //a damaged file that still has a matching checksum.
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.sample;
+
+import java.lang.annotation.Annotation;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.AnnotatedElement;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The interceptable methods of a bean type and the subclass that was generated to intercept them, looked up once per
+ * bean type the first time a context with interceptors creates it. The generated subclass lists its methods in a
+ * static <code>METHODS</code> array, and has a constructor for every constructor of the bean type that takes the
+ * interceptor chains of these methods first.
+ */
+final class InterceptedType {
+
+    static final String SUFFIX = "$$Intercepted";
+
+    final Class beanType;
+    //The generated subclass, or null if the processor didn't run on the bean type.
+    final Class generatedType;
+    final Method[] methods;
+    private final MethodHandle constructor;
+    private final RuntimeException constructorError;
+
+    InterceptedType(BeanMetadata metadata) {
+        this.beanType = metadata.beanType;
+        this.generatedType = findGeneratedType(beanType);
+        if (generatedType == null){
+            this.methods = findBoundMethods(beanType);
+            this.constructor = null;
+            this.constructorError = new SimpleApplicationContext.BeanInstatiationException(new IllegalStateException(
+                    "Bean "+beanType.getName()+" has interceptors but no generated subclass. Compile it with "+
+                    "com.sample.processor.InterceptorProcessor on the annotation processor path"));
+            return;
+        }
+        try {
+            this.methods = (Method[]) generatedType.getField("METHODS").get(null);
+        } catch (ReflectiveOperationException e) {
+            throw new SimpleApplicationContext.BeanInstatiationException(e);
+        }
+        MethodHandle constructorHandle = null;
+        RuntimeException error = null;
+        try {
+            Constructor beanConstructor = metadata.getConstructor();
+            Class[] parameterTypes = beanConstructor != null ? beanConstructor.getParameterTypes() : new Class[0];
+            MethodType constructorType = MethodType.methodType(void.class, MethodInterceptor[][].class)
+                    .appendParameterTypes(parameterTypes);
+            constructorHandle = MethodHandles.lookup().findConstructor(generatedType, constructorType);
+            int arguments = constructorType.parameterCount();
+            constructorHandle = constructorHandle.asType(MethodType.genericMethodType(arguments))
+                    .asSpreader(Object[].class, arguments - 1)
+                    .asType(MethodType.methodType(Object.class, MethodInterceptor[][].class, Object[].class));
+        } catch (ReflectiveOperationException e) {
+            error = new SimpleApplicationContext.BeanInstatiationException(e);
+        } catch (RuntimeException e) {
+            error = e;
+        }
+        this.constructor = constructorHandle;
+        this.constructorError = error;
+    }
+
+    private static Class findGeneratedType(Class beanType) {
+        if (findBoundMethods(beanType).length == 0){
+            return null;
+        }
+        try {
+            return Class.forName(beanType.getName()+SUFFIX, false, beanType.getClassLoader());
+        } catch (ClassNotFoundException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @return the methods the processor overrides: the declared methods with an {@link InterceptorBinding}, or all
+     * overridable declared methods if the class has one.
+     */
+    private static Method[] findBoundMethods(Class beanType) {
+        boolean typeBound = hasBinding(beanType);
+        List<Method> methods = new ArrayList<Method>();
+        for (Method method : beanType.getDeclaredMethods()){
+            int modifiers = method.getModifiers();
+            if (method.isSynthetic() || Modifier.isStatic(modifiers) || Modifier.isPrivate(modifiers) || Modifier.isFinal(modifiers)){
+                continue;
+            }
+            if (typeBound || hasBinding(method)){
+                methods.add(method);
+            }
+        }
+        return methods.toArray(new Method[]{});
+    }
+
+    private static boolean hasBinding(AnnotatedElement element) {
+        for (Annotation annotation : element.getAnnotations()){
+            if (annotation.annotationType().isAnnotationPresent(InterceptorBinding.class)){
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param chains the interceptors of every method in {@link #methods}, null for methods without interceptors.
+     */
+    Object newInstance(MethodInterceptor[][] chains, Object[] parameters) {
+        if (constructorError != null){
+            throw constructorError;
+        }
+        try {
+            return (Object) constructor.invokeExact(chains, parameters);
+        } catch (Throwable throwable) {
+            throw new SimpleApplicationContext.BeanInstatiationException(throwable);
+        }
+    }
+}
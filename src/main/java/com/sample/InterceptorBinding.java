@@ -0,0 +1,18 @@
+package com.sample;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks an annotation that makes methods interceptable: the methods it is put on, or all methods of a bean class
+ * it is put on. The processor <code>com.sample.processor.InterceptorProcessor</code> of the
+ * <code>tiny-dependency-injection-processor</code> module generates a subclass for every such bean class, which
+ * overrides only these methods. Which interceptors they get is decided by the context, see
+ * {@link ContextConfiguration#addInterceptor(Class, MethodInterceptor)}. Bindings need runtime retention.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.ANNOTATION_TYPE)
+public @interface InterceptorBinding {
+}
@@ -0,0 +1,78 @@
+package com.sample;
+
+import java.lang.reflect.Method;
+
+/**
+ * A call of an intercepted method, passed along its chain of interceptors. The subclasses are generated per method,
+ * and keep the target and the arguments in typed fields, so a call allocates a single invocation and no argument
+ * array. An invocation belongs to the thread of the call.
+ */
+public abstract class Invocation {
+
+    private final MethodInterceptor[] chain;
+    private final Method method;
+    private int next = 0;
+
+    protected Invocation(MethodInterceptor[] chain, Method method) {
+        this.chain = chain;
+        this.method = method;
+    }
+
+    /**
+     * @return the intercepted method, as declared by the bean class.
+     */
+    public Method getMethod() {
+        return method;
+    }
+
+    public abstract Object getTarget();
+
+    public abstract int getArgumentCount();
+
+    /**
+     * @return an argument of the call, boxed if it is primitive.
+     */
+    public abstract Object getArgument(int index);
+
+    public Object[] getArguments() {
+        Object[] arguments = new Object[getArgumentCount()];
+        for (int i = 0; i < arguments.length; i++){
+            arguments[i] = getArgument(i);
+        }
+        return arguments;
+    }
+
+    /**
+     * Calls the next interceptor of the chain, or the bean method after the last one. An interceptor may proceed more
+     * than once, to retry the call, and every time the rest of the chain runs again.
+     * @return the result of the method, boxed if it is primitive, null for void methods.
+     */
+    public Object proceed() throws Throwable {
+        int index = next;
+        if (index == chain.length){
+            return invokeTarget();
+        }
+        next = index + 1;
+        try {
+            return chain[index].invoke(this);
+        } finally {
+            next = index;
+        }
+    }
+
+    /**
+     * Calls the method of the bean class with the arguments of the invocation.
+     */
+    protected abstract Object invokeTarget() throws Throwable;
+
+    /**
+     * Used by the generated subclasses to resolve their methods once, when they are loaded.
+     */
+    public static Method method(Class type, String name, Class... parameterTypes) {
+        try {
+            return type.getDeclaredMethod(name, parameterTypes);
+        } catch (NoSuchMethodException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package com.sample;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Overrides the initialization mode of a single bean.
+ * A lazy bean is only created when it is first requested with {@link ApplicationContext#getBean(Class)} or required
+ * by another bean that is created. <code>@Lazy(false)</code> makes a bean eager in a context that is lazy by default.
+ * On a {@link BeanFactory} the annotation applies to the product of the factory.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface Lazy {
+    boolean value() default true;
+}
@@ -0,0 +1,165 @@
+package com.sample;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * The interceptor of a {@link Cacheable} method. The results are spread over up to 16 segments by the hash of their
+ * key, each an access ordered map of its share of the maximum size under its own lock, so concurrent calls rarely
+ * wait for each other and a full segment drops its least recently used result.
+ */
+final class MethodCache implements MethodInterceptor {
+
+    private static final Object NULL = new Object();
+    private static final Object NO_ARGUMENTS = new Object();
+    private static final int MAX_SEGMENTS = 16;
+    //Segments are only split off once each of them gets this many results.
+    private static final int MIN_SEGMENT_SIZE = 32;
+
+    private final Segment[] segments;
+    private final long expireAfterWriteNanos;
+    //Null to read System.nanoTime().
+    private final LongSupplier ticker;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * @param expireAfterWriteNanos 0 if results don't expire.
+     * @param ticker the time in nanoseconds, or null for System.nanoTime().
+     */
+    MethodCache(int maximumSize, long expireAfterWriteNanos, LongSupplier ticker) {
+        if (maximumSize < 1){
+            throw new IllegalArgumentException("Maximum cache size must be positive: "+maximumSize);
+        }
+        int count = 1;
+        while (count < MAX_SEGMENTS && count * 2 * MIN_SEGMENT_SIZE <= maximumSize){
+            count *= 2;
+        }
+        this.segments = new Segment[count];
+        for (int i = 0; i < count; i++){
+            segments[i] = new Segment(maximumSize / count + (i < maximumSize % count ? 1 : 0), evictions);
+        }
+        this.expireAfterWriteNanos = expireAfterWriteNanos;
+        this.ticker = ticker;
+    }
+
+    @Override
+    public Object invoke(Invocation invocation) throws Throwable {
+        Object key = key(invocation);
+        int hash = key.hashCode();
+        Segment segment = segments[(hash ^ (hash >>> 16)) & (segments.length - 1)];
+        boolean expiring = expireAfterWriteNanos > 0;
+        Object value = segment.read(key, expireAfterWriteNanos, expiring ? now() : 0);
+        if (value != null){
+            hits.increment();
+            return value != NULL ? value : null;
+        }
+        misses.increment();
+        value = invocation.proceed();
+        segment.write(key, value != null ? value : NULL, expiring ? now() : 0);
+        return value;
+    }
+
+    private long now() {
+        return ticker != null ? ticker.getAsLong() : System.nanoTime();
+    }
+
+    private static Object key(Invocation invocation) {
+        int count = invocation.getArgumentCount();
+        if (count == 0){
+            return NO_ARGUMENTS;
+        }
+        if (count == 1){
+            Object argument = invocation.getArgument(0);
+            if (argument == null){
+                return NULL;
+            }
+            if (!argument.getClass().isArray()){
+                return argument;
+            }
+        }
+        return new ArgumentsKey(invocation.getArguments());
+    }
+
+    CacheStatistics getStatistics() {
+        int size = 0;
+        for (Segment segment : segments){
+            synchronized (segment){
+                size += segment.size();
+            }
+        }
+        return new CacheStatistics(hits.sum(), misses.sum(), evictions.sum(), size);
+    }
+
+    private static final class Segment extends LinkedHashMap<Object, Entry> {
+
+        private final int capacity;
+        private final LongAdder evictions;
+
+        Segment(int capacity, LongAdder evictions) {
+            super(16, 0.75f, true);
+            this.capacity = capacity;
+            this.evictions = evictions;
+        }
+
+        synchronized Object read(Object key, long expireAfterWriteNanos, long now) {
+            Entry entry = get(key);
+            if (entry == null){
+                return null;
+            }
+            if (expireAfterWriteNanos > 0 && now - entry.writtenAt >= expireAfterWriteNanos){
+                remove(key);
+                evictions.increment();
+                return null;
+            }
+            return entry.value;
+        }
+
+        synchronized void write(Object key, Object value, long writtenAt) {
+            put(key, new Entry(value, writtenAt));
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Object, Entry> eldest) {
+            if (size() > capacity){
+                evictions.increment();
+                return true;
+            }
+            return false;
+        }
+    }
+
+    private static final class Entry {
+        final Object value;
+        final long writtenAt;
+
+        Entry(Object value, long writtenAt) {
+            this.value = value;
+            this.writtenAt = writtenAt;
+        }
+    }
+
+    private static final class ArgumentsKey {
+        private final Object[] arguments;
+        private final int hash;
+
+        ArgumentsKey(Object[] arguments) {
+            this.arguments = arguments;
+            this.hash = Arrays.deepHashCode(arguments);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof ArgumentsKey && Arrays.deepEquals(arguments, ((ArgumentsKey) o).arguments);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
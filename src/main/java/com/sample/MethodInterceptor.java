@@ -0,0 +1,14 @@
+package com.sample;
+
+/**
+ * Wraps the calls of intercepted bean methods, for caching, timing or retries.
+ * An interceptor is shared by all beans it applies to and may be called from any thread.
+ */
+public interface MethodInterceptor {
+
+    /**
+     * @return the result of the call, usually the result of {@link Invocation#proceed()}. Primitive results are
+     * boxed, and void methods ignore it.
+     */
+    Object invoke(Invocation invocation) throws Throwable;
+}
@@ -0,0 +1,11 @@
+package com.sample;
+
+import java.lang.reflect.Method;
+
+/**
+ * Selects the interceptable methods an interceptor applies to, see
+ * {@link ContextConfiguration#addInterceptor(MethodMatcher, MethodInterceptor)}. Called once per method and context.
+ */
+public interface MethodMatcher {
+    boolean matches(Method method);
+}
@@ -0,0 +1,16 @@
+package com.sample;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Position of a bean in injected Lists, Sets, Maps and arrays of its types. Lower values come first, beans without
+ * the annotation come last. On a {@link BeanFactory} the annotation applies to the product of the factory.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface Order {
+    int value();
+}
@@ -0,0 +1,21 @@
+package com.sample;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a no-arg method of the bean class that is called once the bean is injected, for work that doesn't belong
+ * in the constructor. Singletons given to the context as instances are not initialized by it.
+ * <p>
+ * With <code>async</code>, a method of a bean that is created during startup runs on the startup executor instead,
+ * and the constructor of the context only waits for it at the end of startup, within the startup timeout.
+ * The bean is injected into other beans before the method is done, so it should only do work that they don't
+ * need, like warming up caches. Beans created after startup run the method before they are returned.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface PostConstruct {
+    boolean async() default false;
+}
@@ -0,0 +1,16 @@
+package com.sample;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a no-arg method of the bean class that is called when the context is closed, to release threads,
+ * connections or files. A bean is destroyed after all beans that depend on it, see {@link ApplicationContext#close()}.
+ * Scoped beans and singletons given to the context as instances are not destroyed by it.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface PreDestroy {
+}
@@ -0,0 +1,15 @@
+package com.sample;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Picks the bean for an injection point or lookup that more than one bean matches. On a {@link BeanFactory} the
+ * annotation goes on createInstance(), like scope and qualifier annotations of the product.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.TYPE, ElementType.METHOD})
+public @interface Primary {
+}
@@ -0,0 +1,313 @@
+package com.sample;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The {@link Value} fields of the beans of a context, bound to the properties of its configuration. Every field gets a
+ * binding with its parsed value and a setter handle of the exact field type, computed once per bean type, so
+ * injecting a bean neither parses strings nor boxes primitives.
+ */
+final class PropertyBinder {
+
+    private static final Binding[] NO_BINDINGS = new Binding[0];
+    private static final String[] SIZE_SUFFIXES = {"KB", "MB", "GB", "TB"};
+    private static final String[] DURATION_SUFFIXES = {"ns", "us", "ms", "s", "m", "h", "d"};
+    private static final TimeUnit[] DURATION_UNITS = {TimeUnit.NANOSECONDS, TimeUnit.MICROSECONDS, TimeUnit.MILLISECONDS,
+            TimeUnit.SECONDS, TimeUnit.MINUTES, TimeUnit.HOURS, TimeUnit.DAYS};
+
+    private static final int BOOLEAN = 1;
+    private static final int INT = 2;
+    private static final int LONG = 3;
+    private static final int DOUBLE = 4;
+    private static final int OBJECT = 5;
+
+    private final ContextConfiguration configuration;
+    //Read on the first binding, so contexts without @Value fields never read the files.
+    private volatile Map<String, String> properties = null;
+    private volatile Map<Class, Binding[]> bindings = new ConcurrentHashMap<Class, Binding[]>();
+
+    PropertyBinder(ContextConfiguration configuration) {
+        this.configuration = configuration;
+    }
+
+    Binding[] getBindings(BeanMetadata metadata) {
+        if (metadata.valueFields.length == 0){
+            return NO_BINDINGS;
+        }
+        Binding[] result = bindings.get(metadata.beanType);
+        if (result == null){
+            Map<String, String> values = properties;
+            if (values == null){
+                values = load();
+                properties = values;
+            }
+            result = bind(metadata.valueFields, null, values);
+            bindings.put(metadata.beanType, result);
+        }
+        return result;
+    }
+
+    /**
+     * Reads the properties again and binds all bean types that were bound before. Nothing changes if a value is
+     * missing or invalid.
+     * @return the bindings whose value changed, by bean type.
+     */
+    synchronized Map<Class, List<Binding>> reload() {
+        Map<String, String> values = load();
+        Map<Class, Binding[]> reloaded = new ConcurrentHashMap<Class, Binding[]>();
+        Map<Class, List<Binding>> changed = new HashMap<Class, List<Binding>>();
+        for (Map.Entry<Class, Binding[]> entry : bindings.entrySet()){
+            Binding[] previous = entry.getValue();
+            Binding[] current = bind(null, previous, values);
+            for (int i = 0; i < current.length; i++){
+                if (!current[i].sameValue(previous[i])){
+                    List<Binding> list = changed.get(entry.getKey());
+                    if (list == null){
+                        list = new ArrayList<Binding>();
+                        changed.put(entry.getKey(), list);
+                    }
+                    list.add(current[i]);
+                }
+            }
+            reloaded.put(entry.getKey(), current);
+        }
+        properties = values;
+        bindings = reloaded;
+        return changed;
+    }
+
+    private Map<String, String> load() {
+        Map<String, String> values = new HashMap<String, String>();
+        for (File file : configuration.getPropertiesFiles()){
+            Properties fileProperties = new Properties();
+            try {
+                InputStream in = new FileInputStream(file);
+                try {
+                    fileProperties.load(in);
+                } finally {
+                    in.close();
+                }
+            } catch (IOException e) {
+                throw new SimpleApplicationContext.PropertyBindingException("Unable to read properties file: "+file+" ("+e.getMessage()+")");
+            }
+            for (String key : fileProperties.stringPropertyNames()){
+                values.put(key, fileProperties.getProperty(key));
+            }
+        }
+        return values;
+    }
+
+    private static String lookup(Map<String, String> values, String key) {
+        String value = System.getProperty(key);
+        if (value == null){
+            value = System.getenv(key.toUpperCase(Locale.ROOT).replace('.', '_').replace('-', '_'));
+        }
+        return value != null ? value : values.get(key);
+    }
+
+    /**
+     * Binds either the given fields, or the fields of the previous bindings, reusing their setters.
+     */
+    private static Binding[] bind(Field[] fields, Binding[] previous, Map<String, String> values) {
+        Binding[] result = new Binding[fields != null ? fields.length : previous.length];
+        for (int i = 0; i < result.length; i++){
+            Field field = fields != null ? fields[i] : previous[i].field;
+            Value annotation = field.getAnnotation(Value.class);
+            String text = lookup(values, annotation.value());
+            if (text == null && !annotation.defaultValue().equals(Value.NO_DEFAULT)){
+                text = annotation.defaultValue();
+            }
+            if (text == null){
+                throw new SimpleApplicationContext.PropertyBindingException("No value for property "+annotation.value()+
+                        " of field "+field.getDeclaringClass().getName()+"."+field.getName());
+            }
+            Binding binding = previous != null ? new Binding(previous[i].field, previous[i].kind, previous[i].setter)
+                    : newBinding(field);
+            try {
+                binding.parse(text.trim(), annotation.unit());
+            } catch (RuntimeException e) {
+                throw new SimpleApplicationContext.PropertyBindingException("Invalid value '"+text+"' of property "+
+                        annotation.value()+" for field "+field.getDeclaringClass().getName()+"."+field.getName()+": "+e.getMessage());
+            }
+            result[i] = binding;
+        }
+        return result;
+    }
+
+    private static Binding newBinding(Field field) {
+        Class type = field.getType();
+        if (Modifier.isFinal(field.getModifiers()) || Modifier.isStatic(field.getModifiers())){
+            throw new SimpleApplicationContext.PropertyBindingException("@Value field can't be final or static: "+
+                    field.getDeclaringClass().getName()+"."+field.getName());
+        }
+        int kind;
+        if (type == boolean.class){
+            kind = BOOLEAN;
+        }else if (type == int.class){
+            kind = INT;
+        }else if (type == long.class){
+            kind = LONG;
+        }else if (type == double.class){
+            kind = DOUBLE;
+        }else if (type == String.class || type == Boolean.class || type == Integer.class || type == Long.class || type == Double.class
+                || type == Duration.class || type.isEnum()){
+            kind = OBJECT;
+        }else{
+            throw new SimpleApplicationContext.PropertyBindingException("Unsupported type of @Value field: "+
+                    field.getDeclaringClass().getName()+"."+field.getName());
+        }
+        try {
+            field.setAccessible(true);
+            MethodHandle setter = MethodHandles.lookup().unreflectSetter(field);
+            Class valueType = kind == OBJECT ? Object.class : type;
+            return new Binding(field, kind, setter.asType(MethodType.methodType(void.class, Object.class, valueType)));
+        } catch (IllegalAccessException e) {
+            throw new SimpleApplicationContext.BeanInstatiationException(e);
+        }
+    }
+
+    private static long parseLong(String text, TimeUnit unit) {
+        for (int i = 0; i < SIZE_SUFFIXES.length; i++){
+            if (text.toUpperCase(Locale.ROOT).endsWith(SIZE_SUFFIXES[i])){
+                return Long.parseLong(text.substring(0, text.length() - 2).trim()) << (10 * (i + 1));
+            }
+        }
+        if (text.toUpperCase(Locale.ROOT).endsWith("B")){
+            return Long.parseLong(text.substring(0, text.length() - 1).trim());
+        }
+        //"ns", "us" and "ms" are checked before "s" and "m".
+        for (int i = 0; i < DURATION_SUFFIXES.length; i++){
+            if (text.endsWith(DURATION_SUFFIXES[i])){
+                return unit.convert(Long.parseLong(text.substring(0, text.length() - DURATION_SUFFIXES[i].length()).trim()),
+                        DURATION_UNITS[i]);
+            }
+        }
+        return Long.parseLong(text);
+    }
+
+    private static Duration parseDuration(String text, TimeUnit unit) {
+        if (text.startsWith("P") || text.startsWith("p")){
+            return Duration.parse(text);
+        }
+        return Duration.ofNanos(TimeUnit.NANOSECONDS.convert(parseLong(text, unit), unit));
+    }
+
+    /**
+     * The parsed value of a field. Primitives are kept in <code>bits</code> and written through a setter of the
+     * exact primitive type.
+     */
+    static final class Binding {
+        final Field field;
+        final int kind;
+        final MethodHandle setter;
+        long bits;
+        Object object;
+
+        Binding(Field field, int kind, MethodHandle setter) {
+            this.field = field;
+            this.kind = kind;
+            this.setter = setter;
+        }
+
+        void parse(String text, TimeUnit unit) {
+            Class type = field.getType();
+            switch (kind){
+                case BOOLEAN:
+                    bits = parseBoolean(text) ? 1 : 0;
+                    break;
+                case INT:
+                    long value = parseLong(text, unit);
+                    if (value != (int) value){
+                        throw new NumberFormatException("Out of int range");
+                    }
+                    bits = value;
+                    break;
+                case LONG:
+                    bits = parseLong(text, unit);
+                    break;
+                case DOUBLE:
+                    bits = Double.doubleToRawLongBits(Double.parseDouble(text));
+                    break;
+                default:
+                    if (type == String.class){
+                        object = text;
+                    }else if (type == Boolean.class){
+                        object = parseBoolean(text);
+                    }else if (type == Integer.class){
+                        object = Math.toIntExact(parseLong(text, unit));
+                    }else if (type == Long.class){
+                        object = parseLong(text, unit);
+                    }else if (type == Double.class){
+                        object = Double.parseDouble(text);
+                    }else if (type == Duration.class){
+                        object = parseDuration(text, unit);
+                    }else{
+                        object = parseEnum(type, text);
+                    }
+            }
+        }
+
+        private static boolean parseBoolean(String text) {
+            if (text.equalsIgnoreCase("true")){
+                return true;
+            }
+            if (text.equalsIgnoreCase("false")){
+                return false;
+            }
+            throw new IllegalArgumentException("Not a boolean");
+        }
+
+        private static Object parseEnum(Class type, String text) {
+            for (Object constant : type.getEnumConstants()){
+                if (((Enum) constant).name().equalsIgnoreCase(text)){
+                    return constant;
+                }
+            }
+            throw new IllegalArgumentException("Not a constant of "+type.getName());
+        }
+
+        boolean sameValue(Binding other) {
+            return bits == other.bits && (object == null ? other.object == null : object.equals(other.object));
+        }
+
+        void inject(Object instance) {
+            try {
+                switch (kind){
+                    case BOOLEAN:
+                        setter.invokeExact(instance, bits != 0);
+                        break;
+                    case INT:
+                        setter.invokeExact(instance, (int) bits);
+                        break;
+                    case LONG:
+                        setter.invokeExact(instance, bits);
+                        break;
+                    case DOUBLE:
+                        setter.invokeExact(instance, Double.longBitsToDouble(bits));
+                        break;
+                    default:
+                        setter.invokeExact(instance, object);
+                }
+            } catch (Throwable throwable) {
+                throw new SimpleApplicationContext.BeanInstatiationException(throwable);
+            }
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.sample;
+
+import javax.inject.Provider;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Scope of {@link RequestScoped} beans. A request is bound to the thread that calls {@link #enter()} until it calls
+ * {@link #exit()}.
+ * <p>
+ * Every scoped bean gets a fixed slot when it is defined, and each thread keeps one slot array that is cleared,
+ * not reallocated, at the end of a request. So once a thread served its first request, entering a request and
+ * looking up its beans allocates nothing but the beans themselves.
+ */
+public class RequestScope implements Scope {
+
+    private static class Request {
+        Object[] instances = new Object[0];
+        boolean active = false;
+    }
+
+    private final AtomicInteger slots = new AtomicInteger();
+    private final ThreadLocal<Request> requests = new ThreadLocal<Request>() {
+        @Override
+        protected Request initialValue() {
+            return new Request();
+        }
+    };
+
+    @Override
+    public <T> Provider<T> scope(Class<T> beanType, final Provider<T> unscoped) {
+        final int slot = slots.getAndIncrement();
+        return new Provider<T>() {
+            @Override
+            public T get() {
+                Request request = currentRequest();
+                if (request.instances.length <= slot){
+                    request.instances = Arrays.copyOf(request.instances, slots.get());
+                }
+                Object instance = request.instances[slot];
+                if (instance == null){
+                    instance = unscoped.get();
+                    request.instances[slot] = instance;
+                }
+                return (T) instance;
+            }
+        };
+    }
+
+    public void enter() {
+        Request request = requests.get();
+        if (request.active){
+            throw new IllegalStateException("A request is already active on this thread");
+        }
+        request.active = true;
+    }
+
+    public void exit() {
+        Request request = requests.get();
+        Arrays.fill(request.instances, null);
+        request.active = false;
+    }
+
+    public boolean isActive() {
+        return requests.get().active;
+    }
+
+    private Request currentRequest() {
+        Request request = requests.get();
+        if (!request.active){
+            throw new IllegalStateException("No request is active on this thread");
+        }
+        return request;
+    }
+}
@@ -0,0 +1,21 @@
+package com.sample;
+
+import javax.inject.Provider;
+
+/**
+ * Decides how instances of a scoped bean are reused.
+ * A scope is bound to the annotation of its beans with {@link ContextConfiguration#registerScope(Class, Scope)}.
+ * Beans without a scope annotation, or annotated with {@link javax.inject.Singleton}, are singletons of their context.
+ */
+public interface Scope {
+
+    /**
+     * Called once per bean, when the context defines it.
+     *
+     * @param beanType the type of the scoped bean
+     * @param unscoped creates and injects a new instance on every call, with a precomputed plan of the
+     *                 bean's constructor and injection points
+     * @return the provider the context calls on every lookup and injection of the bean
+     */
+    <T> Provider<T> scope(Class<T> beanType, Provider<T> unscoped);
+}
@@ -0,0 +1,37 @@
+package com.sample;
+
+import javax.inject.Provider;
+
+/**
+ * The built-in scopes that don't need any state besides the beans they hold.
+ */
+public final class Scopes {
+
+    private Scopes() {
+    }
+
+    public static final Scope PROTOTYPE = new Scope() {
+        @Override
+        public <T> Provider<T> scope(Class<T> beanType, Provider<T> unscoped) {
+            return unscoped;
+        }
+    };
+
+    public static final Scope THREAD = new Scope() {
+        @Override
+        public <T> Provider<T> scope(Class<T> beanType, final Provider<T> unscoped) {
+            final ThreadLocal<T> instances = new ThreadLocal<T>();
+            return new Provider<T>() {
+                @Override
+                public T get() {
+                    T instance = instances.get();
+                    if (instance == null){
+                        instance = unscoped.get();
+                        instances.set(instance);
+                    }
+                    return instance;
+                }
+            };
+        }
+    };
+}
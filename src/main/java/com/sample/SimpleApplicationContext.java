@@ -1,11 +1,32 @@
 package com.sample;
 
-import javax.inject.Inject;
+import javax.inject.Provider;
+import java.io.File;
+import java.io.IOException;
+import java.lang.annotation.Annotation;
 import java.lang.reflect.*;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * Created by yotamm on 20/02/16.
+ * <p>
+ * A context is safe to use from any number of threads once it is constructed. The bean definitions and the lookup
+ * table are never modified once published, so {@link #getBean(Class)} of a resolved bean only reads. Registering or
+ * removing a bean builds new tables next to the published ones and swaps them with a single volatile write.
+ * Lazy beans are created under a lock of their own, so threads that need different beans don't wait for each other,
+ * and every bean is published with its volatile resolution state after it is fully injected.
  */
 public class SimpleApplicationContext implements ApplicationContext{
 
@@ -30,193 +51,1468 @@ public class SimpleApplicationContext implements ApplicationContext{
         public BeanInstatiationException(Throwable throwable){super(throwable);}
     }
 
+    public static class UndefinedScopeException extends RuntimeException{
+        public UndefinedScopeException(String msg){super(msg);}
+    }
+
+    public static class StartupTimeoutException extends RuntimeException{
+        public StartupTimeoutException(String msg){super(msg);}
+    }
+
+    public static class BeanDestructionException extends RuntimeException{
+        public BeanDestructionException(String msg){super(msg);}
+    }
+
+    public static class PropertyBindingException extends RuntimeException{
+        public PropertyBindingException(String msg){super(msg);}
+    }
+
+    public static class EventDeliveryException extends RuntimeException{
+        public EventDeliveryException(String msg){super(msg);}
+    }
+
     class BeanDefinition{
         Class beanType = null;
         Object instance = null;
         Class factoryBean = null;
-        BeanResolutionState beanResolutionState = BeanResolutionState.UNRESOLVED;
+        BeanDefinition factoryDef = null;
+        BeanMetadata metadata = null;
+        //The @Named value or the class name, and the keys the bean is looked up with. See BeanMetadata.
+        String name = null;
+        String[] keys = null;
+        boolean primary = false;
+        //True for singletons given to the context as instances.
+        boolean provided = false;
+        //The tables the bean was defined in, which its injection points are resolved against.
+        BeanTables tables = null;
+        boolean lazy = false;
+        //Null for singletons. Called on every lookup and injection of a scoped bean.
+        Provider scopedProvider = null;
+        //Injected for Provider<T> injection points.
+        Provider provider = null;
+        //The injection points of a scoped bean resolved to definitions, see getPlan(BeanDefinition).
+        volatile InjectionPlan plan = null;
+        //The product of an AsyncBeanFactory started during startup, taken when the bean is created.
+        CompletableFuture pendingInstance = null;
+        //Written last when a bean is resolved, so a reader that sees RESOLVED also sees the fully injected instance.
+        volatile BeanResolutionState beanResolutionState = BeanResolutionState.UNRESOLVED;
+        //Held while the bean is created. Unresolved beans are only read and written by the holder.
+        final BeanLock lock = new BeanLock();
+        //Startup timings, only recorded when a StartupListener is configured.
+        long reflectionNanos = 0;
+        long instantiateNanos = 0;
+        long injectNanos = 0;
+        int depth = -1;
         public String getName() {
-            return beanType.getName();
+            return name;
+        }
+
+        /**
+         * @return the context that defines the bean and resolves it. Beans of a parent context are never resolved
+         * by a child.
+         */
+        SimpleApplicationContext getContext() {
+            return SimpleApplicationContext.this;
         }
     }
 
-    private Set<String> unresolvedBeans = new HashSet<String>();
-    private Map<String, BeanDefinition> beans = new HashMap<String, BeanDefinition>();
-    private Map<String, List<BeanDefinition>> beansByType = new HashMap<String, List<BeanDefinition>>();
+    /**
+     * A precomputed injection point: a single bean, a collection of beans, or the Provider of a bean.
+     */
+    class Dependency{
+        final BeanDefinition beanDef;
+        final BeanCollection collection;
+        final Type collectionType;
+        final BeanDefinition providerOf;
 
-    public SimpleApplicationContext(Class[] classes, Object[] singletones){
-        populateUnresolvedBeans(classes, singletones);
-        populateBeansByType();
-        resolveBeans();
+        Dependency(BeanDefinition beanDef, BeanCollection collection, Type collectionType, BeanDefinition providerOf){
+            this.beanDef = beanDef;
+            this.collection = collection;
+            this.collectionType = collectionType;
+            this.providerOf = providerOf;
+        }
+
+        Object get(){
+            if (beanDef != null){
+                return getInstance(beanDef);
+            }
+            if (providerOf != null){
+                return providerOf.provider;
+            }
+            return collection.get(collectionType);
+        }
+    }
+
+    /**
+     * The injection points of a bean resolved against the tables of its definition, and its injector when the
+     * context uses generated injectors. Scoped beans keep their plan, so creating an instance neither scans the bean
+     * type nor searches the type index, singletons build it for their single creation.
+     */
+    class InjectionPlan{
+        final BeanTables tables;
+        //Null for provided singletons and factory products, which aren't constructed by the context.
+        final Dependency[] constructorDependencies;
+        final Dependency[] fieldDependencies;
+        final Dependency[][] setterDependencies;
+        //Null without generated injectors.
+        final BeanInjector injector;
+        //The interceptors of the constructed type, see getInterceptorChains(BeanMetadata).
+        final MethodInterceptor[][] chains;
+
+        InjectionPlan(BeanDefinition beanDef){
+            BeanMetadata metadata = beanDef.metadata;
+            this.tables = beanDef.tables;
+            this.constructorDependencies = beanDef.provided || beanDef.factoryDef != null ? null :
+                    toDependencies(tables, metadata.getConstructorParameterTypes(), metadata.getConstructorKeys());
+            this.fieldDependencies = toDependencies(tables, metadata.fieldTypes, metadata.fieldKeys);
+            this.setterDependencies = new Dependency[metadata.setterParameterTypes.length][];
+            for (int i = 0; i < setterDependencies.length; i++){
+                setterDependencies[i] = toDependencies(tables, metadata.setterParameterTypes[i], metadata.setterKeys[i]);
+            }
+            this.injector = configuration.isGeneratedInjectors() ? metadata.getInjector() : null;
+            this.chains = constructorDependencies != null ? getInterceptorChains(metadata) : null;
+        }
     }
 
-    private void populateBeansByType() {
-        for (BeanDefinition beanDefinition : beans.values().toArray(new BeanDefinition[]{})){
-            Class[] allTypes = getAllTypes(beanDefinition);
-            for (Class type : allTypes){
-                List<BeanDefinition> beansForType = beansByType.get(type.getName());
-                if (beansForType == null){
-                    beansForType = new ArrayList<BeanDefinition>();
-                    beansByType.put(type.getName(), beansForType);
+    /**
+     * All beans of an element type, for List, Set, Map and array injection points, ordered by {@link Order}.
+     * While all members are singletons, every kind of collection is built once and the same immutable instance is
+     * injected everywhere. Arrays can't be made immutable, so every injection point gets a copy.
+     */
+    class BeanCollection{
+        final Class elementType;
+        final BeanDefinition[] members;
+        private final boolean shared;
+        private volatile Object[] instances;
+        private volatile List list;
+        private volatile Set set;
+        private volatile Map map;
+
+        BeanCollection(Class elementType, BeanDefinition[] members){
+            this.elementType = elementType;
+            this.members = members;
+            boolean singletons = true;
+            for (BeanDefinition member : members){
+                singletons &= member.scopedProvider == null;
+            }
+            this.shared = singletons;
+        }
+
+        /**
+         * @param type a List, Set or Map&lt;String, T&gt; type, or an array class.
+         */
+        Object get(Type type){
+            if (type instanceof Class){
+                Object[] values = getInstances();
+                Object array = Array.newInstance(elementType, values.length);
+                System.arraycopy(values, 0, array, 0, values.length);
+                return array;
+            }
+            Type rawType = ((ParameterizedType) type).getRawType();
+            if (rawType == List.class){
+                return getList();
+            }
+            if (rawType == Set.class){
+                return getSet();
+            }
+            return getMap();
+        }
+
+        private Object[] getInstances(){
+            Object[] values = instances;
+            if (values == null){
+                values = new Object[members.length];
+                for (int i = 0; i < members.length; i++){
+                    values[i] = getInstance(members[i]);
+                }
+                if (shared){
+                    instances = values;
+                }
+            }
+            return values;
+        }
+
+        private List getList(){
+            List values = list;
+            if (values == null){
+                values = Collections.unmodifiableList(Arrays.asList(getInstances()));
+                if (shared){
+                    list = values;
+                }
+            }
+            return values;
+        }
+
+        private Set getSet(){
+            Set values = set;
+            if (values == null){
+                values = Collections.unmodifiableSet(new LinkedHashSet(Arrays.asList(getInstances())));
+                if (shared){
+                    set = values;
+                }
+            }
+            return values;
+        }
+
+        private Map getMap(){
+            Map values = map;
+            if (values == null){
+                Object[] beansOfType = getInstances();
+                Map byName = new LinkedHashMap(beansOfType.length * 2);
+                for (int i = 0; i < beansOfType.length; i++){
+                    byName.put(members[i].getName(), beansOfType[i]);
+                }
+                values = Collections.unmodifiableMap(byName);
+                if (shared){
+                    map = values;
                 }
-                beansForType.add(beanDefinition);
             }
+            return values;
+        }
+    }
+
+    /**
+     * The Provider of a singleton. Once the bean is resolved, get() is a volatile read and a field read.
+     */
+    class SingletonProvider implements Provider<Object>{
+        private final BeanDefinition beanDef;
+
+        SingletonProvider(BeanDefinition beanDef){
+            this.beanDef = beanDef;
         }
 
+        @Override
+        public Object get(){
+            if (beanDef.beanResolutionState == BeanResolutionState.RESOLVED){
+                return beanDef.instance;
+            }
+            return getInstance(beanDef);
+        }
     }
 
-    private Class[] getAllTypes(BeanDefinition beanDefinition) {
-        List<Class> types = new ArrayList<Class>();
-        getAllTypes(types, beanDefinition.beanType);
-        return types.toArray(new Class[]{});
+    /**
+     * Creates a new instance of a scoped bean on every call, from the {@link InjectionPlan} of the bean.
+     */
+    class ScopedBeanCreator implements Provider<Object>{
+        private final BeanDefinition beanDef;
+
+        ScopedBeanCreator(BeanDefinition beanDef){
+            this.beanDef = beanDef;
+        }
+
+        @Override
+        public Object get(){
+            InjectionPlan plan = beanDef.plan;
+            if (plan == null || plan.tables != beanDef.tables){
+                plan = getPlan(beanDef);
+            }
+            Object instance;
+            if (beanDef.factoryDef != null){
+                instance = ((BeanFactory) getInstance(beanDef.factoryDef)).createInstance();
+            }else{
+                instance = newInstance(beanDef, plan, getAll(plan.constructorDependencies));
+            }
+            inject(beanDef, plan, instance, false);
+            initBean(beanDef, instance);
+            return instance;
+        }
+    }
+
+    /**
+     * One run of {@link #destroyBeans(Collection)}: the dependencies of every bean among the beans to destroy, and
+     * the number of its dependents that are not destroyed yet. A bean is released once that number drops to zero.
+     */
+    class Shutdown{
+        final Map<BeanDefinition, List<BeanDefinition>> dependencies = new IdentityHashMap<BeanDefinition, List<BeanDefinition>>();
+        final Map<BeanDefinition, AtomicInteger> dependents = new IdentityHashMap<BeanDefinition, AtomicInteger>();
+        final Set<BeanDefinition> remaining = Collections.newSetFromMap(new ConcurrentHashMap<BeanDefinition, Boolean>());
+        final List<String> failedBeans = Collections.synchronizedList(new ArrayList<String>());
+        final List<Throwable> failures = Collections.synchronizedList(new ArrayList<Throwable>());
+        final CountDownLatch done;
+
+        Shutdown(Collection<BeanDefinition> beanDefs){
+            for (BeanDefinition beanDef : beanDefs){
+                dependents.put(beanDef, new AtomicInteger());
+            }
+            for (BeanDefinition beanDef : beanDefs){
+                List<BeanDefinition> beanDependencies = new ArrayList<BeanDefinition>();
+                addDestroyDependencies(beanDef, dependents.keySet(), beanDependencies,
+                        Collections.newSetFromMap(new IdentityHashMap<BeanDefinition, Boolean>()));
+                dependencies.put(beanDef, beanDependencies);
+                for (BeanDefinition dependency : beanDependencies){
+                    dependents.get(dependency).incrementAndGet();
+                }
+            }
+            remaining.addAll(beanDefs);
+            done = new CountDownLatch(beanDefs.size());
+        }
+
+        /**
+         * Destroys the ready beans. Beans without @PreDestroy methods are done on the calling thread.
+         */
+        void release(Deque<BeanDefinition> ready){
+            while (!ready.isEmpty()){
+                final BeanDefinition beanDef = ready.pop();
+                if (beanDef.provided || beanDef.metadata.destroyMethods.length == 0){
+                    destroyed(beanDef, ready);
+                    continue;
+                }
+                Runnable task = new Runnable() {
+                    @Override
+                    public void run() {
+                        destroy(beanDef);
+                        Deque<BeanDefinition> next = new ArrayDeque<BeanDefinition>();
+                        destroyed(beanDef, next);
+                        release(next);
+                    }
+                };
+                try {
+                    configuration.getStartupExecutor().execute(task);
+                } catch (RejectedExecutionException e) {
+                    task.run(); //the executor was shut down before the context.
+                }
+            }
+        }
+
+        private void destroy(BeanDefinition beanDef){
+            for (Method method : beanDef.metadata.destroyMethods){
+                try {
+                    method.invoke(beanDef.instance);
+                } catch (InvocationTargetException e) {
+                    failed(beanDef, e.getCause());
+                } catch (Exception e) {
+                    failed(beanDef, e);
+                }
+            }
+        }
+
+        private void failed(BeanDefinition beanDef, Throwable failure){
+            failedBeans.add(beanDef.getName());
+            failures.add(failure);
+        }
+
+        private void destroyed(BeanDefinition beanDef, Deque<BeanDefinition> ready){
+            for (BeanDefinition dependency : dependencies.get(beanDef)){
+                if (dependents.get(dependency).decrementAndGet() == 0){
+                    ready.push(dependency);
+                }
+            }
+            remaining.remove(beanDef);
+            done.countDown();
+        }
+    }
+
+    static class BeanLock extends ReentrantLock{
+        Thread owner(){
+            return getOwner();
+        }
+    }
+
+    /**
+     * The bean of a lookup key. A key that matches more than one bean, none of them {@link Primary}, keeps the
+     * ambiguity error instead of a definition.
+     */
+    static class TypeEntry{
+        final BeanDefinition beanDef;
+        final String ambiguityMessage;
+
+        TypeEntry(BeanDefinition beanDef, String ambiguityMessage){
+            this.beanDef = beanDef;
+            this.ambiguityMessage = ambiguityMessage;
+        }
+
+        BeanDefinition getBeanDef(){
+            if (ambiguityMessage != null){
+                throw new AmbigiousBeanDefException(ambiguityMessage);
+            }
+            return beanDef;
+        }
+    }
+
+    /**
+     * The bean definitions of the context and the indexes to look them up. The tables are filled before they are
+     * published and never modified afterwards. A bean that is not affected by a registration keeps its definition,
+     * which moves to the new tables.
+     */
+    class BeanTables{
+        final Set<String> unresolvedBeans = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+        //By bean name.
+        final Map<String, BeanDefinition> beans = new HashMap<String, BeanDefinition>();
+        //By lookup key, in the order of the definitions. Built once all beans are defined.
+        final Map<String, List<BeanDefinition>> beansByKey = new HashMap<String, List<BeanDefinition>>();
+        final Map<String, TypeEntry> entries = new HashMap<String, TypeEntry>();
+        //The entries of the unqualified keys by type, for getBean(). Types without an entry have no bean definition.
+        Map<Class, TypeEntry> beanTable;
+        //Built on first use of a key by a collection injection point.
+        final ConcurrentHashMap<String, BeanCollection> collections = new ConcurrentHashMap<String, BeanCollection>();
+        //The reverse dependency edges: the beans with an injection point of a key. Built on the first registration.
+        private Map<String, List<BeanDefinition>> dependents;
+
+        void index() {
+            for (BeanDefinition beanDefinition : beans.values()){
+                for (String key : beanDefinition.keys){
+                    List<BeanDefinition> beansForKey = beansByKey.get(key);
+                    if (beansForKey == null){
+                        beansForKey = new ArrayList<BeanDefinition>();
+                        beansByKey.put(key, beansForKey);
+                    }
+                    beansForKey.add(beanDefinition);
+                }
+            }
+            for (Map.Entry<String, List<BeanDefinition>> beansForKey : beansByKey.entrySet()){
+                entries.put(beansForKey.getKey(), toEntry(beansForKey.getKey(), beansForKey.getValue()));
+            }
+            Map<Class, TypeEntry> table = new IdentityHashMap<Class, TypeEntry>();
+            for (BeanDefinition beanDefinition : beans.values()){
+                for (Class type : getAllTypes(beanDefinition)){
+                    if (!table.containsKey(type)){
+                        table.put(type, entries.get(type.getName()));
+                    }
+                }
+            }
+            beanTable = table;
+        }
+
+        private TypeEntry toEntry(String key, List<BeanDefinition> beansForKey) {
+            if (beansForKey.size() == 1){
+                return new TypeEntry(beansForKey.get(0), null);
+            }
+            BeanDefinition primary = null;
+            for (BeanDefinition beanDef : beansForKey){
+                if (beanDef.primary && primary != null){
+                    return new TypeEntry(null, "More than one primary bean of type: "+key);
+                }
+                if (beanDef.primary){
+                    primary = beanDef;
+                }
+            }
+            if (primary == null){
+                return new TypeEntry(null, "More than one option for bean of type: "+key);
+            }
+            return new TypeEntry(primary, null);
+        }
+
+        BeanDefinition findBeanDef(String key) {
+            TypeEntry entry = entries.get(key);
+            if (entry == null){
+                if (parent != null){
+                    return parent.tables.findBeanDef(key);
+                }
+                return key.equals(eventBusDef.name) ? eventBusDef : null;
+            }
+            return entry.getBeanDef();
+        }
+
+        /**
+         * @return all beans of the given key, of this context or else of the closest parent that has any.
+         */
+        List<BeanDefinition> findBeanDefs(String key) {
+            List<BeanDefinition> beansForKey = beansByKey.get(key);
+            if (beansForKey == null && parent != null){
+                return parent.tables.findBeanDefs(key);
+            }
+            return beansForKey;
+        }
+
+        /**
+         * @param type a bean class or a parameterized bean type.
+         */
+        BeanDefinition findRequiredBeanDef(Type type, String key) {
+            if (key == null){
+                throw new RuntimeException("Not supported type: "+type+". Types with type variables can't be resolved");
+            }
+            BeanDefinition beanDef = findBeanDef(key);
+            if (beanDef == null){
+                String typeKey = GenericTypes.key(type);
+                throw new UndefinedBeanException("Unable to resolve type: "+type+(key.equals(typeKey) ? "" :
+                        " with qualifier "+key.substring(typeKey.length()))+". No bean definition that has this type");
+            }
+            return beanDef;
+        }
+
+        BeanDefinition findProvidedBeanDef(ParameterizedType providerType, String key) {
+            Type providedType = providerType.getActualTypeArguments()[0];
+            if (!(providedType instanceof Class) && !(providedType instanceof ParameterizedType)){
+                throw new RuntimeException("Not supported provider type: "+providerType+". Only providers of bean classes and parameterized types are supported");
+            }
+            return findRequiredBeanDef(providedType, key);
+        }
+
+        /**
+         * @return the beans of a List, Set, Map&lt;String, T&gt; or array injection point, or null if the type is no
+         * collection of beans.
+         */
+        BeanCollection findCollection(Type type, String key) {
+            Type elementType = BeanMetadata.getElementType(type);
+            if (elementType == null){
+                return null;
+            }
+            if (!(elementType instanceof Class) && !(elementType instanceof ParameterizedType)){
+                throw new RuntimeException("Not supported parametrized type: "+type+". Only collections of bean classes and parameterized types are supported");
+            }
+            BeanCollection collection = collections.get(key);
+            if (collection == null){
+                List<BeanDefinition> beansOfType = findBeanDefs(key);
+                BeanDefinition[] members = beansOfType == null ? new BeanDefinition[0] : beansOfType.toArray(new BeanDefinition[]{});
+                Arrays.sort(members, new Comparator<BeanDefinition>() {
+                    @Override
+                    public int compare(BeanDefinition beanDef1, BeanDefinition beanDef2) {
+                        return Integer.compare(getOrder(beanDef1), getOrder(beanDef2));
+                    }
+                });
+                collection = new BeanCollection(GenericTypes.rawType(elementType), members);
+                BeanCollection existing = collections.putIfAbsent(key, collection);
+                if (existing != null){
+                    collection = existing;
+                }
+            }
+            return collection;
+        }
+
+        /**
+         * @return the beans with an injection point of the given key, of a collection of it or of a provider of it.
+         */
+        List<BeanDefinition> getDependents(String key) {
+            if (dependents == null){
+                dependents = new HashMap<String, List<BeanDefinition>>();
+                for (BeanDefinition beanDef : beans.values()){
+                    BeanMetadata metadata = beanDef.metadata;
+                    if (beanDef.factoryDef != null){
+                        addDependents(new String[]{beanDef.factoryBean.getName()}, beanDef);
+                    }else if (!beanDef.provided){
+                        addDependents(metadata.getConstructorKeys(), beanDef);
+                    }
+                    addDependents(metadata.fieldKeys, beanDef);
+                    for (String[] parameterKeys : metadata.setterKeys){
+                        addDependents(parameterKeys, beanDef);
+                    }
+                }
+            }
+            List<BeanDefinition> beanDefs = dependents.get(key);
+            return beanDefs != null ? beanDefs : Collections.<BeanDefinition>emptyList();
+        }
+
+        private void addDependents(String[] keys, BeanDefinition beanDef) {
+            for (String key : keys){
+                if (key == null){
+                    continue;
+                }
+                List<BeanDefinition> beanDefs = dependents.get(key);
+                if (beanDefs == null){
+                    beanDefs = new ArrayList<BeanDefinition>();
+                    dependents.put(key, beanDefs);
+                }
+                beanDefs.add(beanDef);
+            }
+        }
+    }
+
+    //The bean definitions of all contexts that a thread waits for, to find cycles between beans created by different threads.
+    private static final Map<Thread, BeanDefinition> awaitedBeans = new ConcurrentHashMap<Thread, BeanDefinition>();
+
+    //Replaced as a whole when beans are registered or removed.
+    private volatile BeanTables tables;
+    //Registrations are applied one at a time.
+    private final Object registrationLock = new Object();
+    private final ContextConfiguration configuration;
+    //Lookups of types without a local bean definition fall through to the parent.
+    private final SimpleApplicationContext parent;
+    //Null unless configured, so startup without a listener does not read the clock.
+    private final StartupListener startupListener;
+    //Eager beans in the order they were created, recorded during startup when a snapshot is to be written.
+    private List<BeanDefinition> creationOrder = null;
+    //The recorded creation order of a restored snapshot, replayed by resolveBeans().
+    private BeanDefinition[] restoredOrder = null;
+    //The System.nanoTime() by which the products of async factories have to be done, while the context starts.
+    private boolean startupDeadlineSet = false;
+    private long startupDeadline = 0;
+    //Async @PostConstruct methods by bean name, handed to the startup executor while the context starts.
+    private volatile Map<String, Future> pendingInits = null;
+    private final AtomicBoolean closed = new AtomicBoolean(false);
+    //The interceptor chains of the interceptable methods of every bean type, see InterceptedType.
+    private final Map<Class, MethodInterceptor[][]> interceptorChains = new ConcurrentHashMap<Class, MethodInterceptor[][]>();
+    private static final MethodInterceptor[][] NO_INTERCEPTORS = new MethodInterceptor[0][];
+    //The cache of every @Cacheable method, of the last created instance of its class.
+    private final ConcurrentHashMap<Method, MethodCache> methodCaches = new ConcurrentHashMap<Method, MethodCache>();
+    //The bindings of the @Value fields, read from the properties of the configuration.
+    private final PropertyBinder propertyBinder;
+    //Shared with the children. The root context injects it as a bean that isn't in its tables, see BeanTables.findBeanDef.
+    private final EventBus eventBus;
+    private final BeanDefinition eventBusDef;
+    private boolean restoredFromSnapshot = false;
+
+    public SimpleApplicationContext(Class[] classes, Object[] singletones){
+        this(classes, singletones, new ContextConfiguration());
+    }
+
+    public SimpleApplicationContext(Class[] classes, Object[] singletones, ContextConfiguration configuration){
+        this(null, classes, singletones, configuration);
+    }
+
+    /**
+     * Creates a child context that defines the given beans and gets all other beans from the parent.
+     * The child uses the configuration of the parent but never its snapshot file. Only the beans of the child are
+     * analyzed and created, so the cost of a child depends on its own beans and not on the size of the parent.
+     * A bean of the child hides the beans of the parent with the same type, for lookups and for List injection.
+     */
+    public SimpleApplicationContext(SimpleApplicationContext parent, Class[] classes, Object[] singletones){
+        this(parent, classes, singletones, parent.configuration);
+    }
+
+    private SimpleApplicationContext(SimpleApplicationContext parent, Class[] classes, Object[] singletones,
+                                     ContextConfiguration configuration){
+        this.parent = parent;
+        this.configuration = configuration;
+        this.startupListener = configuration.getStartupListener();
+        this.propertyBinder = new PropertyBinder(configuration);
+        this.eventBus = parent != null ? parent.eventBus : new EventBus(configuration);
+        this.eventBusDef = parent != null ? null : eventBusDefinition();
+        long start = startupListener != null ? System.nanoTime() : 0;
+        File snapshotFile = parent == null ? configuration.getSnapshotFile() : null;
+        GraphSnapshot snapshot = snapshotFile != null ? GraphSnapshot.read(snapshotFile, classes, singletones) : null;
+        BeanTables initialTables = new BeanTables();
+        if (snapshot != null){
+            restoreSnapshot(initialTables, snapshot, singletones);
+        }else{
+            populateUnresolvedBeans(initialTables, classes, singletones);
+            if (snapshotFile != null){
+                creationOrder = Collections.synchronizedList(new ArrayList<BeanDefinition>());
+            }
+        }
+        initialTables.index();
+        tables = initialTables;
+        //Lazy beans too, so a missing or invalid property fails the start.
+        for (BeanDefinition beanDef : initialTables.beans.values()){
+            propertyBinder.getBindings(beanDef.metadata);
+        }
+        if (configuration.getStartupTimeoutNanos() > 0){
+            startupDeadline = System.nanoTime() + configuration.getStartupTimeoutNanos();
+            startupDeadlineSet = true;
+        }
+        pendingInits = new ConcurrentHashMap<String, Future>();
+        try {
+            startAsyncFactories(initialTables);
+            if (configuration.isParallelStartup()){
+                resolveBeansInParallel();
+            }else{
+                resolveBeans();
+            }
+            awaitPendingInits();
+        } catch (RuntimeException e) {
+            cancelPendingInstances(initialTables);
+            for (Future init : pendingInits.values()){
+                init.cancel(true);
+            }
+            throw e;
+        } finally {
+            pendingInits = null;
+        }
+        startupDeadlineSet = false;
+        if (creationOrder != null){
+            writeSnapshot(snapshotFile, classes, singletones);
+            creationOrder = null;
+        }
+        if (startupListener != null){
+            startupListener.contextStarted(System.nanoTime() - start);
+        }
     }
 
-    private void getAllTypes(List<Class> types, Class beanType) {
-        types.add(beanType);
-        for (Class interf : beanType.getInterfaces()){
-            types.add(interf);
+    private BeanDefinition eventBusDefinition() {
+        BeanDefinition beanDef = new BeanDefinition();
+        beanDef.beanType = EventBus.class;
+        beanDef.instance = eventBus;
+        beanDef.metadata = BeanMetadata.forType(EventBus.class);
+        beanDef.name = EventBus.class.getName();
+        beanDef.keys = new String[]{beanDef.name};
+        beanDef.provided = true;
+        beanDef.beanResolutionState = BeanResolutionState.RESOLVED;
+        return beanDef;
+    }
+
+    /**
+     * @return the event bus of the root context, which delivers events to the {@link EventListener}s of the created
+     * singletons of the root and all its children.
+     */
+    public EventBus getEventBus() {
+        return eventBus;
+    }
+
+    /**
+     * @return true if the bean graph was read from the snapshot file of the configuration instead of analyzed.
+     */
+    public boolean isRestoredFromSnapshot() {
+        return restoredFromSnapshot;
+    }
+
+    private void restoreSnapshot(BeanTables tables, GraphSnapshot snapshot, Object[] singletones) {
+        Map<String, Object> instances = new HashMap<String, Object>();
+        for (Object singleton : singletones){
+            instances.put(singleton.getClass().getName(), singleton);
+        }
+        BeanDefinition[] definitions = new BeanDefinition[snapshot.beans.length];
+        for (int i = 0; i < definitions.length; i++){
+            GraphSnapshot.BeanRecord bean = snapshot.beans[i];
+            BeanDefinition definition = new BeanDefinition();
+            definition.beanType = bean.beanType;
+            definition.metadata = bean.metadata;
+            if (bean.kind == GraphSnapshot.INSTANCE){
+                definition.instance = instances.get(bean.beanType.getName());
+                definition.provided = true;
+            }else if (bean.kind == GraphSnapshot.PRODUCT){
+                definition.factoryDef = definitions[bean.factory];
+                definition.factoryBean = definition.factoryDef.beanType;
+            }
+            addUnresolvedBean(tables, definition);
+            definitions[i] = definition;
+        }
+        restoredOrder = new BeanDefinition[snapshot.creationOrder.length];
+        for (int i = 0; i < restoredOrder.length; i++){
+            restoredOrder[i] = definitions[snapshot.creationOrder[i]];
+        }
+        restoredFromSnapshot = true;
+    }
+
+    private void writeSnapshot(File snapshotFile, Class[] classes, Object[] singletones) {
+        Map<String, BeanDefinition> beans = tables.beans;
+        //Factories are written before their products, so a product can refer to its factory when it is read.
+        List<BeanDefinition> definitions = new ArrayList<BeanDefinition>();
+        for (BeanDefinition beanDef : beans.values()){
+            if (beanDef.factoryBean == null){
+                definitions.add(beanDef);
+            }
+        }
+        for (BeanDefinition beanDef : beans.values()){
+            if (beanDef.factoryBean != null){
+                definitions.add(beanDef);
+            }
+        }
+        Map<BeanDefinition, Integer> indices = new IdentityHashMap<BeanDefinition, Integer>();
+        GraphSnapshot.BeanRecord[] records = new GraphSnapshot.BeanRecord[definitions.size()];
+        for (int i = 0; i < records.length; i++){
+            BeanDefinition beanDef = definitions.get(i);
+            indices.put(beanDef, i);
+            if (beanDef.factoryBean != null){
+                records[i] = new GraphSnapshot.BeanRecord(beanDef.beanType, GraphSnapshot.PRODUCT,
+                        indices.get(beanDef.factoryDef), beanDef.metadata);
+            }else{
+                records[i] = new GraphSnapshot.BeanRecord(beanDef.beanType,
+                        beanDef.provided ? GraphSnapshot.INSTANCE : GraphSnapshot.CLASS, -1, beanDef.metadata);
+            }
+        }
+        int[] order = new int[creationOrder.size()];
+        for (int i = 0; i < order.length; i++){
+            order[i] = indices.get(creationOrder.get(i));
         }
-        if (beanType.getSuperclass() != null && beanType.getSuperclass() != Object.class){
-            getAllTypes(types, beanType.getSuperclass());
+        try {
+            GraphSnapshot.write(snapshotFile, GraphSnapshot.inputFingerprint(classes, singletones), records, order);
+        } catch (IOException e) {
+            //The snapshot only speeds up the next start, which analyzes the beans again.
         }
     }
 
-    private void populateUnresolvedBeans(Class[] classes, Object[] singletones) {
+    private Class[] getAllTypes(BeanDefinition beanDefinition) {
+        return beanDefinition.metadata.allTypes;
+    }
+
+    private void populateUnresolvedBeans(BeanTables tables, Class[] classes, Object[] singletones) {
         for (Class beanClass : classes){
             BeanDefinition definition = new BeanDefinition();
             definition.beanType = beanClass;
             definition.instance = null;
-            addUnresolvedBean(definition);
+            addUnresolvedBean(tables, definition);
         }
         for (Object beanInstance : singletones){
             BeanDefinition definition = new BeanDefinition();
             definition.instance = beanInstance;
             definition.beanType = beanInstance.getClass();
-            addUnresolvedBean(definition);
+            definition.provided = true;
+            addUnresolvedBean(tables, definition);
         }
-        for (BeanDefinition beanDefinition : beans.values().toArray(new BeanDefinition[]{})){
-            if (BeanFactory.class.isAssignableFrom(beanDefinition.beanType)){
-                addFactoryProductBeanDef(beanDefinition);
+        for (BeanDefinition beanDefinition : tables.beans.values().toArray(new BeanDefinition[]{})){
+            if (beanDefinition.metadata.factoryProductType != null){
+                addFactoryProductBeanDef(tables, beanDefinition);
             }
         }
     }
 
-    private void addUnresolvedBean(BeanDefinition definition) {
+    private void addUnresolvedBean(BeanTables tables, BeanDefinition definition) {
         definition.beanResolutionState = BeanResolutionState.UNRESOLVED;
-        unresolvedBeans.add(definition.getName());
-        beans.put(definition.getName(), definition);
+        definition.tables = tables;
+        //Definitions restored from a snapshot come with their metadata.
+        if (definition.metadata == null && startupListener != null){
+            long start = System.nanoTime();
+            definition.metadata = BeanMetadata.forType(definition.beanType);
+            definition.reflectionNanos = System.nanoTime() - start;
+        }else if (definition.metadata == null){
+            definition.metadata = BeanMetadata.forType(definition.beanType);
+        }
+        BeanMetadata factoryMetadata = definition.factoryDef != null ? definition.factoryDef.metadata : null;
+        definition.name = factoryMetadata != null ? factoryMetadata.productName : definition.metadata.name;
+        definition.primary = factoryMetadata != null ? factoryMetadata.productPrimary : definition.metadata.primary;
+        definition.keys = definition.metadata.getKeys(factoryMetadata != null ? factoryMetadata.productQualifier : definition.metadata.qualifier,
+                factoryMetadata);
+        Lazy lazy = (Lazy) (definition.factoryBean != null ? definition.factoryBean : definition.beanType).getAnnotation(Lazy.class);
+        definition.lazy = lazy != null ? lazy.value() : configuration.isLazyInit();
+        Class<? extends Annotation> scopeAnnotation = factoryMetadata != null ?
+                factoryMetadata.productScopeAnnotation : definition.metadata.scopeAnnotation;
+        if (scopeAnnotation != null){
+            Scope scope = configuration.getScope(scopeAnnotation);
+            if (scope == null){
+                throw new UndefinedScopeException("No scope registered for @"+scopeAnnotation.getName()+" of bean: "+definition.getName());
+            }
+            if (factoryMetadata == null && definition.metadata.cacheable){
+                //The caches belong to a single instance, see getInterceptorChains.
+                throw new BeanInstatiationException(new IllegalStateException("@Cacheable bean has to be a singleton: "+
+                        definition.getName()+" is @"+scopeAnnotation.getSimpleName()));
+            }
+            definition.scopedProvider = scope.scope(definition.beanType, new ScopedBeanCreator(definition));
+        }
+        definition.provider = definition.scopedProvider != null ? definition.scopedProvider : new SingletonProvider(definition);
+        tables.unresolvedBeans.add(definition.getName());
+        tables.beans.put(definition.getName(), definition);
     }
 
-    private void addFactoryProductBeanDef(BeanDefinition factoryBeanDef) {
-        Type[] types = getGenericTypes(factoryBeanDef.beanType, BeanFactory.class);
-        Class productType = (Class) types[0];
+    private BeanDefinition addFactoryProductBeanDef(BeanTables tables, BeanDefinition factoryBeanDef) {
         BeanDefinition productDefinition = new BeanDefinition();
-        productDefinition.beanType = productType;
+        productDefinition.beanType = factoryBeanDef.metadata.factoryProductType;
         productDefinition.factoryBean = factoryBeanDef.beanType;
+        productDefinition.factoryDef = factoryBeanDef;
         productDefinition.instance = null;
-        addUnresolvedBean(productDefinition);
+        addUnresolvedBean(tables, productDefinition);
+        return productDefinition;
+    }
+
+    /**
+     * Starts the products of all async factories that are eager singletons, so their work overlaps with each other
+     * and with the creation of all other beans.
+     */
+    private void startAsyncFactories(BeanTables tables) {
+        for (BeanDefinition beanDef : tables.beans.values()){
+            if (beanDef.factoryBean != null && AsyncBeanFactory.class.isAssignableFrom(beanDef.factoryBean)
+                    && isEagerSingleton(beanDef)){
+                AsyncBeanFactory factory = (AsyncBeanFactory) getInstance(beanDef.factoryDef);
+                beanDef.pendingInstance = factory.createInstanceAsync();
+            }
+        }
+    }
+
+    private void cancelPendingInstances(BeanTables tables) {
+        for (BeanDefinition beanDef : tables.beans.values()){
+            CompletableFuture pendingInstance = beanDef.pendingInstance;
+            if (pendingInstance != null){
+                pendingInstance.cancel(true);
+                beanDef.pendingInstance = null;
+            }
+        }
     }
 
-    private Type[] getGenericTypes(Class clazz, Class interfaceClazz) {
-        Type[] genericInterfaces = clazz.getGenericInterfaces();
-        for (Type genericInterface : genericInterfaces) {
-            if (((Class) ((ParameterizedType) genericInterface).getRawType()).isAssignableFrom(interfaceClazz)) {
-                Type[] types = ((ParameterizedType) genericInterface).getActualTypeArguments();
-                return types;
+    private void awaitPendingInits() {
+        for (Map.Entry<String, Future> init : pendingInits.entrySet()){
+            try {
+                if (!startupDeadlineSet){
+                    init.getValue().get();
+                }else{
+                    init.getValue().get(startupDeadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new BeanInstatiationException(e);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof RuntimeException){
+                    throw (RuntimeException) e.getCause();
+                }
+                throw new BeanInstatiationException(e.getCause());
+            } catch (TimeoutException e) {
+                List<String> pendingBeans = new ArrayList<String>();
+                for (Map.Entry<String, Future> other : pendingInits.entrySet()){
+                    if (!other.getValue().isDone()){
+                        pendingBeans.add(other.getKey());
+                    }
+                }
+                throw new StartupTimeoutException("Startup timeout of "+TimeUnit.NANOSECONDS.toMillis(configuration.getStartupTimeoutNanos())+
+                        " ms passed while waiting for @PostConstruct methods of beans: "+pendingBeans);
             }
         }
-        return null;
     }
 
     private void resolveBeans() {
-        while (!unresolvedBeans.isEmpty()){
-            String beanName = unresolvedBeans.iterator().next();
-            resolveBean(beanName);
+        if (restoredOrder != null){
+            for (BeanDefinition beanDef : restoredOrder){
+                if (beanDef.beanResolutionState == BeanResolutionState.UNRESOLVED && isEagerSingleton(beanDef)){
+                    resolveBean(beanDef);
+                }
+            }
+            restoredOrder = null;
+        }
+        BeanTables tables = this.tables;
+        List<BeanDefinition> pendingBeans = new ArrayList<BeanDefinition>();
+        for (String beanName : tables.unresolvedBeans.toArray(new String[]{})){
+            BeanDefinition beanDef = tables.beans.get(beanName);
+            if (beanDef.pendingInstance != null){
+                pendingBeans.add(beanDef); //waited for last, unless another bean needs it first.
+            }else if (tables.unresolvedBeans.contains(beanName) && isEagerSingleton(beanDef)){
+                resolveBean(beanDef);
+            }
         }
+        for (BeanDefinition beanDef : pendingBeans){
+            if (beanDef.beanResolutionState == BeanResolutionState.UNRESOLVED){
+                resolveBean(beanDef);
+            }
+        }
+    }
+
+    private boolean isEagerSingleton(BeanDefinition beanDef) {
+        return !beanDef.lazy && beanDef.scopedProvider == null;
     }
 
-    private void resolveBean(String beanName) {
-        BeanDefinition beanDef = findBeanDef(beanName);
-        if (beanDef == null){
-            throw new UndefinedBeanException("Missing bean definition. (Bean: "+beanName+")");
+    /**
+     * Creates a singleton and everything it depends on, on the calling thread. Every bean is created under its own
+     * lock, which the thread keeps while it creates the dependencies. Another thread that needs the bean waits for
+     * it, unless it holds a bean that the creating thread waits for, which is a cycle.
+     * A bean that fails is left unresolved, so a later request tries again.
+     */
+    private void resolveBean(BeanDefinition beanDef) {
+        lockBean(beanDef);
+        try {
+            if (beanDef.beanResolutionState == BeanResolutionState.RESOLVED){
+                return; //resolved while we waited.
+            }
+            if (beanDef.beanResolutionState == BeanResolutionState.IN_PROGRESS){
+                throw beanDef.getContext().cyclicDependency(beanDef);
+            }
+            beanDef.beanResolutionState = BeanResolutionState.IN_PROGRESS;
+            try {
+                createBean(beanDef);
+            } catch (RuntimeException e) {
+                beanDef.beanResolutionState = BeanResolutionState.UNRESOLVED;
+                throw e;
+            }
+            beanDef.beanResolutionState = BeanResolutionState.RESOLVED;
+            beanDef.tables.unresolvedBeans.remove(beanDef.getName());
+            if (creationOrder != null){
+                creationOrder.add(beanDef);
+            }
+        } finally {
+            beanDef.lock.unlock();
         }
-        if (beanDef.beanResolutionState == BeanResolutionState.IN_PROGRESS){
-            throw new CyclicDependencyException("Cyclic dependency found starting with bean: "+beanName);
+    }
+
+    private static void lockBean(BeanDefinition beanDef) {
+        BeanLock lock = beanDef.lock;
+        if (lock.tryLock()){
+            return;
         }
-        if (beanDef.beanResolutionState == BeanResolutionState.RESOLVED){
-            return; //bean already resolved.
+        Thread current = Thread.currentThread();
+        //Registered before the check, so of two threads that close a cycle at the same time at least one sees it.
+        awaitedBeans.put(current, beanDef);
+        try {
+            Thread owner = lock.owner();
+            for (int i = awaitedBeans.size(); owner != null && i >= 0; i--){
+                if (owner == current){
+                    throw beanDef.getContext().cyclicDependency(beanDef);
+                }
+                BeanDefinition awaited = awaitedBeans.get(owner);
+                owner = awaited != null ? awaited.lock.owner() : null;
+            }
+            lock.lock();
+        } finally {
+            awaitedBeans.remove(current);
+        }
+    }
+
+    private void createBean(BeanDefinition beanDef) {
+        //Not kept, as a singleton is created once, and the plan would keep its dependencies from being collected.
+        InjectionPlan plan = new InjectionPlan(beanDef);
+        if (startupListener == null){
+            if (beanDef.instance == null){
+                beanDef.instance = instantiateBean(beanDef, plan);
+            }
+            inject(beanDef, plan, beanDef.instance, false);
+            initBean(beanDef, beanDef.instance);
+            registerListeners(beanDef);
+            return;
         }
-        beanDef.beanResolutionState = BeanResolutionState.IN_PROGRESS;
-        unresolvedBeans.remove(beanName);
+        long start = System.nanoTime();
+        List<BeanDefinition> dependencies = getDependencies(beanDef);
         if (beanDef.instance == null){
-            beanDef.instance = instantiateBean(beanDef);
+            beanDef.instance = instantiateBean(beanDef, plan);
         }
-        injectFields(beanDef);
-        injectSetters(beanDef);
-        beanDef.beanResolutionState = BeanResolutionState.RESOLVED;
+        inject(beanDef, plan, beanDef.instance, true);
+        initBean(beanDef, beanDef.instance);
+        registerListeners(beanDef);
+        reportTiming(beanDef, dependencies, System.nanoTime() - start);
     }
 
-    private BeanDefinition findBeanDef(String className) {
-        List<BeanDefinition> beansForType = beansByType.get(className);
-        if (beansForType == null){
-            return null;
+    /**
+     * @return the plan of a scoped bean, built on its first instance and again after the definition moved to new
+     * tables, once the bean is checked for cycles.
+     */
+    private InjectionPlan getPlan(BeanDefinition beanDef) {
+        InjectionPlan plan = beanDef.plan;
+        if (plan == null || plan.tables != beanDef.tables){
+            checkScopedCycles(beanDef);
+            plan = new InjectionPlan(beanDef);
+            beanDef.plan = plan;
         }
-        if (beansForType.size() > 1){
-            throw new AmbigiousBeanDefException("More than one option for bean of type: "+className);
+        return plan;
+    }
+
+    private void registerListeners(BeanDefinition beanDef) {
+        if (beanDef.metadata.listenerMethods.length > 0){
+            eventBus.register(beanDef.instance, beanDef.metadata);
         }
-        return beansForType.get(0);
     }
 
-    private void injectSetters(BeanDefinition beanDef) {
-        for (Method method : beanDef.beanType.getDeclaredMethods()){
-            if (method.getAnnotation(Inject.class) != null){
-                Object[] params = resolveDependencies(method.getGenericParameterTypes());
-                try {
-                    method.setAccessible(true);
-                    method.invoke(beanDef.instance, params);
-                } catch (IllegalAccessException e) {
-                    throw new BeanInstatiationException(e);
-                } catch (InvocationTargetException e) {
-                    throw new BeanInstatiationException(e);
+    private void reportTiming(BeanDefinition beanDef, List<BeanDefinition> dependencies, long resolveNanos) {
+        Class[] dependencyTypes = new Class[dependencies.size()];
+        int depth = 0;
+        for (int i = 0; i < dependencyTypes.length; i++){
+            dependencyTypes[i] = dependencies.get(i).beanType;
+            depth = Math.max(depth, getDepth(dependencies.get(i)) + 1);
+        }
+        beanDef.depth = depth;
+        startupListener.beanResolved(new BeanTiming(beanDef.beanType, dependencyTypes, resolveNanos, beanDef.instantiateNanos,
+                beanDef.injectNanos, beanDef.reflectionNanos, depth));
+    }
+
+    /**
+     * @return length of the longest dependency chain below the bean. Created singletons already know their depth,
+     * scoped beans are never created by the context and are walked every time.
+     */
+    private int getDepth(BeanDefinition beanDef) {
+        if (beanDef.getContext() != this){
+            return beanDef.getContext().getDepth(beanDef);
+        }
+        if (beanDef.depth >= 0){
+            return beanDef.depth;
+        }
+        int depth = 0;
+        for (BeanDefinition dependency : getDependencies(beanDef)){
+            depth = Math.max(depth, getDepth(dependency) + 1);
+        }
+        return depth;
+    }
+
+    /**
+     * Orders the beans by their depth in the dependency graph and creates all beans of the same depth concurrently.
+     * The whole graph is checked for missing, ambiguous and cyclic dependencies before any bean is created,
+     * and a failing level reports the failure of its first bean, so errors do not depend on thread scheduling.
+     */
+    private void resolveBeansInParallel() {
+        Map<BeanDefinition, Integer> levelByBean = new IdentityHashMap<BeanDefinition, Integer>();
+        List<List<BeanDefinition>> levels = new ArrayList<List<BeanDefinition>>();
+        BeanTables tables = this.tables;
+        for (String beanName : tables.unresolvedBeans){
+            BeanDefinition beanDef = tables.beans.get(beanName);
+            if (isEagerSingleton(beanDef)){
+                computeLevel(beanDef, levelByBean, levels);
+            }
+        }
+        for (List<BeanDefinition> level : levels){
+            createBeans(level);
+        }
+    }
+
+    private int computeLevel(BeanDefinition beanDef, Map<BeanDefinition, Integer> levelByBean, List<List<BeanDefinition>> levels) {
+        if (beanDef.getContext() != this){
+            return -1; //created by the parent.
+        }
+        Integer knownLevel = levelByBean.get(beanDef);
+        if (knownLevel != null){
+            if (knownLevel < 0){
+                throw beanDef.getContext().cyclicDependency(beanDef);
+            }
+            return knownLevel;
+        }
+        levelByBean.put(beanDef, -1);
+        int level = 0;
+        for (BeanDefinition dependency : getDependencies(beanDef)){
+            level = Math.max(level, computeLevel(dependency, levelByBean, levels) + 1);
+        }
+        levelByBean.put(beanDef, level);
+        if (beanDef.scopedProvider != null){
+            return level; //created on demand, once the singletons it depends on exist.
+        }
+        while (levels.size() <= level){
+            levels.add(new ArrayList<BeanDefinition>());
+        }
+        levels.get(level).add(beanDef);
+        return level;
+    }
+
+    private void createBeans(List<BeanDefinition> beansOfLevel) {
+        List<BeanDefinition> level = new ArrayList<BeanDefinition>();
+        for (BeanDefinition beanDef : beansOfLevel){
+            //A provider called during an earlier level may already have resolved the bean.
+            if (beanDef.beanResolutionState == BeanResolutionState.UNRESOLVED){
+                level.add(beanDef);
+            }
+        }
+        if (level.isEmpty()){
+            return;
+        }
+        if (level.size() == 1){
+            resolveBean(level.get(0));
+            return;
+        }
+        List<Callable<Object>> tasks = new ArrayList<Callable<Object>>();
+        for (final BeanDefinition beanDef : level){
+            tasks.add(new Callable<Object>() {
+                @Override
+                public Object call() {
+                    resolveBean(beanDef);
+                    return null;
+                }
+            });
+        }
+        List<Future<Object>> results;
+        try {
+            results = configuration.getStartupExecutor().invokeAll(tasks);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BeanInstatiationException(e);
+        }
+        for (Future<Object> result : results){
+            try {
+                result.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new BeanInstatiationException(e);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof RuntimeException){
+                    throw (RuntimeException) e.getCause();
                 }
+                throw new BeanInstatiationException(e.getCause());
             }
         }
     }
 
-    private void injectFields(BeanDefinition beanDef) {
-        for (Field field : beanDef.beanType.getDeclaredFields()){
-            if (field.getAnnotation(Inject.class) != null){
-                Object[] valueToInject = resolveDependencies(new Type[]{field.getGenericType()});
-                field.setAccessible(true);
-                try {
-                    field.set(beanDef.instance, valueToInject[0]);
-                } catch (IllegalAccessException e) {
-                    throw new RuntimeException(e);
+    /**
+     * @return the beans that have to be resolved before the given bean can be created and injected.
+     */
+    private List<BeanDefinition> getDependencies(BeanDefinition beanDef) {
+        return getDependencies(beanDef, null);
+    }
+
+    /**
+     * @param providers receives the beans of the Provider injection points, unless it is null.
+     */
+    private List<BeanDefinition> getDependencies(BeanDefinition beanDef, List<BeanDefinition> providers) {
+        List<BeanDefinition> dependencies = new ArrayList<BeanDefinition>();
+        BeanMetadata metadata = beanDef.metadata;
+        BeanTables tables = beanDef.tables;
+        if (!beanDef.provided){
+            if (beanDef.factoryDef != null){
+                dependencies.add(beanDef.factoryDef);
+            }else{
+                addDependencies(tables, dependencies, providers, metadata.getConstructorParameterTypes(), metadata.getConstructorKeys());
+            }
+        }
+        addDependencies(tables, dependencies, providers, metadata.fieldTypes, metadata.fieldKeys);
+        for (int i = 0; i < metadata.setterParameterTypes.length; i++){
+            addDependencies(tables, dependencies, providers, metadata.setterParameterTypes[i], metadata.setterKeys[i]);
+        }
+        return dependencies;
+    }
+
+    private void addDependencies(BeanTables tables, List<BeanDefinition> dependencies, List<BeanDefinition> providers,
+                                 Type[] types, String[] keys) {
+        for (int i = 0; i < types.length; i++){
+            Type type = types[i];
+            BeanCollection collection = tables.findCollection(type, keys[i]);
+            if (collection != null){
+                dependencies.addAll(Arrays.asList(collection.members));
+            }else if (isProvider(type)){
+                //Not a dependency: the bean is created when the provider is called.
+                BeanDefinition provided = tables.findProvidedBeanDef((ParameterizedType) type, keys[i]);
+                if (providers != null){
+                    providers.add(provided);
+                }
+            }else if (keys[i] != null){
+                dependencies.add(tables.findRequiredBeanDef(type, keys[i]));
+            }
+        }
+    }
+
+    private Dependency[] toDependencies(BeanTables tables, Type[] types, String[] keys) {
+        Dependency[] dependencies = new Dependency[types.length];
+        for (int i = 0; i < types.length; i++){
+            Type type = types[i];
+            BeanCollection collection = tables.findCollection(type, keys[i]);
+            if (collection != null){
+                dependencies[i] = new Dependency(null, collection, type, null);
+            }else if (isProvider(type)){
+                dependencies[i] = new Dependency(null, null, null, tables.findProvidedBeanDef((ParameterizedType) type, keys[i]));
+            }else{
+                dependencies[i] = new Dependency(tables.findRequiredBeanDef(type, keys[i]), null, null, null);
+            }
+        }
+        return dependencies;
+    }
+
+    private static int getOrder(BeanDefinition beanDef) {
+        Order order = (Order) (beanDef.factoryBean != null ? beanDef.factoryBean : beanDef.beanType).getAnnotation(Order.class);
+        return order != null ? order.value() : Integer.MAX_VALUE;
+    }
+
+    private static boolean isProvider(Type type) {
+        return type instanceof ParameterizedType && ((ParameterizedType) type).getRawType() == Provider.class;
+    }
+
+    /**
+     * @return the exception for a cycle through the given bean, with the shortest path of dependencies back to it.
+     */
+    CyclicDependencyException cyclicDependency(BeanDefinition start) {
+        Map<BeanDefinition, BeanDefinition> previous = new IdentityHashMap<BeanDefinition, BeanDefinition>();
+        Deque<BeanDefinition> toVisit = new ArrayDeque<BeanDefinition>();
+        toVisit.add(start);
+        LinkedList<String> cycle = new LinkedList<String>();
+        while (!toVisit.isEmpty() && cycle.isEmpty()){
+            BeanDefinition beanDef = toVisit.poll();
+            List<BeanDefinition> dependencies;
+            try {
+                dependencies = getDependencies(beanDef);
+            } catch (RuntimeException e) {
+                continue; //reported on its own when the bean is created.
+            }
+            for (BeanDefinition dependency : dependencies){
+                if (dependency == start){
+                    cycle.add(start.getName());
+                    for (BeanDefinition current = beanDef; current != null; current = previous.get(current)){
+                        cycle.addFirst(current.getName());
+                    }
+                    break;
+                }
+                if (dependency.getContext() == this && !previous.containsKey(dependency)){
+                    previous.put(dependency, beanDef);
+                    toVisit.add(dependency);
+                }
+            }
+        }
+        StringBuilder path = new StringBuilder();
+        for (String name : cycle){
+            path.append(path.length() > 0 ? " -> " : "").append(name);
+        }
+        return new CyclicDependencyException("Cyclic dependency found starting with bean: "+start.getName()+
+                (cycle.isEmpty() ? "" : " ("+path+")"));
+    }
+
+    /**
+     * Scoped beans are created on demand without resolution states, so a cycle between them has to be found up front.
+     */
+    private void checkScopedCycles(BeanDefinition scopedBeanDef) {
+        Set<BeanDefinition> visited = Collections.newSetFromMap(new IdentityHashMap<BeanDefinition, Boolean>());
+        Deque<BeanDefinition> toVisit = new ArrayDeque<BeanDefinition>(getDependencies(scopedBeanDef));
+        while (!toVisit.isEmpty()){
+            BeanDefinition beanDef = toVisit.pop();
+            if (beanDef == scopedBeanDef){
+                throw cyclicDependency(scopedBeanDef);
+            }
+            if (beanDef.scopedProvider != null && beanDef.getContext() == this && visited.add(beanDef)){
+                toVisit.addAll(getDependencies(beanDef));
+            }
+        }
+    }
+
+    /**
+     * @return the instance of a bean that is injected or looked up, resolving it first if needed.
+     */
+    private Object getInstance(BeanDefinition beanDef) {
+        if (beanDef.getContext() != this){
+            return beanDef.getContext().getInstance(beanDef);
+        }
+        if (beanDef.scopedProvider != null){
+            return beanDef.scopedProvider.get();
+        }
+        if (beanDef.beanResolutionState != BeanResolutionState.RESOLVED){
+            resolveBean(beanDef);
+        }
+        return beanDef.instance;
+    }
+
+    /**
+     * Calls the @PostConstruct methods of a created instance. The async methods of singletons created during startup
+     * are handed to the startup executor, all others run on the calling thread.
+     */
+    private void initBean(BeanDefinition beanDef, final Object instance) {
+        if (beanDef.provided){
+            return;
+        }
+        final BeanMetadata metadata = beanDef.metadata;
+        invokeInitMethods(metadata.initMethods, instance);
+        if (metadata.asyncInitMethods.length == 0){
+            return;
+        }
+        Map<String, Future> inits = pendingInits;
+        if (inits == null || beanDef.scopedProvider != null){
+            invokeInitMethods(metadata.asyncInitMethods, instance);
+            return;
+        }
+        inits.put(beanDef.getName(), configuration.getStartupExecutor().submit(new Callable<Object>() {
+            @Override
+            public Object call() {
+                invokeInitMethods(metadata.asyncInitMethods, instance);
+                return null;
+            }
+        }));
+    }
+
+    private static void invokeInitMethods(Method[] methods, Object instance) {
+        for (Method method : methods){
+            try {
+                method.invoke(instance);
+            } catch (IllegalAccessException e) {
+                throw new BeanInstatiationException(e);
+            } catch (InvocationTargetException e) {
+                throw new BeanInstatiationException(e.getCause());
+            }
+        }
+    }
+
+    /**
+     * Writes the @Value fields, then the @Inject fields and setters of a new instance.
+     * @param timed whether to add the time of the writes, without the time of resolving the dependencies, to the
+     * startup timing of the bean.
+     */
+    private void inject(BeanDefinition beanDef, InjectionPlan plan, Object instance, boolean timed) {
+        BeanMetadata metadata = beanDef.metadata;
+        long start = timed ? System.nanoTime() : 0;
+        for (PropertyBinder.Binding binding : propertyBinder.getBindings(metadata)){
+            binding.inject(instance);
+        }
+        if (timed){
+            beanDef.injectNanos += System.nanoTime() - start;
+        }
+        for (int i = 0; i < plan.fieldDependencies.length; i++){
+            Object value = plan.fieldDependencies[i].get();
+            start = timed ? System.nanoTime() : 0;
+            injectField(metadata, plan.injector, i, instance, value);
+            if (timed){
+                beanDef.injectNanos += System.nanoTime() - start;
+            }
+        }
+        for (int i = 0; i < plan.setterDependencies.length; i++){
+            Dependency[] dependencies = plan.setterDependencies[i];
+            if (plan.injector != null && dependencies.length == 1){
+                //Without an array for the usual setter, as the injector may have bound it.
+                Object value = dependencies[0].get();
+                start = timed ? System.nanoTime() : 0;
+                plan.injector.invokeSetter(i, instance, value);
+                if (timed){
+                    beanDef.injectNanos += System.nanoTime() - start;
                 }
+                continue;
             }
+            Object[] params = getAll(dependencies);
+            start = timed ? System.nanoTime() : 0;
+            invokeSetter(metadata, plan.injector, i, instance, params);
+            if (timed){
+                beanDef.injectNanos += System.nanoTime() - start;
+            }
+        }
+    }
+
+    private static void invokeSetter(BeanMetadata metadata, BeanInjector injector, int index, Object instance, Object[] params) {
+        if (injector != null){
+            injector.invokeSetter(index, instance, params);
+            return;
+        }
+        try {
+            metadata.injectSetters[index].invoke(instance, params);
+        } catch (IllegalAccessException e) {
+            throw new BeanInstatiationException(e);
+        } catch (InvocationTargetException e) {
+            //The cause, like the generated injectors report it.
+            throw new BeanInstatiationException(e.getCause());
         }
     }
 
-    private Object instantiateBean(BeanDefinition beanDef) {
+    private static void injectField(BeanMetadata metadata, BeanInjector injector, int index, Object instance, Object value) {
+        if (injector != null){
+            injector.injectField(index, instance, value);
+            return;
+        }
+        try {
+            metadata.injectFields[index].set(instance, value);
+        } catch (IllegalAccessException e) {
+            throw new BeanInstatiationException(e);
+        }
+    }
+
+    private Object instantiateBean(BeanDefinition beanDef, InjectionPlan plan) {
         if (beanDef.factoryBean != null){
             return instantiateBeanFromFactory(beanDef);
         }
-        return instantiateBeanFromType(beanDef);
+        return instantiateBeanFromType(beanDef, plan);
     }
 
     private Object instantiateBeanFromFactory(BeanDefinition beanDef) {
-        resolveBean(beanDef.factoryBean.getName());
-        BeanFactory factory = (BeanFactory) getBean(beanDef.factoryBean);
-        return factory.createInstance();
+        BeanFactory factory = (BeanFactory) getInstance(beanDef.factoryDef);
+        if (startupListener == null){
+            return createProduct(beanDef, factory);
+        }
+        long start = System.nanoTime();
+        Object instance = createProduct(beanDef, factory);
+        beanDef.instantiateNanos = System.nanoTime() - start;
+        return instance;
+    }
+
+    private Object createProduct(BeanDefinition beanDef, BeanFactory factory) {
+        if (!(factory instanceof AsyncBeanFactory)){
+            return factory.createInstance();
+        }
+        CompletableFuture future = beanDef.pendingInstance;
+        beanDef.pendingInstance = null;
+        if (future == null){
+            future = ((AsyncBeanFactory) factory).createInstanceAsync();
+        }
+        try {
+            if (!startupDeadlineSet){
+                return future.get();
+            }
+            return future.get(startupDeadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BeanInstatiationException(e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException){
+                throw (RuntimeException) e.getCause();
+            }
+            throw new BeanInstatiationException(e.getCause());
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            List<String> pendingBeans = new ArrayList<String>();
+            pendingBeans.add(beanDef.getName());
+            for (BeanDefinition other : beanDef.tables.beans.values()){
+                if (other.pendingInstance != null && !other.pendingInstance.isDone()){
+                    pendingBeans.add(other.getName());
+                }
+            }
+            throw new StartupTimeoutException("Startup timeout of "+TimeUnit.NANOSECONDS.toMillis(configuration.getStartupTimeoutNanos())+
+                    " ms passed while waiting for bean: "+beanDef.getName()+". Not done: "+pendingBeans);
+        }
     }
 
-    private Object instantiateBeanFromType(BeanDefinition beanDef) {
-        Constructor constructorToUse = findConstructorToUse(beanDef);
-        Object[] parameters = null;
-        if (constructorToUse != null){
-            parameters = resolveDependencies(constructorToUse.getGenericParameterTypes());
-            constructorToUse.setAccessible(true);
+    private Object instantiateBeanFromType(BeanDefinition beanDef, InjectionPlan plan) {
+        Object[] parameters = getAll(plan.constructorDependencies);
+        if (startupListener == null){
+            return newInstance(beanDef, plan, parameters);
+        }
+        long start = System.nanoTime();
+        Object instance = newInstance(beanDef, plan, parameters);
+        beanDef.instantiateNanos = System.nanoTime() - start;
+        return instance;
+    }
+
+    private Object newInstance(BeanDefinition beanDef, InjectionPlan plan, Object[] parameters) {
+        BeanMetadata metadata = beanDef.metadata;
+        if (plan.chains != null){
+            return metadata.getInterceptedType().newInstance(plan.chains, parameters);
+        }
+        if (plan.injector != null){
+            return plan.injector.newInstance(parameters);
         }
+        Constructor constructorToUse = metadata.getConstructor();
         Object instance = null;
         try {
             if (constructorToUse != null){
@@ -224,106 +1520,429 @@ public class SimpleApplicationContext implements ApplicationContext{
             }else{
                 instance = beanDef.beanType.newInstance();
             }
+        } catch (InvocationTargetException e) {
+            //The cause, like the generated injectors report it.
+            throw new BeanInstatiationException(e.getCause());
         } catch (Exception e) {
             throw new BeanInstatiationException(e);
         }
         return instance;
     }
 
-    private Object[] resolveDependencies(Type[] types) {
-        List retVal = new ArrayList();
-        for (Type type : types){
-            if (type instanceof ParameterizedType){
-                resolveParametrizedType(type, retVal);
-            }else if (type instanceof Class){
-                resolveClass(retVal, (Class) type);
+    /**
+     * @return the interceptors of every interceptable method of the bean type, or null if none of them has any. The
+     * chains are shared by all instances of the type, except those of {@link Cacheable} types, whose instances are
+     * singletons that each get their own caches, so a singleton that is registered again starts empty.
+     */
+    private MethodInterceptor[][] getInterceptorChains(BeanMetadata metadata) {
+        List<MethodMatcher> matchers = configuration.getInterceptorMatchers();
+        if (matchers.isEmpty() && !metadata.cacheable){
+            return null;
+        }
+        MethodInterceptor[][] chains = metadata.cacheable ? null : interceptorChains.get(metadata.beanType);
+        if (chains == null){
+            Method[] methods = metadata.getInterceptedType().methods;
+            chains = NO_INTERCEPTORS;
+            for (int i = 0; i < methods.length; i++){
+                List<MethodInterceptor> chain = new ArrayList<MethodInterceptor>();
+                //Outermost, so cached results skip the other interceptors.
+                MethodCache cache = newMethodCache(metadata.beanType, methods[i]);
+                if (cache != null){
+                    methodCaches.put(methods[i], cache);
+                    chain.add(cache);
+                }
+                for (int j = 0; j < matchers.size(); j++){
+                    if (matchers.get(j).matches(methods[i])){
+                        chain.add(configuration.getInterceptors().get(j));
+                    }
+                }
+                if (!chain.isEmpty()){
+                    if (chains == NO_INTERCEPTORS){
+                        chains = new MethodInterceptor[methods.length][];
+                    }
+                    chains[i] = chain.toArray(new MethodInterceptor[]{});
+                }
+            }
+            if (!metadata.cacheable){
+                interceptorChains.put(metadata.beanType, chains);
             }
         }
-        return retVal.toArray();
+        return chains != NO_INTERCEPTORS ? chains : null;
     }
 
-    private void resolveClass(List retVal, Class cls) {
-        BeanDefinition beanDef = findBeanDef(cls.getName());
-        if (beanDef == null){
-            throw new UndefinedBeanException("Unable to resolve type: "+cls+". No bean definition that has this type");
+    private MethodCache newMethodCache(Class beanType, Method method) {
+        Cacheable cacheable = method.getAnnotation(Cacheable.class);
+        if (cacheable == null){
+            cacheable = (Cacheable) beanType.getAnnotation(Cacheable.class);
+        }
+        if (cacheable == null || method.getReturnType() == void.class){
+            return null;
         }
-        switch (beanDef.beanResolutionState){
-            case RESOLVED:
-                retVal.add(getBean(cls));
-                break;
-            case UNRESOLVED:
-                resolveBean(cls.getName());
-                retVal.add(getBean(cls));
-                break;
-            case IN_PROGRESS:
-                throw new CyclicDependencyException("Found cyclic dependency: During resolution of bean of type: "+cls.getName()+", the same bean was required");
+        long[] limits = configuration.getCacheLimits(beanType);
+        if (limits != null){
+            return new MethodCache((int) limits[0], limits[1], configuration.getCacheTicker());
         }
+        return new MethodCache(cacheable.maximumSize(), TimeUnit.MILLISECONDS.toNanos(cacheable.expireAfterWriteMillis()),
+                configuration.getCacheTicker());
     }
 
-    private void resolveParametrizedType(Type cls, List retVal) {
-        ParameterizedType parameterizedType = (ParameterizedType) cls;
-        if (!parameterizedType.getRawType().equals(List.class)){
-            throw new RuntimeException("Not supported parametrized type: "+cls+". The only type supported is: "+List.class);
+    /**
+     * @return the counters of the {@link Cacheable} methods of this context, of the last created singleton of every
+     * bean class.
+     */
+    public Map<Method, CacheStatistics> getCacheStatistics() {
+        Map<Method, CacheStatistics> statistics = new LinkedHashMap<Method, CacheStatistics>();
+        for (Map.Entry<Method, MethodCache> entry : methodCaches.entrySet()){
+            statistics.put(entry.getKey(), entry.getValue().getStatistics());
         }
-        List lstToReturn = new ArrayList();
-        Class beanType = (Class) parameterizedType.getActualTypeArguments()[0];
-        List<BeanDefinition> beansLst = beansByType.get(beanType.getName());
-        for (BeanDefinition beanDef : beansLst){
-            switch (beanDef.beanResolutionState){
-                case RESOLVED:
-                    lstToReturn.add(getBean(beanDef.beanType));
-                    break;
-                case UNRESOLVED:
-                    resolveBean(beanDef.beanType.getName());
-                    lstToReturn.add(getBean(beanDef.beanType));
-                    break;
-                case IN_PROGRESS:
-                    throw new CyclicDependencyException("Found cyclic dependency: During resolution of bean of type: "+beanDef.getName()+", the same bean was required");
+        return statistics;
+    }
+
+    private static Object[] getAll(Dependency[] dependencies) {
+        Object[] values = new Object[dependencies.length];
+        for (int i = 0; i < dependencies.length; i++){
+            values[i] = dependencies[i].get();
+        }
+        return values;
+    }
+
+    /**
+     * Defines a bean of the given class, or replaces the bean with the same name.
+     * @see #updateBeans(BeanDefinition, Class)
+     */
+    public void registerBean(Class beanClass) {
+        BeanDefinition definition = new BeanDefinition();
+        definition.beanType = beanClass;
+        updateBeans(definition, null);
+    }
+
+    /**
+     * Defines a singleton, or replaces the bean with the same name.
+     * @see #updateBeans(BeanDefinition, Class)
+     */
+    public void registerSingleton(Object bean) {
+        BeanDefinition definition = new BeanDefinition();
+        definition.beanType = bean.getClass();
+        definition.instance = bean;
+        definition.provided = true;
+        updateBeans(definition, null);
+    }
+
+    /**
+     * Removes the bean of the given class, and its product if it is a factory.
+     * @see #updateBeans(BeanDefinition, Class)
+     */
+    public void removeBean(Class beanClass) {
+        updateBeans(null, beanClass);
+    }
+
+    /**
+     * Reads the properties of the configuration again, and writes the {@link Value} fields whose value changed
+     * into the singletons that were created, for tuning a running context when a properties file changes. If a
+     * value is missing or invalid, nothing changes. Scoped beans get the new values when they are created, and
+     * fields that other threads read should be volatile for them to see the new value right away.
+     * @return true if any value changed.
+     */
+    public boolean reloadProperties() {
+        synchronized (registrationLock){
+            Map<Class, List<PropertyBinder.Binding>> changed = propertyBinder.reload();
+            if (changed.isEmpty()){
+                return false;
             }
+            for (BeanDefinition beanDef : tables.beans.values()){
+                List<PropertyBinder.Binding> bindings = changed.get(beanDef.metadata.beanType);
+                if (bindings != null && isCreatedSingleton(beanDef)){
+                    for (PropertyBinder.Binding binding : bindings){
+                        binding.inject(beanDef.instance);
+                    }
+                }
+            }
+            return true;
         }
-        retVal.add(lstToReturn);
     }
 
-    private Constructor findConstructorToUse(BeanDefinition beanDef) {
-        Constructor constructorToUse = null;
-        boolean hasConstructors = false;
-        boolean hasMoreThanOneConstructorsWithoutInject = false;
-        for (Constructor constructor : beanDef.beanType.getConstructors()){
-            if (constructorToUse == null){
-                constructorToUse = constructor;
+    /**
+     * Applies a registration to new tables and publishes them once the affected beans are created again.
+     * A bean is affected if it has an injection point, a collection or a provider of a key of a changed bean,
+     * or of a key of another affected bean. Affected beans get new definitions, all other beans keep their
+     * definitions and instances. Affected singletons that were created are created again before the tables are
+     * published, so readers never wait for them. If that fails, the published tables stay as they were.
+     * Singletons given as instances are injected again in place. Child contexts keep the beans they already got.
+     * Once the tables are published, the replaced instances are destroyed, see {@link #destroyBeans(Collection)}.
+     *
+     * @param added the new definition, which replaces the bean with its name, or null to remove a bean.
+     * @param removedClass the class of the bean to remove.
+     */
+    private void updateBeans(BeanDefinition added, Class removedClass) {
+        synchronized (registrationLock){
+            BeanTables current = tables;
+            BeanTables next = new BeanTables();
+            BeanDefinition existing = null;
+            List<BeanDefinition> definitions = new ArrayList<BeanDefinition>();
+            if (added != null){
+                addUnresolvedBean(next, added);
+                definitions.add(added);
+                if (added.metadata.factoryProductType != null){
+                    definitions.add(addFactoryProductBeanDef(next, added));
+                }
+                existing = current.beans.get(added.getName());
             }else{
-                if (constructorToUse.getAnnotation(Inject.class) == null){
-                    if (constructor.getAnnotation(Inject.class) != null){
-                        constructorToUse = constructor;
-                    }else {
-                        hasMoreThanOneConstructorsWithoutInject = true;
+                for (BeanDefinition beanDef : current.beans.values()){
+                    if (beanDef.beanType == removedClass && beanDef.factoryDef == null){
+                        existing = beanDef;
                     }
-                }else{
-                    if (constructor.getAnnotation(Inject.class) != null){
-                        throw new MissingSuitableConstructorException("Found more than one constructors with @Inject in class:"+beanDef.beanType+"." +
-                                " Cannot create instance of this bean");
+                }
+                if (existing == null){
+                    throw new UndefinedBeanException("Missing bean definition. (Bean: "+removedClass.getName()+")");
+                }
+            }
+            Set<BeanDefinition> removed = Collections.newSetFromMap(new IdentityHashMap<BeanDefinition, Boolean>());
+            if (existing != null){
+                removed.add(existing);
+                for (BeanDefinition beanDef : current.beans.values()){
+                    if (beanDef.factoryDef == existing){
+                        removed.add(beanDef);
                     }
                 }
             }
+            Deque<String> changedKeys = new ArrayDeque<String>();
+            for (BeanDefinition beanDef : removed){
+                changedKeys.addAll(Arrays.asList(beanDef.keys));
+            }
+            for (BeanDefinition beanDef : definitions){
+                changedKeys.addAll(Arrays.asList(beanDef.keys));
+            }
+            Set<BeanDefinition> affected = Collections.newSetFromMap(new IdentityHashMap<BeanDefinition, Boolean>());
+            while (!changedKeys.isEmpty()){
+                for (BeanDefinition dependent : current.getDependents(changedKeys.pop())){
+                    if (!removed.contains(dependent) && affected.add(dependent)){
+                        changedKeys.addAll(Arrays.asList(dependent.keys));
+                    }
+                }
+            }
+            List<BeanDefinition> unaffected = new ArrayList<BeanDefinition>();
+            for (BeanDefinition beanDef : current.beans.values()){
+                if (!removed.contains(beanDef) && !affected.contains(beanDef)){
+                    next.beans.put(beanDef.getName(), beanDef);
+                    unaffected.add(beanDef);
+                }
+            }
+            Map<BeanDefinition, BeanDefinition> copies = new IdentityHashMap<BeanDefinition, BeanDefinition>();
+            for (BeanDefinition beanDef : affected){
+                BeanDefinition definition = new BeanDefinition();
+                definition.beanType = beanDef.beanType;
+                definition.factoryBean = beanDef.factoryBean;
+                definition.metadata = beanDef.metadata;
+                definition.provided = beanDef.provided;
+                definition.instance = beanDef.provided ? beanDef.instance : null;
+                copies.put(beanDef, definition);
+            }
+            Set<BeanDefinition> toCreate = Collections.newSetFromMap(new IdentityHashMap<BeanDefinition, Boolean>());
+            for (Map.Entry<BeanDefinition, BeanDefinition> copy : copies.entrySet()){
+                BeanDefinition beanDef = copy.getKey();
+                BeanDefinition definition = copy.getValue();
+                if (beanDef.factoryDef != null){
+                    definition.factoryDef = copies.containsKey(beanDef.factoryDef) ? copies.get(beanDef.factoryDef) : beanDef.factoryDef;
+                }
+                addUnresolvedBean(next, definition);
+                definitions.add(definition);
+                if (beanDef.beanResolutionState == BeanResolutionState.RESOLVED){
+                    toCreate.add(definition);
+                }
+            }
+            next.index();
+            for (BeanDefinition definition : definitions){
+                if (isEagerSingleton(definition) || (toCreate.contains(definition) && definition.scopedProvider == null)){
+                    resolveBean(definition);
+                }
+            }
+            //Unaffected beans resolve the same definitions in both tables. Moving them lets the old tables and the
+            //replaced beans be collected.
+            for (BeanDefinition beanDef : unaffected){
+                beanDef.tables = next;
+            beanDef.plan = null;
+                if (beanDef.beanResolutionState != BeanResolutionState.RESOLVED){
+                    next.unresolvedBeans.add(beanDef.getName());
+                }
+            }
+            tables = next;
+            List<BeanDefinition> replaced = new ArrayList<BeanDefinition>();
+            for (BeanDefinition beanDef : removed){
+                if (isCreatedSingleton(beanDef)){
+                    replaced.add(beanDef);
+                }
+            }
+            for (BeanDefinition beanDef : affected){
+                if (isCreatedSingleton(beanDef) && !beanDef.provided){
+                    replaced.add(beanDef);
+                }
+            }
+            destroyBeans(replaced);
         }
-        if (constructorToUse == null && hasConstructors){
-            throw new MissingSuitableConstructorException("Cannot instantiate bean: "+beanDef.beanType+". The bean must have either no constructor, or single constructor, or single constructor annotated with @Inject");
+    }
+
+    /**
+     * Destroys the singletons of this context. Beans of child contexts may depend on them, so children should be
+     * closed first. The root context first lets the event threads deliver the queued events, up to the shutdown timeout.
+     * @see #destroyBeans(Collection)
+     */
+    @Override
+    public void close() {
+        if (!closed.compareAndSet(false, true)){
+            return;
         }
-        if (constructorToUse != null && constructorToUse.getAnnotation(Inject.class) == null){
-            if (hasMoreThanOneConstructorsWithoutInject){
-                throw new MissingSuitableConstructorException("Cannot instantiate bean of type: "+beanDef.beanType+", because a suitable constructor wasn't found. " +
-                        "There should be one of the following: no constructor at all, only one constructor, only one constructor annotated with @Inject");
+        if (parent == null){
+            eventBus.shutdown(configuration.getShutdownTimeoutNanos());
+        }
+        synchronized (registrationLock){
+            List<BeanDefinition> created = new ArrayList<BeanDefinition>();
+            for (BeanDefinition beanDef : tables.beans.values()){
+                if (isCreatedSingleton(beanDef)){
+                    created.add(beanDef);
+                }
             }
+            destroyBeans(created);
         }
-        return constructorToUse;
+    }
+
+    private boolean isCreatedSingleton(BeanDefinition beanDef) {
+        return beanDef.scopedProvider == null && beanDef.beanResolutionState == BeanResolutionState.RESOLVED;
+    }
+
+    /**
+     * Calls the @PreDestroy methods of the given singletons, each after those of all given beans that depend on it,
+     * directly or through scoped beans. Beans whose dependents are destroyed are destroyed concurrently on the startup
+     * executor, so independent branches of the graph don't wait for each other. A failing method doesn't stop the
+     * others. Waits up to the shutdown timeout, after which the remaining methods are left to finish in the background.
+     * @throws BeanDestructionException if a method failed, with the failures as suppressed exceptions, or if the
+     * timeout passed.
+     */
+    private void destroyBeans(Collection<BeanDefinition> beanDefs) {
+        if (beanDefs.isEmpty()){
+            return;
+        }
+        List<Object> listeners = new ArrayList<Object>();
+        for (BeanDefinition beanDef : beanDefs){
+            if (beanDef.metadata.listenerMethods.length > 0){
+                listeners.add(beanDef.instance);
+            }
+        }
+        eventBus.unregister(listeners);
+        Shutdown shutdown = new Shutdown(beanDefs);
+        Deque<BeanDefinition> ready = new ArrayDeque<BeanDefinition>();
+        for (BeanDefinition beanDef : beanDefs){
+            if (shutdown.dependents.get(beanDef).get() == 0){
+                ready.push(beanDef);
+            }
+        }
+        shutdown.release(ready);
+        long timeout = configuration.getShutdownTimeoutNanos();
+        boolean finished;
+        try {
+            if (timeout > 0){
+                finished = shutdown.done.await(timeout, TimeUnit.NANOSECONDS);
+            }else{
+                shutdown.done.await();
+                finished = true;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            finished = false;
+        }
+        if (!finished){
+            List<String> remainingBeans = new ArrayList<String>();
+            for (BeanDefinition beanDef : shutdown.remaining){
+                remainingBeans.add(beanDef.getName());
+            }
+            throw new BeanDestructionException("Shutdown timeout of "+TimeUnit.NANOSECONDS.toMillis(timeout)+
+                    " ms passed or was interrupted. Not destroyed: "+remainingBeans);
+        }
+        if (!shutdown.failures.isEmpty()){
+            BeanDestructionException exception = new BeanDestructionException("Failed to destroy beans: "+shutdown.failedBeans);
+            for (Throwable failure : shutdown.failures){
+                exception.addSuppressed(failure);
+            }
+            throw exception;
+        }
+    }
+
+    private void addDestroyDependencies(BeanDefinition beanDef, Set<BeanDefinition> destroyed,
+                                        List<BeanDefinition> dependencies, Set<BeanDefinition> visited) {
+        for (BeanDefinition dependency : getDependencies(beanDef)){
+            if (destroyed.contains(dependency)){
+                dependencies.add(dependency);
+            }else if (dependency.scopedProvider != null && dependency.getContext() == this && visited.add(dependency)){
+                addDestroyDependencies(dependency, destroyed, dependencies, visited);
+            }
+        }
+    }
+
+    /**
+     * @return the dependency graph of the beans this context defines. Beans are analyzed but not created, so a lazy
+     * context can be built just to analyze its beans, including cyclic ones.
+     * @throws UndefinedBeanException if a dependency is missing, and {@link AmbigiousBeanDefException} if it is ambiguous.
+     */
+    public DependencyGraph getDependencyGraph() {
+        BeanDefinition[] beanDefs = tables.beans.values().toArray(new BeanDefinition[]{});
+        Map<BeanDefinition, Integer> indices = new IdentityHashMap<BeanDefinition, Integer>();
+        for (int i = 0; i < beanDefs.length; i++){
+            indices.put(beanDefs[i], i);
+        }
+        String[] names = new String[beanDefs.length];
+        Class[] beanTypes = new Class[beanDefs.length];
+        boolean[] created = new boolean[beanDefs.length];
+        int[][] dependencies = new int[beanDefs.length][];
+        int[][] providerDependencies = new int[beanDefs.length][];
+        //The last list every bean was added to, to leave out repeated injections of the same bean.
+        int[] marks = new int[beanDefs.length];
+        Arrays.fill(marks, -1);
+        for (int i = 0; i < beanDefs.length; i++){
+            BeanDefinition beanDef = beanDefs[i];
+            names[i] = beanDef.getName();
+            beanTypes[i] = beanDef.beanType;
+            created[i] = isCreatedSingleton(beanDef);
+            List<BeanDefinition> providers = new ArrayList<BeanDefinition>();
+            dependencies[i] = toIndices(getDependencies(beanDef, providers), indices, marks, 2 * i);
+            providerDependencies[i] = toIndices(providers, indices, marks, 2 * i + 1);
+        }
+        return new DependencyGraph(names, beanTypes, created, dependencies, providerDependencies);
+    }
+
+    //Leaves out beans of the parent and beans that are already marked with the mark of the list.
+    private static int[] toIndices(List<BeanDefinition> beanDefs, Map<BeanDefinition, Integer> indices, int[] marks, int mark) {
+        int[] result = new int[beanDefs.size()];
+        int count = 0;
+        for (BeanDefinition beanDef : beanDefs){
+            Integer index = indices.get(beanDef);
+            if (index != null && marks[index] != mark){
+                marks[index] = mark;
+                result[count++] = index;
+            }
+        }
+        return count == result.length ? result : Arrays.copyOf(result, count);
+    }
+
+    /**
+     * @return the bean of the given type that is annotated with <code>@Named(name)</code>, or null if there is none.
+     */
+    public <T> T getBean(Class<T> type, String name) {
+        BeanDefinition beanDef = tables.findBeanDef(BeanMetadata.key(type, BeanMetadata.named(name)));
+        return beanDef != null ? (T) getInstance(beanDef) : null;
     }
 
     @Override
     public <T> T getBean(Class<T> type) {
-        BeanDefinition beanDef = findBeanDef(type.getName());
-        if (beanDef == null){
-            return null;
+        TypeEntry entry = tables.beanTable.get(type);
+        if (entry == null){
+            if (parent != null){
+                return parent.getBean(type);
+            }
+            return type == EventBus.class ? (T) eventBus : null;
+        }
+        BeanDefinition beanDef = entry.getBeanDef();
+        if (beanDef.beanResolutionState == BeanResolutionState.RESOLVED){
+            return (T) beanDef.instance;
         }
-        return (T) beanDef.instance;
+        return (T) getInstance(beanDef);
     }
 }
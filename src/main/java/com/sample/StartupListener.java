@@ -0,0 +1,19 @@
+package com.sample;
+
+/**
+ * Receives the startup timings of a {@link SimpleApplicationContext}, see {@link ContextConfiguration#setStartupListener(StartupListener)}.
+ * With parallel startup the callbacks come from several threads at once.
+ */
+public interface StartupListener {
+
+    /**
+     * Called when a singleton bean was created and injected. A bean is always reported after the beans it depends on.
+     * Lazy beans are reported when they are first requested, which may be after {@link #contextStarted(long)}.
+     */
+    void beanResolved(BeanTiming timing);
+
+    /**
+     * Called once, when all eager beans of the context are resolved.
+     */
+    void contextStarted(long startupNanos);
+}
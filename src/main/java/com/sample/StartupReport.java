@@ -0,0 +1,93 @@
+package com.sample;
+
+import java.util.*;
+
+/**
+ * A {@link StartupListener} that keeps all timings of a context and summarizes them: the slowest beans and the
+ * critical path, the dependency chain with the highest total self time. <code>toString()</code> prints the summary.
+ */
+public class StartupReport implements StartupListener {
+
+    private final List<BeanTiming> timings = new ArrayList<BeanTiming>();
+    private long startupNanos = 0;
+
+    @Override
+    public synchronized void beanResolved(BeanTiming timing) {
+        timings.add(timing);
+    }
+
+    @Override
+    public synchronized void contextStarted(long startupNanos) {
+        this.startupNanos = startupNanos;
+    }
+
+    public synchronized long getStartupNanos() {
+        return startupNanos;
+    }
+
+    public synchronized List<BeanTiming> getTimings() {
+        return new ArrayList<BeanTiming>(timings);
+    }
+
+    /**
+     * @return the <code>count</code> beans with the highest self time, slowest first.
+     */
+    public synchronized List<BeanTiming> getSlowestBeans(int count) {
+        List<BeanTiming> slowest = new ArrayList<BeanTiming>(timings);
+        Collections.sort(slowest, new Comparator<BeanTiming>() {
+            @Override
+            public int compare(BeanTiming timing1, BeanTiming timing2) {
+                return Long.compare(timing2.getSelfNanos(), timing1.getSelfNanos());
+            }
+        });
+        return slowest.subList(0, Math.min(count, slowest.size()));
+    }
+
+    /**
+     * @return the dependency chain with the highest total self time, from the bean that is created first to the
+     * bean that waits for all others. Startup can't get faster than this chain, even in parallel.
+     */
+    public synchronized List<BeanTiming> getCriticalPath() {
+        //Beans are reported after their dependencies, so a single pass sees every dependency before its dependents.
+        Map<Class, BeanTiming> timingByType = new HashMap<Class, BeanTiming>();
+        Map<Class, Long> pathNanos = new HashMap<Class, Long>();
+        Map<Class, Class> previous = new HashMap<Class, Class>();
+        Class last = null;
+        for (BeanTiming timing : timings){
+            long longestDependency = 0;
+            for (Class dependency : timing.getDependencies()){
+                Long dependencyNanos = pathNanos.get(dependency);
+                if (dependencyNanos != null && dependencyNanos >= longestDependency){
+                    longestDependency = dependencyNanos;
+                    previous.put(timing.getBeanType(), dependency);
+                }
+            }
+            long nanos = longestDependency + timing.getSelfNanos();
+            timingByType.put(timing.getBeanType(), timing);
+            pathNanos.put(timing.getBeanType(), nanos);
+            if (last == null || nanos > pathNanos.get(last)){
+                last = timing.getBeanType();
+            }
+        }
+        LinkedList<BeanTiming> path = new LinkedList<BeanTiming>();
+        for (Class type = last; type != null; type = previous.get(type)){
+            path.addFirst(timingByType.get(type));
+        }
+        return path;
+    }
+
+    @Override
+    public synchronized String toString() {
+        StringBuilder report = new StringBuilder();
+        report.append("Context started in ").append(startupNanos/1000).append("us, ").append(timings.size()).append(" beans\n");
+        report.append("Slowest beans:\n");
+        for (BeanTiming timing : getSlowestBeans(10)){
+            report.append("  ").append(timing).append('\n');
+        }
+        report.append("Critical path:\n");
+        for (BeanTiming timing : getCriticalPath()){
+            report.append("  ").append(timing).append('\n');
+        }
+        return report.toString();
+    }
+}
@@ -0,0 +1,33 @@
+package com.sample;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Injects a configuration property into a non-final field, before the @Inject fields and setters. The value is
+ * looked up in the system properties, then in the environment with the key in upper case and dots and dashes
+ * replaced by underscores, then in the properties of {@link ContextConfiguration#addPropertiesFile(java.io.File)}.
+ * <p>
+ * Fields can be String, boolean, int, long, double, their wrappers, enums and {@link java.time.Duration}.
+ * Numbers may carry a size suffix (<code>B, KB, MB, GB, TB</code>, powers of 1024) or a duration suffix
+ * (<code>ns, us, ms, s, m, h, d</code>), durations in int and long fields are converted to <code>unit</code>.
+ * Every value is parsed once when the context analyzes its beans, and a missing or invalid value fails the context.
+ * See {@link SimpleApplicationContext#reloadProperties()} for changing values of running beans.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.FIELD)
+public @interface Value {
+    String NO_DEFAULT = "\u0000";
+
+    /**
+     * @return the key of the property.
+     */
+    String value();
+
+    String defaultValue() default NO_DEFAULT;
+
+    TimeUnit unit() default TimeUnit.MILLISECONDS;
+}
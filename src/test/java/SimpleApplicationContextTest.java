@@ -1,10 +1,64 @@
 import com.sample.ApplicationContext;
+import com.sample.AsyncBeanFactory;
 import com.sample.BeanFactory;
+import com.sample.BeanMetadata;
+import com.sample.CacheStatistics;
+import com.sample.Cacheable;
+import com.sample.ContextConfiguration;
+import com.sample.DependencyGraph;
+import com.sample.EventBus;
+import com.sample.EventListener;
+import com.sample.InterceptorBinding;
+import com.sample.Invocation;
+import com.sample.Lazy;
+import com.sample.MethodInterceptor;
+import com.sample.MethodMatcher;
+import com.sample.Order;
+import com.sample.PostConstruct;
+import com.sample.PreDestroy;
+import com.sample.Primary;
+import com.sample.Prototype;
+import com.sample.RequestScope;
+import com.sample.RequestScoped;
+import com.sample.Scope;
+import com.sample.ThreadScoped;
+import com.sample.Value;
 import com.sample.SimpleApplicationContext;
+import com.sample.BeanTiming;
+import com.sample.StartupReport;
 import org.junit.Assert;
 import org.junit.Test;
 import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Provider;
+import javax.inject.Qualifier;
+import java.io.File;
+import java.io.IOException;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Method;
+import java.lang.reflect.UndeclaredThrowableException;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
 
 /**
  * Created by yotamm on 20/02/16.
@@ -72,6 +126,33 @@ public class SimpleApplicationContextTest {
 
     }
 
+    public static class FailingBean{
+        public FailingBean(BeanType1 dep1) throws java.io.IOException {
+            throw new java.io.IOException("Unavailable");
+        }
+    }
+
+    public static class BeanWithFailingSetter{
+        @Inject
+        public void setDep1(BeanType1 dep1){
+            throw new IllegalArgumentException("Rejected");
+        }
+    }
+
+    static class PackagePrivateBean{
+        final BeanType1 dep1;
+        BeanType2 dep2;
+
+        public PackagePrivateBean(BeanType1 dep1, BeanType1 dep1Again, BeanType1 dep1OnceMore){
+            this.dep1 = dep1;
+        }
+
+        @Inject
+        public void setDep2(BeanType2 dep2){
+            this.dep2 = dep2;
+        }
+    }
+
     public static class BeanWithTooManyConstructorsWithInject{
 
         @Inject
@@ -135,6 +216,640 @@ public class SimpleApplicationContextTest {
         }
     }
 
+    @Lazy
+    public static class LazyBean{
+        static final AtomicInteger instances = new AtomicInteger();
+        private final BeanType1 bean1;
+
+        public LazyBean(BeanType1 bean1){
+            instances.incrementAndGet();
+            this.bean1 = bean1;
+        }
+    }
+
+    @Lazy(false)
+    public static class EagerBean{
+        static final AtomicInteger instances = new AtomicInteger();
+
+        public EagerBean(){
+            instances.incrementAndGet();
+        }
+    }
+
+    @Prototype
+    public static class PrototypeBean{
+        private final BeanType1 bean1;
+
+        @Inject
+        private BeanType2 bean2;
+
+        public PrototypeBean(BeanType1 bean1){
+            this.bean1 = bean1;
+        }
+    }
+
+    @ThreadScoped
+    public static class ThreadBean{
+    }
+
+    @RequestScoped
+    public static class RequestBean{
+    }
+
+    public static class PrototypeConsumer{
+        private final PrototypeBean prototypeBean;
+
+        @Inject
+        private PrototypeBean fieldPrototypeBean;
+
+        public PrototypeConsumer(PrototypeBean prototypeBean){
+            this.prototypeBean = prototypeBean;
+        }
+    }
+
+    @Prototype
+    public static class PrototypeDep1{
+        public PrototypeDep1(PrototypeDep2 dep2){
+        }
+    }
+
+    @Prototype
+    public static class PrototypeDep2{
+        @Inject
+        private PrototypeDep1 dep1;
+    }
+
+    public static class BeanWithProviders{
+        private final Provider<LazyBean> lazyBeanProvider;
+
+        @Inject
+        private Provider<BeanType1> bean1Provider;
+
+        private Provider<PrototypeBean> prototypeBeanProvider;
+
+        public BeanWithProviders(Provider<LazyBean> lazyBeanProvider){
+            this.lazyBeanProvider = lazyBeanProvider;
+        }
+
+        @Inject
+        public void setPrototypeBeanProvider(Provider<PrototypeBean> prototypeBeanProvider){
+            this.prototypeBeanProvider = prototypeBeanProvider;
+        }
+    }
+
+    public interface Plugin{
+    }
+
+    @Order(2)
+    public static class PluginA implements Plugin{
+    }
+
+    @Order(1)
+    public static class PluginB implements Plugin{
+    }
+
+    public static class PluginC implements Plugin{
+    }
+
+    public static class PluginRegistry{
+        private final List<Plugin> list;
+
+        @Inject
+        private Set<Plugin> set;
+
+        @Inject
+        private Map<String, Plugin> map;
+
+        @Inject
+        private List<Runnable> none;
+
+        private Plugin[] array;
+
+        public PluginRegistry(List<Plugin> list){
+            this.list = list;
+        }
+
+        @Inject
+        public void setArray(Plugin[] array){
+            this.array = array;
+        }
+    }
+
+    public static class OtherPluginRegistry{
+        @Inject
+        private List<Plugin> list;
+
+        @Inject
+        private Plugin[] array;
+    }
+
+    @Lazy
+    public static class ThreadCycle1{
+        static final CountDownLatch bothStarted = new CountDownLatch(2);
+
+        public ThreadCycle1(Provider<ThreadCycle2> cycle2) throws InterruptedException {
+            bothStarted.countDown();
+            bothStarted.await();
+            cycle2.get();
+        }
+    }
+
+    @Lazy
+    public static class ThreadCycle2{
+        public ThreadCycle2(Provider<ThreadCycle1> cycle1) throws InterruptedException {
+            ThreadCycle1.bothStarted.countDown();
+            ThreadCycle1.bothStarted.await();
+            cycle1.get();
+        }
+    }
+
+    public static class ProviderCycle1{
+        private final Provider<ProviderCycle2> cycle2;
+
+        public ProviderCycle1(Provider<ProviderCycle2> cycle2){
+            this.cycle2 = cycle2;
+        }
+    }
+
+    public static class ProviderCycle2{
+        private final ProviderCycle1 cycle1;
+
+        public ProviderCycle2(ProviderCycle1 cycle1){
+            this.cycle1 = cycle1;
+        }
+    }
+
+    public static class Connection{
+    }
+
+    public static class DataFile{
+    }
+
+    //Each product is only done once both factories are started, so startup never ends if it waits for one first.
+    public static class ConnectionFactory implements AsyncBeanFactory<Connection>{
+        static CountDownLatch bothStarted;
+
+        @Override
+        public CompletableFuture<Connection> createInstanceAsync(){
+            bothStarted.countDown();
+            return completeLater(new Callable<Connection>() {
+                @Override
+                public Connection call() throws Exception {
+                    bothStarted.await();
+                    return new Connection();
+                }
+            });
+        }
+    }
+
+    public static class DataFileFactory implements AsyncBeanFactory<DataFile>{
+        @Override
+        public CompletableFuture<DataFile> createInstanceAsync(){
+            ConnectionFactory.bothStarted.countDown();
+            return completeLater(new Callable<DataFile>() {
+                @Override
+                public DataFile call() throws Exception {
+                    ConnectionFactory.bothStarted.await();
+                    return new DataFile();
+                }
+            });
+        }
+    }
+
+    public static class DataService{
+        private final Connection connection;
+        private final DataFile dataFile;
+
+        public DataService(Connection connection, DataFile dataFile){
+            this.connection = connection;
+            this.dataFile = dataFile;
+        }
+    }
+
+    public static class HangingFactory implements AsyncBeanFactory<DataFile>{
+        static CompletableFuture<DataFile> future;
+
+        @Override
+        public CompletableFuture<DataFile> createInstanceAsync(){
+            future = new CompletableFuture<DataFile>();
+            return future;
+        }
+    }
+
+    public static class PooledClient{
+        final String pool;
+
+        PooledClient(String pool){
+            this.pool = pool;
+        }
+    }
+
+    public static class OrdersClientFactory implements BeanFactory<PooledClient>{
+        @Override
+        @Named("orders")
+        public PooledClient createInstance(){
+            return new PooledClient("orders");
+        }
+    }
+
+    public static class UsersClientFactory implements BeanFactory<PooledClient>{
+        @Override
+        @Named("users")
+        @Primary
+        public PooledClient createInstance(){
+            return new PooledClient("users");
+        }
+    }
+
+    @Qualifier
+    @Retention(RetentionPolicy.RUNTIME)
+    public @interface Fast{
+    }
+
+    @Fast
+    public static class FastPlugin implements Plugin{
+    }
+
+    public static class ClientConsumer{
+        private final PooledClient primary;
+        private final PooledClient users;
+
+        @Inject
+        @Named("orders")
+        private PooledClient orders;
+
+        @Inject
+        @Named("orders")
+        private Provider<PooledClient> ordersProvider;
+
+        @Inject
+        private Map<String, PooledClient> all;
+
+        @Inject
+        @Fast
+        private List<Plugin> fastPlugins;
+
+        public ClientConsumer(PooledClient primary, @Named("users") PooledClient users){
+            this.primary = primary;
+            this.users = users;
+        }
+    }
+
+    public static class WorkerPool{
+        private boolean started = false;
+        private final List<Object> stopped = Collections.synchronizedList(new ArrayList<Object>());
+        private final CountDownLatch workersStopping = new CountDownLatch(2);
+
+        @PostConstruct
+        void start(){
+            started = true;
+        }
+
+        @PreDestroy
+        void stop(){
+            stopped.add(this);
+        }
+    }
+
+    public abstract static class PoolWorker{
+        private final WorkerPool pool;
+        boolean stoppedInParallel = false;
+
+        PoolWorker(WorkerPool pool){
+            this.pool = pool;
+        }
+
+        void stopWorker() throws InterruptedException {
+            pool.workersStopping.countDown();
+            stoppedInParallel = pool.workersStopping.await(5, TimeUnit.SECONDS);
+            pool.stopped.add(this);
+        }
+    }
+
+    public static class Worker1 extends PoolWorker{
+        public Worker1(WorkerPool pool){
+            super(pool);
+        }
+
+        @PreDestroy
+        void stop() throws InterruptedException {
+            stopWorker();
+        }
+    }
+
+    public static class Worker2 extends PoolWorker{
+        public Worker2(WorkerPool pool){
+            super(pool);
+        }
+
+        @PreDestroy
+        void stop() throws InterruptedException {
+            stopWorker();
+        }
+    }
+
+    public static class WarmCache{
+        private volatile boolean warm = false;
+
+        @PostConstruct(async = true)
+        void warmUp() throws InterruptedException {
+            Thread.sleep(20);
+            warm = true;
+        }
+
+        @PreDestroy
+        void clear(){
+            throw new IllegalStateException("clear failed");
+        }
+    }
+
+    @InterceptorBinding
+    @Retention(RetentionPolicy.RUNTIME)
+    public @interface Traced{
+    }
+
+    public static class Greeter{
+        int calls;
+        int failures;
+
+        @Traced
+        public String greet(String name){
+            calls++;
+            if (failures > 0){
+                failures--;
+                throw new IllegalStateException("Busy");
+            }
+            return "Hello "+name;
+        }
+
+        public String farewell(){
+            return "Bye";
+        }
+    }
+
+    //Written the way InterceptorProcessor generates it, which doesn't run on the tests of this module.
+    public static final class Greeter$$Intercepted extends Greeter{
+        public static final Method[] METHODS = {Invocation.method(Greeter.class, "greet", String.class)};
+        private final MethodInterceptor[] chain0;
+
+        public Greeter$$Intercepted(MethodInterceptor[][] chains){
+            this.chain0 = chains[0];
+        }
+
+        @Override
+        public String greet(String a0){
+            MethodInterceptor[] chain = chain0;
+            if (chain == null){
+                return super.greet(a0);
+            }
+            try {
+                return (String) new Invocation0(chain, this, a0).proceed();
+            } catch (RuntimeException e) {
+                throw e;
+            } catch (Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new UndeclaredThrowableException(e);
+            }
+        }
+
+        private String super0(String a0){
+            return super.greet(a0);
+        }
+
+        private static final class Invocation0 extends Invocation{
+            private final Greeter$$Intercepted target;
+            private final String a0;
+
+            Invocation0(MethodInterceptor[] chain, Greeter$$Intercepted target, String a0){
+                super(chain, METHODS[0]);
+                this.target = target;
+                this.a0 = a0;
+            }
+
+            @Override
+            public Object getTarget(){
+                return target;
+            }
+
+            @Override
+            public int getArgumentCount(){
+                return 1;
+            }
+
+            @Override
+            public Object getArgument(int index){
+                if (index == 0){
+                    return a0;
+                }
+                throw new IndexOutOfBoundsException(String.valueOf(index));
+            }
+
+            @Override
+            protected Object invokeTarget(){
+                return target.super0(a0);
+            }
+        }
+    }
+
+    /**
+     * Records the calls it sees, and returns the result of the rest of the chain with its name appended.
+     */
+    public static class RecordingInterceptor implements MethodInterceptor{
+        private final String name;
+        private final List<String> calls;
+
+        public RecordingInterceptor(String name, List<String> calls){
+            this.name = name;
+            this.calls = calls;
+        }
+
+        @Override
+        public Object invoke(Invocation invocation) throws Throwable {
+            calls.add(name+" "+invocation.getMethod().getName()+Arrays.asList(invocation.getArguments()));
+            return invocation.proceed()+" "+name;
+        }
+    }
+
+    @Cacheable(maximumSize = 2)
+    public static class PriceList{
+        int lookups;
+
+        public Integer price(String item){
+            lookups++;
+            return item.equals("free") ? null : item.length();
+        }
+    }
+
+    //Written the way InterceptorProcessor generates it, which doesn't run on the tests of this module.
+    public static final class PriceList$$Intercepted extends PriceList{
+        public static final Method[] METHODS = {Invocation.method(PriceList.class, "price", String.class)};
+        private final MethodInterceptor[] chain0;
+
+        public PriceList$$Intercepted(MethodInterceptor[][] chains){
+            this.chain0 = chains[0];
+        }
+
+        @Override
+        public Integer price(String a0){
+            MethodInterceptor[] chain = chain0;
+            if (chain == null){
+                return super.price(a0);
+            }
+            try {
+                return (Integer) new Invocation0(chain, this, a0).proceed();
+            } catch (RuntimeException e) {
+                throw e;
+            } catch (Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new UndeclaredThrowableException(e);
+            }
+        }
+
+        private Integer super0(String a0){
+            return super.price(a0);
+        }
+
+        private static final class Invocation0 extends Invocation{
+            private final PriceList$$Intercepted target;
+            private final String a0;
+
+            Invocation0(MethodInterceptor[] chain, PriceList$$Intercepted target, String a0){
+                super(chain, METHODS[0]);
+                this.target = target;
+                this.a0 = a0;
+            }
+
+            @Override
+            public Object getTarget(){
+                return target;
+            }
+
+            @Override
+            public int getArgumentCount(){
+                return 1;
+            }
+
+            @Override
+            public Object getArgument(int index){
+                if (index == 0){
+                    return a0;
+                }
+                throw new IndexOutOfBoundsException(String.valueOf(index));
+            }
+
+            @Override
+            protected Object invokeTarget(){
+                return target.super0(a0);
+            }
+        }
+    }
+
+    @Cacheable
+    @Prototype
+    public static class PrototypeQuotes{
+        public int quote(){
+            return 1;
+        }
+    }
+
+    @Prototype
+    public static class PoolConnection{
+        @Value(value = "pool.name", defaultValue = "default") String pool;
+    }
+
+    public static class PoolSettings{
+        @Value("pool.size") int size;
+        @Value(value = "pool.timeout", unit = TimeUnit.SECONDS) long timeoutSeconds;
+        @Value("pool.buffer") long bufferBytes;
+        @Value("pool.idle") Duration idle;
+        @Value(value = "pool.fair", defaultValue = "true") boolean fair;
+        @Value(value = "pool.name", defaultValue = "default") String name;
+        @Value("pool.load") double load;
+        @Value(value = "pool.unit", defaultValue = "minutes") TimeUnit unit;
+        @Inject BeanType1 bean1;
+    }
+
+    public interface Identified{}
+    public interface Auditable extends Identified{}
+    public interface Repository<T>{}
+    public interface Store<T> extends Repository<T>{}
+    public static class User{}
+    public static class Purchase{}
+    public static abstract class JpaStore<T> implements Store<T>{}
+    public static class UserRepository extends JpaStore<User> implements Auditable{}
+    public static class PurchaseRepository implements Repository<Purchase>{}
+
+    public static class PurchaseComparatorFactory implements BeanFactory<Comparator<Purchase>>{
+        @Override
+        public Comparator<Purchase> createInstance() {
+            return new Comparator<Purchase>() {
+                @Override
+                public int compare(Purchase o1, Purchase o2) {
+                    return 0;
+                }
+            };
+        }
+    }
+
+    public static class RepositoryConsumer{
+        @Inject Repository<User> users;
+        @Inject Store<User> userStore;
+        @Inject Provider<Repository<Purchase>> purchases;
+        @Inject List<Repository<?>> all;
+        @Inject Identified identified;
+        @Inject Comparator<Purchase> comparator;
+    }
+
+    public static class IdentifiedConsumer{
+        @Inject List<? extends Identified> identified;
+    }
+
+    public static class UserRepositoryConsumer{
+        @Inject Provider<Repository<? super User>> users;
+    }
+
+    public static class OrderPlaced{
+        final int id;
+        public OrderPlaced(int id){
+            this.id = id;
+        }
+    }
+
+    public static class OrderAudit{
+        final List<Object> events = Collections.synchronizedList(new ArrayList<Object>());
+        final CountDownLatch asyncDeliveries = new CountDownLatch(2);
+        volatile Thread asyncThread;
+        @EventListener
+        void onOrder(OrderPlaced event){
+            events.add(event);
+        }
+        @EventListener
+        void onAnyEvent(Object event){
+            events.add(event);
+        }
+        @EventListener(async = true)
+        void onOrderAsync(OrderPlaced event){
+            asyncThread = Thread.currentThread();
+            asyncDeliveries.countDown();
+        }
+    }
+
+    public static class OrderService{
+        @Inject EventBus eventBus;
+        void place(int id){
+            eventBus.publish(new OrderPlaced(id));
+        }
+    }
+
+    public static class RejectingListener{
+        @EventListener
+        void onOrder(OrderPlaced event){
+            throw new IllegalStateException("Rejected order "+event.id);
+        }
+    }
+
     public static class BeanDep1{
         public BeanDep1(BeanDep2 beanDep2){
 
@@ -252,10 +967,764 @@ public class SimpleApplicationContextTest {
         Assert.assertEquals(bean1, beanWithTooManyConstructors.dep1);
     }
 
-    //Negative tests...
-
-    @Test(expected = SimpleApplicationContext.CyclicDependencyException.class)
-    public void cyclicDepdendencyCheck(){
+    @Test
+    public void generatedInjectorsTest(){
+        ApplicationContext ctx = new SimpleApplicationContext(new Class[]{
+                BeanType2.class,
+                BeanType1.class,
+                ComplexBean.class,
+                BeanWithList.class,
+                BeanFactory1.class
+        }, new Object[]{
+        }, new ContextConfiguration().setGeneratedInjectors(true));
+
+        BeanType1 bean1 = ctx.getBean(BeanType1.class);
+        BeanType2 bean2 = ctx.getBean(BeanType2.class);
+        Assert.assertEquals(bean1, bean2.bean1);
+
+        ComplexBean complexBean = ctx.getBean(ComplexBean.class);
+        Assert.assertEquals(bean1, complexBean.bean1);
+        Assert.assertEquals(bean2, complexBean.bean2);
+        Assert.assertEquals(bean2, complexBean.beanType2FieldInject);
+        Assert.assertEquals(bean2, complexBean.beanType2SetterInject);
+
+        BeanWithList beanWithList = ctx.getBean(BeanWithList.class);
+        Assert.assertEquals(2, beanWithList.iSomethings.size());
+        Assert.assertEquals(beanWithList.iSomethings, beanWithList.iSomethings2);
+        Assert.assertEquals(beanWithList.iSomethings, beanWithList.iSomethings3);
+
+        Assert.assertEquals(bean1, ctx.getBean(BeanWithTooManyConstructors.class).dep1);
+
+        //public members are bound to lambdas, others are called through method handles, both fail the same way
+        SimpleApplicationContext failing = new SimpleApplicationContext(new Class[]{
+                BeanType1.class,
+                BeanType2.class,
+                PackagePrivateBean.class
+        }, new Object[]{
+        }, new ContextConfiguration().setGeneratedInjectors(true));
+        PackagePrivateBean packagePrivateBean = failing.getBean(PackagePrivateBean.class);
+        Assert.assertSame(failing.getBean(BeanType1.class), packagePrivateBean.dep1);
+        Assert.assertSame(failing.getBean(BeanType2.class), packagePrivateBean.dep2);
+        try {
+            failing.registerBean(FailingBean.class);
+            Assert.fail();
+        } catch (SimpleApplicationContext.BeanInstatiationException e) {
+            Assert.assertEquals("Unavailable", e.getCause().getMessage());
+        }
+    }
+
+    @Test
+    public void startupReportTest(){
+        StartupReport report = new StartupReport();
+        ApplicationContext ctx = new SimpleApplicationContext(new Class[]{
+                ComplexBean.class,
+                BeanType2.class,
+                BeanType1.class
+        }, new Object[]{
+        }, new ContextConfiguration().setStartupListener(report));
+
+        List<BeanTiming> timings = report.getTimings();
+        Assert.assertEquals(3, timings.size());
+        Assert.assertEquals(BeanType1.class, timings.get(0).getBeanType());
+        Assert.assertEquals(0, timings.get(0).getDepth());
+        Assert.assertEquals(BeanType2.class, timings.get(1).getBeanType());
+        Assert.assertEquals(1, timings.get(1).getDepth());
+        Assert.assertEquals(ComplexBean.class, timings.get(2).getBeanType());
+        Assert.assertEquals(2, timings.get(2).getDepth());
+        Assert.assertTrue(timings.get(2).getResolveNanos() >= timings.get(2).getSelfNanos());
+
+        List<BeanTiming> criticalPath = report.getCriticalPath();
+        Assert.assertEquals(3, criticalPath.size());
+        Assert.assertEquals(BeanType1.class, criticalPath.get(0).getBeanType());
+        Assert.assertEquals(ComplexBean.class, criticalPath.get(2).getBeanType());
+        Assert.assertEquals(2, report.getSlowestBeans(2).size());
+        Assert.assertTrue(report.getStartupNanos() > 0);
+    }
+
+    @Test
+    public void snapshotTest() throws IOException {
+        File snapshot = File.createTempFile("context", ".snapshot");
+        Assert.assertTrue(snapshot.delete());
+        try {
+            Class[] classes = {BeanType2.class, ComplexBean.class, BeanWithList.class, BeanFactory1.class};
+            BeanType1 singleton = new BeanType1();
+            ContextConfiguration configuration = new ContextConfiguration().setSnapshotFile(snapshot);
+            SimpleApplicationContext ctx = new SimpleApplicationContext(classes, new Object[]{singleton}, configuration);
+            Assert.assertFalse(ctx.isRestoredFromSnapshot());
+            Assert.assertTrue(snapshot.isFile());
+
+            ctx = new SimpleApplicationContext(classes, new Object[]{singleton}, configuration);
+            Assert.assertTrue(ctx.isRestoredFromSnapshot());
+            BeanType2 bean2 = ctx.getBean(BeanType2.class);
+            Assert.assertSame(singleton, ctx.getBean(BeanType1.class));
+            Assert.assertSame(singleton, bean2.bean1);
+            ComplexBean complexBean = ctx.getBean(ComplexBean.class);
+            Assert.assertSame(bean2, complexBean.bean2);
+            Assert.assertSame(bean2, complexBean.beanType2FieldInject);
+            Assert.assertSame(bean2, complexBean.beanType2SetterInject);
+            Assert.assertEquals(2, ctx.getBean(BeanWithList.class).iSomethings.size());
+            Assert.assertSame(singleton, ctx.getBean(BeanWithTooManyConstructors.class).dep1);
+
+            //Other beans don't match the snapshot, which is replaced.
+            ctx = new SimpleApplicationContext(new Class[]{BeanType2.class}, new Object[]{singleton}, configuration);
+            Assert.assertFalse(ctx.isRestoredFromSnapshot());
+            Assert.assertTrue(new SimpleApplicationContext(new Class[]{BeanType2.class}, new Object[]{singleton}, configuration)
+                    .isRestoredFromSnapshot());
+
+            byte[] bytes = Files.readAllBytes(snapshot.toPath());
+            bytes[bytes.length / 2] ^= 1;
+            Files.write(snapshot.toPath(), bytes);
+            ctx = new SimpleApplicationContext(new Class[]{BeanType2.class}, new Object[]{singleton}, configuration);
+            Assert.assertFalse(ctx.isRestoredFromSnapshot());
+            Assert.assertSame(singleton, ctx.getBean(BeanType2.class).bean1);
+        } finally {
+            snapshot.delete();
+        }
+    }
+
+    @Test
+    public void parallelStartupTest() throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            ApplicationContext ctx = new SimpleApplicationContext(new Class[]{
+                    BeanType2.class,
+                    BeanType1.class,
+                    ComplexBean.class,
+                    BeanWithList.class,
+                    BeanFactory1.class
+            }, new Object[]{
+            }, new ContextConfiguration().setParallelStartup(true).setStartupExecutor(executor));
+
+            BeanType1 bean1 = ctx.getBean(BeanType1.class);
+            BeanType2 bean2 = ctx.getBean(BeanType2.class);
+            Assert.assertEquals(bean1, bean2.bean1);
+
+            ComplexBean complexBean = ctx.getBean(ComplexBean.class);
+            Assert.assertEquals(bean1, complexBean.bean1);
+            Assert.assertEquals(bean2, complexBean.bean2);
+            Assert.assertEquals(bean2, complexBean.beanType2FieldInject);
+            Assert.assertEquals(bean2, complexBean.beanType2SetterInject);
+
+            BeanWithList beanWithList = ctx.getBean(BeanWithList.class);
+            Assert.assertEquals(2, beanWithList.iSomethings.size());
+            Assert.assertTrue(beanWithList.iSomethings.contains(bean2));
+            Assert.assertTrue(beanWithList.iSomethings.contains(bean1));
+
+            Assert.assertEquals(bean1, ctx.getBean(BeanWithTooManyConstructors.class).dep1);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void childContextTest(){
+        LazyBean.instances.set(0);
+        SimpleApplicationContext parent = new SimpleApplicationContext(new Class[]{
+                BeanType1.class,
+                LazyBean.class
+        }, new Object[]{
+        });
+        SimpleApplicationContext child = new SimpleApplicationContext(parent, new Class[]{
+                BeanType2.class,
+                BeanWithList.class
+        }, new Object[]{
+        });
+        BeanType1 bean1 = parent.getBean(BeanType1.class);
+        Assert.assertSame(bean1, child.getBean(BeanType1.class));
+        Assert.assertSame(bean1, child.getBean(BeanType2.class).bean1);
+        Assert.assertNull(parent.getBean(BeanType2.class));
+        //The beans of the child hide the beans of the parent with the same type.
+        Assert.assertEquals(1, child.getBean(BeanWithList.class).iSomethings.size());
+        Assert.assertSame(child.getBean(BeanType2.class), child.getBean(BeanWithList.class).iSomethings.get(0));
+
+        //A lazy bean of the parent is created by the parent, once.
+        Assert.assertEquals(0, LazyBean.instances.get());
+        LazyBean lazyBean = child.getBean(LazyBean.class);
+        Assert.assertSame(lazyBean, parent.getBean(LazyBean.class));
+        Assert.assertEquals(1, LazyBean.instances.get());
+
+        SimpleApplicationContext sibling = new SimpleApplicationContext(parent, new Class[]{
+                BeanType2.class
+        }, new Object[]{
+        });
+        Assert.assertNotSame(child.getBean(BeanType2.class), sibling.getBean(BeanType2.class));
+        Assert.assertSame(bean1, sibling.getBean(BeanType2.class).bean1);
+
+        BeanType1 childBean1 = new BeanType1();
+        SimpleApplicationContext overriding = new SimpleApplicationContext(parent, new Class[]{
+                BeanType2.class
+        }, new Object[]{
+                childBean1
+        });
+        Assert.assertSame(childBean1, overriding.getBean(BeanType2.class).bean1);
+    }
+
+    @Test
+    public void lazyBeanTest(){
+        LazyBean.instances.set(0);
+        ApplicationContext ctx = new SimpleApplicationContext(new Class[]{
+                BeanType1.class,
+                LazyBean.class
+        }, new Object[]{
+        });
+        Assert.assertEquals(0, LazyBean.instances.get());
+
+        LazyBean lazyBean = ctx.getBean(LazyBean.class);
+        Assert.assertNotNull(lazyBean);
+        Assert.assertEquals(ctx.getBean(BeanType1.class), lazyBean.bean1);
+        Assert.assertSame(lazyBean, ctx.getBean(LazyBean.class));
+        Assert.assertEquals(1, LazyBean.instances.get());
+    }
+
+    @Test
+    public void lazyInitTest(){
+        EagerBean.instances.set(0);
+        ApplicationContext ctx = new SimpleApplicationContext(new Class[]{
+                BeanType2.class,
+                BeanType1.class,
+                ComplexBean.class,
+                EagerBean.class
+        }, new Object[]{
+        }, new ContextConfiguration().setLazyInit(true));
+        Assert.assertEquals(1, EagerBean.instances.get());
+
+        ComplexBean complexBean = ctx.getBean(ComplexBean.class);
+        Assert.assertNotNull(complexBean);
+        Assert.assertEquals(ctx.getBean(BeanType1.class), complexBean.bean1);
+        Assert.assertEquals(ctx.getBean(BeanType2.class), complexBean.beanType2FieldInject);
+        Assert.assertEquals(ctx.getBean(BeanType2.class), complexBean.beanType2SetterInject);
+    }
+
+    @Test
+    public void lazyBeanIsCreatedOnceUnderContention() throws Exception {
+        LazyBean.instances.set(0);
+        final ApplicationContext ctx = new SimpleApplicationContext(new Class[]{
+                BeanType1.class,
+                LazyBean.class
+        }, new Object[]{
+        });
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            final CountDownLatch start = new CountDownLatch(1);
+            List<Future<LazyBean>> results = new ArrayList<Future<LazyBean>>();
+            for (int i = 0; i < 8; i++){
+                results.add(executor.submit(new Callable<LazyBean>() {
+                    @Override
+                    public LazyBean call() throws Exception {
+                        start.await();
+                        return ctx.getBean(LazyBean.class);
+                    }
+                }));
+            }
+            start.countDown();
+            for (Future<LazyBean> result : results){
+                Assert.assertSame(results.get(0).get(), result.get());
+                Assert.assertNotNull(result.get().bean1);
+            }
+            Assert.assertEquals(1, LazyBean.instances.get());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void concurrentLazyStressTest() throws Exception {
+        final Class[] requested = {ComplexBean.class, BeanWithList.class, LazyBean.class, BeanType2.class};
+        LazyBean.instances.set(0);
+        int rounds = 200;
+        for (int round = 0; round < rounds; round++){
+            final ApplicationContext ctx = new SimpleApplicationContext(new Class[]{
+                    BeanType1.class,
+                    BeanType2.class,
+                    ComplexBean.class,
+                    BeanWithList.class,
+                    LazyBean.class
+            }, new Object[]{
+            }, new ContextConfiguration().setLazyInit(true));
+            List<Object> beans = runConcurrently(16, new Callable<Object>() {
+                private final AtomicInteger next = new AtomicInteger();
+
+                @Override
+                public Object call() {
+                    Class type = requested[next.getAndIncrement() % requested.length];
+                    return ctx.getBean(type);
+                }
+            });
+            for (Object bean : beans){
+                if (bean instanceof ComplexBean){
+                    Assert.assertSame(ctx.getBean(ComplexBean.class), bean);
+                    Assert.assertSame(ctx.getBean(BeanType2.class), ((ComplexBean) bean).beanType2FieldInject);
+                    Assert.assertSame(ctx.getBean(BeanType2.class), ((ComplexBean) bean).beanType2SetterInject);
+                }else if (bean instanceof LazyBean){
+                    Assert.assertSame(ctx.getBean(BeanType1.class), ((LazyBean) bean).bean1);
+                }else if (bean instanceof BeanType2){
+                    Assert.assertSame(ctx.getBean(BeanType1.class), ((BeanType2) bean).bean1);
+                }else{
+                    Assert.assertEquals(2, ((BeanWithList) bean).iSomethings.size());
+                }
+            }
+        }
+        Assert.assertEquals(rounds, LazyBean.instances.get());
+    }
+
+    @Test
+    public void cycleBetweenThreadsTest() throws Exception {
+        final ApplicationContext ctx = new SimpleApplicationContext(new Class[]{
+                ThreadCycle1.class,
+                ThreadCycle2.class
+        }, new Object[]{
+        });
+        final Class[] requested = {ThreadCycle1.class, ThreadCycle2.class};
+        List<Object> results = runConcurrently(2, new Callable<Object>() {
+            private final AtomicInteger next = new AtomicInteger();
+
+            @Override
+            public Object call() {
+                try {
+                    return ctx.getBean(requested[next.getAndIncrement()]);
+                } catch (RuntimeException e) {
+                    return e;
+                }
+            }
+        });
+        //Each thread holds one bean of the cycle and needs the other: both fail instead of waiting for each other.
+        for (Object result : results){
+            Throwable cause = (Throwable) result;
+            while (!(cause instanceof SimpleApplicationContext.CyclicDependencyException)){
+                Assert.assertNotNull(result.toString(), cause.getCause());
+                cause = cause.getCause();
+            }
+        }
+    }
+
+    private static <T> CompletableFuture<T> completeLater(final Callable<T> work) {
+        final CompletableFuture<T> future = new CompletableFuture<T>();
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    future.complete(work.call());
+                } catch (Exception e) {
+                    future.completeExceptionally(e);
+                }
+            }
+        });
+        thread.setDaemon(true);
+        thread.start();
+        return future;
+    }
+
+    private static <T> List<T> runConcurrently(int threads, final Callable<T> task) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            final CountDownLatch start = new CountDownLatch(1);
+            List<Future<T>> futures = new ArrayList<Future<T>>();
+            for (int i = 0; i < threads; i++){
+                futures.add(executor.submit(new Callable<T>() {
+                    @Override
+                    public T call() throws Exception {
+                        start.await();
+                        return task.call();
+                    }
+                }));
+            }
+            start.countDown();
+            List<T> results = new ArrayList<T>();
+            for (Future<T> future : futures){
+                results.add(future.get(10, TimeUnit.SECONDS));
+            }
+            return results;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void collectionInjectionTest(){
+        ApplicationContext ctx = new SimpleApplicationContext(new Class[]{
+                PluginC.class,
+                PluginA.class,
+                PluginB.class,
+                PluginRegistry.class,
+                OtherPluginRegistry.class
+        }, new Object[]{
+        });
+        PluginA pluginA = ctx.getBean(PluginA.class);
+        PluginB pluginB = ctx.getBean(PluginB.class);
+        PluginC pluginC = ctx.getBean(PluginC.class);
+        PluginRegistry registry = ctx.getBean(PluginRegistry.class);
+        OtherPluginRegistry otherRegistry = ctx.getBean(OtherPluginRegistry.class);
+
+        Assert.assertEquals(Arrays.asList(pluginB, pluginA, pluginC), registry.list);
+        Assert.assertEquals(Arrays.asList(pluginB, pluginA, pluginC), new ArrayList<Plugin>(registry.set));
+        Assert.assertEquals(Arrays.asList(PluginB.class.getName(), PluginA.class.getName(), PluginC.class.getName()),
+                new ArrayList<String>(registry.map.keySet()));
+        Assert.assertSame(pluginA, registry.map.get(PluginA.class.getName()));
+        Assert.assertArrayEquals(new Plugin[]{pluginB, pluginA, pluginC}, registry.array);
+        Assert.assertTrue(registry.none.isEmpty());
+
+        //Collections of singletons are built once and shared, arrays are copied.
+        Assert.assertSame(registry.list, otherRegistry.list);
+        Assert.assertNotSame(registry.array, otherRegistry.array);
+        try {
+            registry.list.add(pluginA);
+            Assert.fail();
+        } catch (UnsupportedOperationException e) {
+            //expected
+        }
+    }
+
+    @Test
+    public void registrationTest(){
+        BeanType1 bean1 = new BeanType1();
+        SimpleApplicationContext ctx = new SimpleApplicationContext(new Class[]{
+                BeanType2.class,
+                PluginA.class,
+                PluginRegistry.class,
+                LazyBean.class
+        }, new Object[]{
+                bean1
+        });
+        BeanType2 bean2 = ctx.getBean(BeanType2.class);
+        PluginRegistry registry = ctx.getBean(PluginRegistry.class);
+        PluginA pluginA = ctx.getBean(PluginA.class);
+
+        //Only the beans that depend on a changed type are created again.
+        ctx.registerBean(PluginB.class);
+        PluginRegistry newRegistry = ctx.getBean(PluginRegistry.class);
+        Assert.assertNotSame(registry, newRegistry);
+        Assert.assertEquals(Arrays.asList(ctx.getBean(PluginB.class), pluginA), newRegistry.list);
+        Assert.assertEquals(Arrays.asList(pluginA), registry.list);
+        Assert.assertSame(bean2, ctx.getBean(BeanType2.class));
+
+        //Dependents are replaced transitively, the old instances stay as they were.
+        LazyBean.instances.set(0);
+        BeanType1 newBean1 = new BeanType1();
+        ctx.registerSingleton(newBean1);
+        Assert.assertSame(newBean1, ctx.getBean(BeanType1.class));
+        Assert.assertSame(newBean1, ctx.getBean(BeanType2.class).bean1);
+        Assert.assertSame(bean1, bean2.bean1);
+        Assert.assertEquals(0, LazyBean.instances.get());
+        Assert.assertSame(newBean1, ctx.getBean(LazyBean.class).bean1);
+
+        //A registration that fails leaves the context as it was.
+        try {
+            ctx.removeBean(BeanType1.class);
+            Assert.fail();
+        } catch (SimpleApplicationContext.UndefinedBeanException e) {
+            //expected
+        }
+        Assert.assertSame(newBean1, ctx.getBean(BeanType1.class));
+
+        ctx.removeBean(PluginA.class);
+        Assert.assertNull(ctx.getBean(PluginA.class));
+        Assert.assertEquals(Arrays.asList(ctx.getBean(PluginB.class)), ctx.getBean(PluginRegistry.class).list);
+    }
+
+    @Test
+    public void registrationReleasesReplacedBeansTest(){
+        PluginC replacedPlugin = new PluginC();
+        SimpleApplicationContext ctx = new SimpleApplicationContext(new Class[]{
+                BeanType1.class,
+                BeanType2.class,
+                LazyBean.class,
+                PrototypeBean.class,
+                BeanWithProviders.class,
+                PluginA.class,
+                PluginRegistry.class
+        }, new Object[]{
+                replacedPlugin
+        });
+        BeanWithProviders withProviders = ctx.getBean(BeanWithProviders.class);
+        PluginC removedPlugin = new PluginC();
+        ctx.registerSingleton(removedPlugin);
+        ctx.registerBean(PluginB.class);
+        ctx.removeBean(PluginC.class);
+        Assert.assertSame(withProviders, ctx.getBean(BeanWithProviders.class));
+
+        //Unaffected beans resolve against the current tables, which no longer hold the replaced beans.
+        LazyBean lazyBean = withProviders.lazyBeanProvider.get();
+        Assert.assertSame(lazyBean, ctx.getBean(LazyBean.class));
+        Assert.assertSame(ctx.getBean(BeanType1.class), lazyBean.bean1);
+        Assert.assertSame(ctx.getBean(BeanType1.class), withProviders.bean1Provider.get());
+        Assert.assertNotNull(withProviders.prototypeBeanProvider.get());
+        WeakReference<PluginC> replaced = new WeakReference<PluginC>(replacedPlugin);
+        WeakReference<PluginC> removed = new WeakReference<PluginC>(removedPlugin);
+        replacedPlugin = null;
+        removedPlugin = null;
+        for (int i = 0; i < 10 && (replaced.get() != null || removed.get() != null); i++){
+            System.gc();
+        }
+        Assert.assertNull(replaced.get());
+        Assert.assertNull(removed.get());
+    }
+
+    @Test
+    public void asyncFactoryTest(){
+        ConnectionFactory.bothStarted = new CountDownLatch(2);
+        ApplicationContext ctx = new SimpleApplicationContext(new Class[]{
+                DataService.class,
+                ConnectionFactory.class,
+                DataFileFactory.class
+        }, new Object[]{
+        }, new ContextConfiguration().setStartupTimeout(10, TimeUnit.SECONDS));
+        DataService service = ctx.getBean(DataService.class);
+        Assert.assertSame(ctx.getBean(Connection.class), service.connection);
+        Assert.assertSame(ctx.getBean(DataFile.class), service.dataFile);
+    }
+
+    @Test
+    public void asyncFactoryTimeoutTest(){
+        try {
+            new SimpleApplicationContext(new Class[]{
+                    HangingFactory.class,
+                    BeanType1.class
+            }, new Object[]{
+            }, new ContextConfiguration().setStartupTimeout(50, TimeUnit.MILLISECONDS));
+            Assert.fail();
+        } catch (SimpleApplicationContext.StartupTimeoutException e) {
+            Assert.assertTrue(e.getMessage().contains(DataFile.class.getName()));
+        }
+        Assert.assertTrue(HangingFactory.future.isCancelled());
+    }
+
+    @Test
+    public void lifecycleTest(){
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        SimpleApplicationContext ctx = new SimpleApplicationContext(new Class[]{
+                Worker1.class,
+                Worker2.class,
+                WorkerPool.class,
+                WarmCache.class
+        }, new Object[]{
+        }, new ContextConfiguration().setStartupExecutor(executor).setShutdownTimeout(10, TimeUnit.SECONDS));
+        WorkerPool pool = ctx.getBean(WorkerPool.class);
+        Assert.assertTrue(pool.started);
+        Assert.assertTrue(ctx.getBean(WarmCache.class).warm);
+        try {
+            ctx.close();
+            Assert.fail();
+        } catch (SimpleApplicationContext.BeanDestructionException e) {
+            Assert.assertEquals("clear failed", e.getSuppressed()[0].getMessage());
+        }
+        //Both workers depend on the pool only, so they are stopped together and before it.
+        Assert.assertEquals(3, pool.stopped.size());
+        Assert.assertSame(pool, pool.stopped.get(2));
+        Assert.assertTrue(ctx.getBean(Worker1.class).stoppedInParallel);
+        Assert.assertTrue(ctx.getBean(Worker2.class).stoppedInParallel);
+        ctx.close();
+        Assert.assertEquals(3, pool.stopped.size());
+        executor.shutdown();
+    }
+
+    @Test
+    public void qualifierTest(){
+        SimpleApplicationContext ctx = new SimpleApplicationContext(new Class[]{
+                OrdersClientFactory.class,
+                UsersClientFactory.class,
+                PluginA.class,
+                FastPlugin.class,
+                ClientConsumer.class
+        }, new Object[]{
+        });
+        PooledClient orders = ctx.getBean(PooledClient.class, "orders");
+        PooledClient users = ctx.getBean(PooledClient.class, "users");
+        Assert.assertEquals("orders", orders.pool);
+        Assert.assertEquals("users", users.pool);
+        Assert.assertNull(ctx.getBean(PooledClient.class, "other"));
+        //The primary bean is injected and looked up without a qualifier.
+        Assert.assertSame(users, ctx.getBean(PooledClient.class));
+
+        ClientConsumer consumer = ctx.getBean(ClientConsumer.class);
+        Assert.assertSame(users, consumer.primary);
+        Assert.assertSame(users, consumer.users);
+        Assert.assertSame(orders, consumer.orders);
+        Assert.assertSame(orders, consumer.ordersProvider.get());
+        Assert.assertEquals(2, consumer.all.size());
+        Assert.assertSame(orders, consumer.all.get("orders"));
+        Assert.assertSame(users, consumer.all.get("users"));
+        Assert.assertEquals(Arrays.asList(ctx.getBean(FastPlugin.class)), consumer.fastPlugins);
+    }
+
+    @Test
+    public void prototypeScopeTest(){
+        ApplicationContext ctx = new SimpleApplicationContext(new Class[]{
+                BeanType2.class,
+                BeanType1.class,
+                PrototypeBean.class,
+                PrototypeConsumer.class
+        }, new Object[]{
+        });
+        PrototypeBean first = ctx.getBean(PrototypeBean.class);
+        PrototypeBean second = ctx.getBean(PrototypeBean.class);
+        Assert.assertNotSame(first, second);
+        Assert.assertEquals(ctx.getBean(BeanType1.class), first.bean1);
+        Assert.assertEquals(ctx.getBean(BeanType2.class), first.bean2);
+        Assert.assertEquals(ctx.getBean(BeanType2.class), second.bean2);
+
+        PrototypeConsumer consumer = ctx.getBean(PrototypeConsumer.class);
+        Assert.assertNotNull(consumer.prototypeBean);
+        Assert.assertNotNull(consumer.fieldPrototypeBean);
+        Assert.assertNotSame(consumer.prototypeBean, consumer.fieldPrototypeBean);
+    }
+
+    @Test
+    public void prototypeScopeWithParallelStartupTest(){
+        ApplicationContext ctx = new SimpleApplicationContext(new Class[]{
+                BeanType2.class,
+                BeanType1.class,
+                PrototypeBean.class,
+                PrototypeConsumer.class
+        }, new Object[]{
+        }, new ContextConfiguration().setParallelStartup(true).setGeneratedInjectors(true));
+        PrototypeConsumer consumer = ctx.getBean(PrototypeConsumer.class);
+        Assert.assertEquals(ctx.getBean(BeanType1.class), consumer.prototypeBean.bean1);
+        Assert.assertEquals(ctx.getBean(BeanType2.class), consumer.fieldPrototypeBean.bean2);
+    }
+
+    @Test
+    public void threadScopeTest() throws Exception {
+        final ApplicationContext ctx = new SimpleApplicationContext(new Class[]{
+                ThreadBean.class
+        }, new Object[]{
+        });
+        ThreadBean threadBean = ctx.getBean(ThreadBean.class);
+        Assert.assertSame(threadBean, ctx.getBean(ThreadBean.class));
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            ThreadBean otherThreadBean = executor.submit(new Callable<ThreadBean>() {
+                @Override
+                public ThreadBean call() {
+                    return ctx.getBean(ThreadBean.class);
+                }
+            }).get();
+            Assert.assertNotNull(otherThreadBean);
+            Assert.assertNotSame(threadBean, otherThreadBean);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void requestScopeTest(){
+        ContextConfiguration configuration = new ContextConfiguration();
+        RequestScope requestScope = (RequestScope) configuration.getScope(RequestScoped.class);
+        ApplicationContext ctx = new SimpleApplicationContext(new Class[]{
+                RequestBean.class
+        }, new Object[]{
+        }, configuration);
+
+        requestScope.enter();
+        RequestBean requestBean = ctx.getBean(RequestBean.class);
+        Assert.assertSame(requestBean, ctx.getBean(RequestBean.class));
+        requestScope.exit();
+
+        requestScope.enter();
+        try {
+            Assert.assertNotSame(requestBean, ctx.getBean(RequestBean.class));
+        } finally {
+            requestScope.exit();
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void requestScopeOutsideOfRequestTest(){
+        ApplicationContext ctx = new SimpleApplicationContext(new Class[]{
+                RequestBean.class
+        }, new Object[]{
+        });
+        ctx.getBean(RequestBean.class);
+    }
+
+    @Test
+    public void customScopeTest(){
+        final List<Class> scopedTypes = new ArrayList<Class>();
+        ApplicationContext ctx = new SimpleApplicationContext(new Class[]{
+                RequestBean.class
+        }, new Object[]{
+        }, new ContextConfiguration().registerScope(RequestScoped.class, new Scope() {
+            @Override
+            public <T> Provider<T> scope(Class<T> beanType, Provider<T> unscoped) {
+                scopedTypes.add(beanType);
+                return unscoped;
+            }
+        }));
+        Assert.assertNotSame(ctx.getBean(RequestBean.class), ctx.getBean(RequestBean.class));
+        Assert.assertEquals(1, scopedTypes.size());
+        Assert.assertEquals(RequestBean.class, scopedTypes.get(0));
+    }
+
+    @Test
+    public void providerInjectionTest(){
+        LazyBean.instances.set(0);
+        ApplicationContext ctx = new SimpleApplicationContext(new Class[]{
+                BeanType2.class,
+                BeanType1.class,
+                LazyBean.class,
+                PrototypeBean.class,
+                BeanWithProviders.class
+        }, new Object[]{
+        });
+        BeanWithProviders beanWithProviders = ctx.getBean(BeanWithProviders.class);
+        Assert.assertEquals(0, LazyBean.instances.get());
+        Assert.assertSame(ctx.getBean(LazyBean.class), beanWithProviders.lazyBeanProvider.get());
+        Assert.assertEquals(1, LazyBean.instances.get());
+        Assert.assertSame(ctx.getBean(BeanType1.class), beanWithProviders.bean1Provider.get());
+        Assert.assertNotSame(beanWithProviders.prototypeBeanProvider.get(), beanWithProviders.prototypeBeanProvider.get());
+    }
+
+    @Test
+    public void cyclicDependencyThroughProviderTest(){
+        for (ContextConfiguration configuration : new ContextConfiguration[]{
+                new ContextConfiguration(), new ContextConfiguration().setParallelStartup(true)}){
+            ApplicationContext ctx = new SimpleApplicationContext(new Class[]{
+                    ProviderCycle1.class,
+                    ProviderCycle2.class
+            }, new Object[]{
+            }, configuration);
+            ProviderCycle1 cycle1 = ctx.getBean(ProviderCycle1.class);
+            Assert.assertSame(ctx.getBean(ProviderCycle2.class), cycle1.cycle2.get());
+            Assert.assertSame(cycle1, cycle1.cycle2.get().cycle1);
+        }
+    }
+
+    @Test
+    public void metadataIsSharedBetweenContexts(){
+        Class[] classes = new Class[]{BeanType2.class, BeanType1.class, ComplexBean.class};
+        new SimpleApplicationContext(classes, new Object[]{});
+        long misses = BeanMetadata.getCacheMisses();
+        long hits = BeanMetadata.getCacheHits();
+
+        ApplicationContext ctx = new SimpleApplicationContext(classes, new Object[]{});
+        Assert.assertNotNull(ctx.getBean(ComplexBean.class).beanType2FieldInject);
+        Assert.assertEquals(misses, BeanMetadata.getCacheMisses());
+        Assert.assertTrue(BeanMetadata.getCacheHits() >= hits + classes.length);
+    }
+
+    @Test
+    public void testGetBeanOfUndefinedType(){
+        ApplicationContext ctx = new SimpleApplicationContext(new Class[]{
+                BeanType1.class
+        }, new Object[]{
+        });
+        Assert.assertNull(ctx.getBean(BeanType2.class));
+        Assert.assertSame(ctx.getBean(BeanType1.class), ctx.getBean(ISomething.class));
+    }
+
+    //Negative tests...
+
+    @Test(expected = SimpleApplicationContext.AmbigiousBeanDefException.class)
+    public void testGetBeanOfAmbigiousType(){
+        ApplicationContext ctx = new SimpleApplicationContext(new Class[]{
+                BeanType2.class,
+                BeanType1.class
+        }, new Object[]{
+        });
+        ctx.getBean(ISomething.class);
+    }
+
+    @Test(expected = SimpleApplicationContext.CyclicDependencyException.class)
+    public void cyclicDepdendencyCheck(){
         ApplicationContext ctx = new SimpleApplicationContext(new Class[]{
                 BeanType2.class,
                 BeanType1.class,
@@ -266,6 +1735,397 @@ public class SimpleApplicationContextTest {
         });
     }
 
+    @Test
+    public void interceptorsTest(){
+        final List<String> calls = new ArrayList<String>();
+        final List<Object> targets = new ArrayList<Object>();
+        SimpleApplicationContext ctx = new SimpleApplicationContext(new Class[]{
+                Greeter.class
+        }, new Object[]{
+        }, new ContextConfiguration()
+                .addInterceptor(Traced.class, new RecordingInterceptor("outer", calls))
+                .addInterceptor(new MethodMatcher() {
+                    @Override
+                    public boolean matches(Method method) {
+                        return method.getName().equals("greet");
+                    }
+                }, new MethodInterceptor() {
+                    @Override
+                    public Object invoke(Invocation invocation) throws Throwable {
+                        targets.add(invocation.getTarget());
+                        return invocation.proceed();
+                    }
+                })
+                .addInterceptor(Traced.class, new RecordingInterceptor("inner", calls)));
+        Greeter greeter = ctx.getBean(Greeter.class);
+        Assert.assertSame(Greeter$$Intercepted.class, greeter.getClass());
+
+        //interceptors run in the order they were added, the first one outermost
+        Assert.assertEquals("Hello Ann inner outer", greeter.greet("Ann"));
+        Assert.assertEquals(Arrays.asList("outer greet[Ann]", "inner greet[Ann]"), calls);
+        Assert.assertEquals(Arrays.asList((Object) greeter), targets);
+        Assert.assertEquals("Bye", greeter.farewell());
+        Assert.assertEquals(1, greeter.calls);
+
+        //exceptions of the method pass through the chain unchanged
+        greeter.failures = 1;
+        try {
+            greeter.greet("Bob");
+            Assert.fail();
+        } catch (IllegalStateException e) {
+            Assert.assertEquals("Busy", e.getMessage());
+        }
+
+        //an interceptor that proceeds again runs the rest of the chain again, one that doesn't skips the method
+        calls.clear();
+        SimpleApplicationContext retrying = new SimpleApplicationContext(new Class[]{
+                Greeter.class
+        }, new Object[]{
+        }, new ContextConfiguration()
+                .addInterceptor(Traced.class, new MethodInterceptor() {
+                    @Override
+                    public Object invoke(Invocation invocation) throws Throwable {
+                        if (invocation.getArgument(0) == null){
+                            return "Hello stranger";
+                        }
+                        try {
+                            return invocation.proceed();
+                        } catch (IllegalStateException e) {
+                            return invocation.proceed();
+                        }
+                    }
+                })
+                .addInterceptor(Traced.class, new RecordingInterceptor("inner", calls)));
+        Greeter retried = retrying.getBean(Greeter.class);
+        retried.failures = 1;
+        Assert.assertEquals("Hello Cy inner", retried.greet("Cy"));
+        Assert.assertEquals(Arrays.asList("inner greet[Cy]", "inner greet[Cy]"), calls);
+        Assert.assertEquals(2, retried.calls);
+        Assert.assertEquals("Hello stranger", retried.greet(null));
+        Assert.assertEquals(2, retried.calls);
+
+        //without matching interceptors the context creates the bean class itself
+        SimpleApplicationContext plain = new SimpleApplicationContext(new Class[]{
+                Greeter.class
+        }, new Object[]{
+        }, new ContextConfiguration().addInterceptor(new MethodMatcher() {
+            @Override
+            public boolean matches(Method method) {
+                return false;
+            }
+        }, new RecordingInterceptor("unused", calls)));
+        Assert.assertSame(Greeter.class, plain.getBean(Greeter.class).getClass());
+    }
+
+    @Test
+    public void cacheableTest(){
+        final AtomicLong nanos = new AtomicLong();
+        LongSupplier ticker = new LongSupplier() {
+            @Override
+            public long getAsLong() {
+                return nanos.get();
+            }
+        };
+        SimpleApplicationContext ctx = new SimpleApplicationContext(new Class[]{
+                PriceList.class
+        }, new Object[]{
+        }, new ContextConfiguration().setCacheTicker(ticker));
+        PriceList prices = ctx.getBean(PriceList.class);
+        Assert.assertSame(PriceList$$Intercepted.class, prices.getClass());
+        Method price = PriceList$$Intercepted.METHODS[0];
+
+        Assert.assertEquals(Integer.valueOf(5), prices.price("apple"));
+        Assert.assertEquals(Integer.valueOf(5), prices.price("apple"));
+        Assert.assertNull(prices.price("free"));
+        Assert.assertNull(prices.price("free"));
+        Assert.assertEquals(2, prices.lookups);
+        //the third item evicts the least recently used one
+        prices.price("pear");
+        prices.price("free");
+        prices.price("apple");
+        Assert.assertEquals(4, prices.lookups);
+        CacheStatistics statistics = ctx.getCacheStatistics().get(price);
+        Assert.assertEquals(3, statistics.getHitCount());
+        Assert.assertEquals(4, statistics.getMissCount());
+        Assert.assertEquals(2, statistics.getEvictionCount());
+        Assert.assertEquals(2, statistics.getSize());
+        Assert.assertEquals(3.0 / 7, statistics.getHitRate(), 1e-9);
+
+        //a singleton that is registered again starts with empty caches
+        ctx.registerBean(PriceList.class);
+        PriceList newPrices = ctx.getBean(PriceList.class);
+        Assert.assertNotSame(prices, newPrices);
+        newPrices.price("apple");
+        Assert.assertEquals(1, newPrices.lookups);
+        Assert.assertEquals(0, ctx.getCacheStatistics().get(price).getHitCount());
+
+        //results expire by the ticker, and the limits of the context override the annotation
+        SimpleApplicationContext expiring = new SimpleApplicationContext(new Class[]{
+                PriceList.class
+        }, new Object[]{
+        }, new ContextConfiguration().setCacheTicker(ticker).setCacheLimits(PriceList.class, 10, 100, TimeUnit.MILLISECONDS));
+        PriceList expiringPrices = expiring.getBean(PriceList.class);
+        expiringPrices.price("apple");
+        nanos.addAndGet(TimeUnit.MILLISECONDS.toNanos(99));
+        expiringPrices.price("apple");
+        Assert.assertEquals(1, expiringPrices.lookups);
+        nanos.addAndGet(TimeUnit.MILLISECONDS.toNanos(1));
+        expiringPrices.price("apple");
+        Assert.assertEquals(2, expiringPrices.lookups);
+        Assert.assertEquals(1, expiring.getCacheStatistics().get(price).getEvictionCount());
+
+        try {
+            new SimpleApplicationContext(new Class[]{PrototypeQuotes.class}, new Object[]{});
+            Assert.fail();
+        } catch (SimpleApplicationContext.BeanInstatiationException e) {
+            Assert.assertTrue(e.getMessage(), e.getMessage().contains("@Cacheable bean has to be a singleton"));
+        }
+    }
+
+    @Test
+    public void propertiesTest() throws IOException {
+        File properties = File.createTempFile("pool", ".properties");
+        properties.deleteOnExit();
+        Files.write(properties.toPath(), ("pool.size=8\npool.timeout=2m\npool.buffer=64KB\npool.idle=500ms\n" +
+                "pool.load=0.75\npool.name=orders\n").getBytes("UTF-8"));
+        SimpleApplicationContext ctx = new SimpleApplicationContext(new Class[]{
+                PoolSettings.class,
+                PoolConnection.class,
+                BeanType1.class
+        }, new Object[]{
+        }, new ContextConfiguration().addPropertiesFile(properties));
+        PoolSettings settings = ctx.getBean(PoolSettings.class);
+        Assert.assertEquals(8, settings.size);
+        Assert.assertEquals(120, settings.timeoutSeconds);
+        Assert.assertEquals(64 * 1024, settings.bufferBytes);
+        Assert.assertEquals(Duration.ofMillis(500), settings.idle);
+        Assert.assertTrue(settings.fair);
+        Assert.assertEquals("orders", settings.name);
+        Assert.assertEquals(0.75, settings.load, 0);
+        Assert.assertEquals(TimeUnit.MINUTES, settings.unit);
+        Assert.assertNotNull(settings.bean1);
+        //scoped beans get their values on every creation
+        Assert.assertEquals("orders", ctx.getBean(PoolConnection.class).pool);
+
+        Assert.assertFalse(ctx.reloadProperties());
+        Files.write(properties.toPath(), ("pool.size=16\npool.timeout=2m\npool.buffer=1MB\npool.idle=PT1S\n" +
+                "pool.load=0.75\npool.name=orders\n").getBytes("UTF-8"));
+        System.setProperty("pool.fair", "false");
+        try {
+            Assert.assertTrue(ctx.reloadProperties());
+        } finally {
+            System.clearProperty("pool.fair");
+        }
+        Assert.assertSame(settings, ctx.getBean(PoolSettings.class));
+        Assert.assertEquals(16, settings.size);
+        Assert.assertEquals(1024 * 1024, settings.bufferBytes);
+        Assert.assertEquals(Duration.ofSeconds(1), settings.idle);
+        Assert.assertFalse(settings.fair);
+
+        //an invalid value keeps the current ones
+        Files.write(properties.toPath(), "pool.size=many\npool.timeout=1s\npool.buffer=1\npool.idle=1s\npool.load=1\n".getBytes("UTF-8"));
+        try {
+            ctx.reloadProperties();
+            Assert.fail();
+        } catch (SimpleApplicationContext.PropertyBindingException e) {
+            Assert.assertTrue(e.getMessage(), e.getMessage().contains("pool.size"));
+        }
+        Assert.assertEquals(16, settings.size);
+        Assert.assertEquals(120, settings.timeoutSeconds);
+
+        //missing properties fail the start, even of lazy beans
+        Files.write(properties.toPath(), "pool.size=1\n".getBytes("UTF-8"));
+        try {
+            new SimpleApplicationContext(new Class[]{PoolSettings.class, BeanType1.class}, new Object[]{},
+                    new ContextConfiguration().addPropertiesFile(properties).setLazyInit(true));
+            Assert.fail();
+        } catch (SimpleApplicationContext.PropertyBindingException e) {
+            Assert.assertTrue(e.getMessage(), e.getMessage().startsWith("No value for property pool.timeout"));
+        }
+    }
+
+    @Test
+    public void genericTypesTest(){
+        SimpleApplicationContext ctx = new SimpleApplicationContext(new Class[]{
+                UserRepository.class,
+                PurchaseRepository.class,
+                PurchaseComparatorFactory.class,
+                RepositoryConsumer.class
+        }, new Object[]{
+        });
+        RepositoryConsumer consumer = ctx.getBean(RepositoryConsumer.class);
+        UserRepository users = ctx.getBean(UserRepository.class);
+        Assert.assertSame(users, consumer.users);
+        Assert.assertSame(users, consumer.userStore);
+        Assert.assertSame(ctx.getBean(PurchaseRepository.class), consumer.purchases.get());
+        Assert.assertEquals(2, consumer.all.size());
+        //Identified is only a super interface of an interface of the bean
+        Assert.assertSame(users, consumer.identified);
+        Assert.assertSame(users, ctx.getBean(Identified.class));
+        Assert.assertNotNull(consumer.comparator);
+        Assert.assertSame(consumer.comparator, ctx.getBean(Comparator.class));
+        try {
+            ctx.getBean(Repository.class);
+            Assert.fail();
+        } catch (SimpleApplicationContext.AmbigiousBeanDefException e) {
+            //expected, only the parameterized types tell them apart
+        }
+        //no bean has the key of a bounded wildcard, so these would be silently empty or unresolvable
+        for (Class consumerType : new Class[]{IdentifiedConsumer.class, UserRepositoryConsumer.class}){
+            try {
+                new SimpleApplicationContext(new Class[]{
+                        UserRepository.class,
+                        consumerType
+                }, new Object[]{
+                });
+                Assert.fail();
+            } catch (IllegalStateException e) {
+                Assert.assertTrue(e.getMessage(), e.getMessage().startsWith("Not supported injection point type"));
+            }
+        }
+    }
+
+    @Test
+    public void eventsTest() throws InterruptedException {
+        SimpleApplicationContext ctx = new SimpleApplicationContext(new Class[]{
+                OrderAudit.class,
+                OrderService.class
+        }, new Object[]{
+        });
+        OrderAudit audit = ctx.getBean(OrderAudit.class);
+        OrderService service = ctx.getBean(OrderService.class);
+        Assert.assertSame(ctx.getEventBus(), service.eventBus);
+        Assert.assertSame(ctx.getEventBus(), ctx.getBean(EventBus.class));
+
+        service.place(1);
+        Assert.assertEquals(2, audit.events.size());
+        Assert.assertEquals(1, ((OrderPlaced) audit.events.get(0)).id);
+        Assert.assertSame(audit.events.get(0), audit.events.get(1));
+        //listeners of a super type get all subtypes
+        ctx.getEventBus().publish("started");
+        Assert.assertEquals(3, audit.events.size());
+        Assert.assertEquals("started", audit.events.get(2));
+
+        service.place(2);
+        Assert.assertTrue(audit.asyncDeliveries.await(5, TimeUnit.SECONDS));
+        Assert.assertNotSame(Thread.currentThread(), audit.asyncThread);
+
+        //children share the bus, and a failing listener doesn't stop the others
+        SimpleApplicationContext child = new SimpleApplicationContext(ctx, new Class[]{RejectingListener.class}, new Object[]{});
+        Assert.assertSame(ctx.getEventBus(), child.getEventBus());
+        try {
+            service.place(3);
+            Assert.fail();
+        } catch (SimpleApplicationContext.EventDeliveryException e) {
+            Assert.assertTrue(e.getMessage(), e.getMessage().contains(RejectingListener.class.getName()+".onOrder"));
+            Assert.assertEquals("Rejected order 3", e.getSuppressed()[0].getMessage());
+        }
+        Assert.assertEquals(7, audit.events.size());
+        child.close();
+        service.place(4);
+        Assert.assertEquals(9, audit.events.size());
+
+        ctx.close();
+        ctx.getEventBus().publish(new OrderPlaced(5));
+        Assert.assertEquals(9, audit.events.size());
+    }
+
+    @Test
+    public void dependencyGraphTest() throws IOException {
+        SimpleApplicationContext ctx = new SimpleApplicationContext(new Class[]{
+                BeanType2.class,
+                BeanType1.class,
+                ComplexBean.class,
+                BeanDep1.class,
+                BeanDep2.class,
+                LazyBean.class,
+                PrototypeBean.class,
+                BeanWithProviders.class
+        }, new Object[]{
+        }, new ContextConfiguration().setLazyInit(true));
+        ctx.getBean(BeanType2.class);
+        try {
+            ctx.getBean(BeanDep1.class);
+            Assert.fail();
+        } catch (SimpleApplicationContext.CyclicDependencyException e) {
+            Assert.assertTrue(e.getMessage(), e.getMessage().endsWith("("+BeanDep1.class.getName()+" -> "+
+                    BeanDep2.class.getName()+" -> "+BeanDep1.class.getName()+")"));
+        }
+
+        DependencyGraph graph = ctx.getDependencyGraph();
+        Assert.assertEquals(8, graph.size());
+        List<List<String>> cycles = graph.getCycles();
+        Assert.assertEquals(1, cycles.size());
+        Assert.assertEquals(3, cycles.get(0).size());
+        Assert.assertTrue(cycles.get(0).contains(BeanDep2.class.getName()));
+        int beanDep1 = graph.indexOf(BeanDep1.class.getName());
+        Assert.assertTrue(graph.isInCycle(beanDep1));
+        Assert.assertEquals(-1, graph.getDepth(beanDep1));
+
+        int bean1 = graph.indexOf(BeanType1.class.getName());
+        int complexBean = graph.indexOf(ComplexBean.class.getName());
+        //Four beans inject it and one gets a provider of it.
+        Assert.assertEquals(5, graph.getFanIn(bean1));
+        //The constructor, field and setter dependencies on BeanType2 count once.
+        Assert.assertEquals(2, graph.getFanOut(complexBean));
+        Assert.assertEquals(2, graph.getDepth(complexBean));
+        Assert.assertEquals(3, graph.getFanOut(graph.indexOf(BeanWithProviders.class.getName())));
+        List<String> chain = graph.getCriticalChain();
+        Assert.assertEquals(Arrays.asList(BeanType1.class.getName(), BeanType2.class.getName()), chain.subList(0, 2));
+        Assert.assertEquals(3, chain.size());
+        Assert.assertEquals(new HashSet<String>(Arrays.asList(ComplexBean.class.getName(), BeanWithProviders.class.getName())),
+                new HashSet<String>(graph.getUnusedBeans()));
+
+        StringBuilder json = new StringBuilder();
+        graph.writeJson(json);
+        Assert.assertTrue(json.toString().contains("{\"name\":\""+ComplexBean.class.getName()+"\""));
+        StringBuilder dot = new StringBuilder();
+        graph.writeDot(dot);
+        Assert.assertTrue(dot.toString().startsWith("digraph beans {"));
+        Assert.assertTrue(dot.toString().contains("[style=dashed]"));
+    }
+
+    @Test(expected = SimpleApplicationContext.CyclicDependencyException.class)
+    public void cyclicDepdendencyCheckWithParallelStartup(){
+        ApplicationContext ctx = new SimpleApplicationContext(new Class[]{
+                BeanType2.class,
+                BeanType1.class,
+                ComplexBean.class,
+                BeanDep1.class,
+                BeanDep2.class
+        }, new Object[]{
+        }, new ContextConfiguration().setParallelStartup(true));
+    }
+
+    @Test(expected = SimpleApplicationContext.UndefinedBeanException.class)
+    public void testUnableToResolveWithParallelStartup(){
+        ApplicationContext ctx = new SimpleApplicationContext(new Class[]{
+                BeanType2.class,
+                ComplexBean.class
+        }, new Object[]{
+        }, new ContextConfiguration().setParallelStartup(true));
+    }
+
+    @Test(expected = SimpleApplicationContext.BeanInstatiationException.class)
+    public void testBeanWithErrorsInConstructorWithParallelStartup(){
+        ApplicationContext ctx = new SimpleApplicationContext(new Class[]{
+                BeanWithErrorsInConstructor.class,
+                BeanType2.class,
+                BeanType1.class
+        }, new Object[]{
+        }, new ContextConfiguration().setParallelStartup(true));
+    }
+
+    @Test(expected = SimpleApplicationContext.CyclicDependencyException.class)
+    public void cyclicDepdendencyBetweenPrototypesCheck(){
+        ApplicationContext ctx = new SimpleApplicationContext(new Class[]{
+                PrototypeDep1.class,
+                PrototypeDep2.class
+        }, new Object[]{
+        });
+        ctx.getBean(PrototypeDep1.class);
+    }
+
     @Test(expected = SimpleApplicationContext.MissingSuitableConstructorException.class)
     public void checkTooManyConstructors(){
         ApplicationContext ctx = new SimpleApplicationContext(new Class[]{
@@ -301,4 +2161,57 @@ public class SimpleApplicationContextTest {
         }, new Object[]{
         });
     }
+
+    @Test
+    public void errorsInConstructorAndSetterHaveTheSameCauseInBothModes(){
+        for (boolean generatedInjectors : new boolean[]{false, true}){
+            try {
+                new SimpleApplicationContext(new Class[]{
+                        BeanWithErrorsInConstructor.class,
+                }, new Object[]{
+                }, new ContextConfiguration().setGeneratedInjectors(generatedInjectors));
+                Assert.fail();
+            } catch (SimpleApplicationContext.BeanInstatiationException e) {
+                Assert.assertEquals(NullPointerException.class, e.getCause().getClass());
+            }
+            try {
+                new SimpleApplicationContext(new Class[]{
+                        BeanType1.class,
+                        FailingBean.class
+                }, new Object[]{
+                }, new ContextConfiguration().setGeneratedInjectors(generatedInjectors));
+                Assert.fail();
+            } catch (SimpleApplicationContext.BeanInstatiationException e) {
+                Assert.assertEquals("Unavailable", e.getCause().getMessage());
+            }
+            try {
+                new SimpleApplicationContext(new Class[]{
+                        BeanType1.class,
+                        BeanWithFailingSetter.class
+                }, new Object[]{
+                }, new ContextConfiguration().setGeneratedInjectors(generatedInjectors));
+                Assert.fail();
+            } catch (SimpleApplicationContext.BeanInstatiationException e) {
+                Assert.assertEquals(IllegalArgumentException.class, e.getCause().getClass());
+            }
+        }
+    }
+
+    @Test(expected = SimpleApplicationContext.BeanInstatiationException.class)
+    public void testBeanWithErrorsInConstructorWithGeneratedInjectors(){
+        ApplicationContext ctx = new SimpleApplicationContext(new Class[]{
+                BeanWithErrorsInConstructor.class,
+        }, new Object[]{
+        }, new ContextConfiguration().setGeneratedInjectors(true));
+    }
+
+    @Test(expected = SimpleApplicationContext.MissingSuitableConstructorException.class)
+    public void checkTooManyConstructorsWithGeneratedInjectors(){
+        ApplicationContext ctx = new SimpleApplicationContext(new Class[]{
+                BeanWithTooManyConstructors.class,
+                BeanType2.class,
+                BeanType1.class
+        }, new Object[]{
+        }, new ContextConfiguration().setGeneratedInjectors(true));
+    }
 }